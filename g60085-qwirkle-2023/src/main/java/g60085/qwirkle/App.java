@@ -1,14 +1,25 @@
 package g60085.qwirkle;
 
-import g60085.qwirkle.model.Bag;
+import g60085.qwirkle.bot.Bot;
+import g60085.qwirkle.bot.GreedyBot;
 import g60085.qwirkle.model.Direction;
 import g60085.qwirkle.model.Game;
+import g60085.qwirkle.model.GameEngine;
+import g60085.qwirkle.model.Move;
+import g60085.qwirkle.model.MoveBuffer;
+import g60085.qwirkle.model.MoveJournal;
+import g60085.qwirkle.model.MoveResult;
 import g60085.qwirkle.model.QwirkleException;
+import g60085.qwirkle.model.SaveService;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
 import java.util.Scanner;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 import static g60085.qwirkle.view.View.*;
 
@@ -22,6 +33,9 @@ import static g60085.qwirkle.view.View.*;
  * Requesting the view to display relevant information, such as the game state, scores, and messages.
  */
 public class App {
+    private static final Path AUTOSAVE = Path.of("game.ser", "autosave");
+    private static final SaveService SAVES = new SaveService(16);
+    private static CompletableFuture<Path> lastSave;
 
     /**
      * The main entry point of the Qwirkle game.
@@ -30,15 +44,20 @@ public class App {
      */
     public static void main(String[] args) {
         Game game = null;
+        Bot[] bots = null;
         displayTitle();
 
-        // Resume a previously saved game;
-        if (resumeGame() && displaySerializedFiles()) {
+        // Recover the game interrupted by a crash;
+        MoveJournal journal = recoverJournal();
+        GameEngine engine = journal == null ? null : journal.getEngine();
+        if (engine != null) {
+            game = engine.getGame();
+        } else if (resumeGame() && displaySerializedFiles()) { // Resume a previously saved game;
             do {
                 try {
                     String filename = robustReadingString("Enter the name of the file: ");
                     game = Game.getFromFile(filename);
-                    displayMessage(ANSI_GREEN + "The game was successfully deserialized!" + ANSI_RESET);
+                    displayMessage(ANSI_GREEN + "The game was successfully loaded!" + ANSI_RESET);
                 } catch (QwirkleException e) {
                     displayMessage(ANSI_ORANGE + e.getMessage() + ANSI_RESET);
                 }
@@ -49,24 +68,35 @@ public class App {
         if (game == null) {
             int numberPlayers = nbPlayers();
             game = new Game(namePlayers(numberPlayers));
+            bots = chooseBots(game);
             game.initPlayerHand();
             startPlayer(game);
             displayHelp();
         }
+        if (bots == null) { // The bots are not saved with the game;
+            bots = chooseBots(game);
+        }
+        if (engine == null) {
+            engine = new GameEngine(game);
+            journal = startJournal(engine);
+        }
 
         // The flow of the game;
         boolean continueGame = true;
         while (continueGame) {
             try {
-                if (game.isOver()) {
+                if (engine.isOver()) {
                     continueGame = false;
-                    displayGameOver(determineWinners(game));
+                    displayGameOver(engine.getWinners());
                 } else {
-                    if (Bag.getInstance().size() == 0) {
+                    if (game.getBagSize() == 0) {
                         displayMessage(ANSI_YELLOW + "The bag is empty! " +
                                 "You are almost at the end of the game!" + ANSI_RESET);
                     }
-                    if (!tryToPlay("Try to play! ", game)) {
+                    Bot bot = bots[game.getCurrentPlayerIndex()];
+                    if (bot != null) {
+                        playBot(engine, bot);
+                    } else if (!tryToPlay("Try to play! ", engine)) {
                         continueGame = false;
                         if (saveGame()) {
                             boolean gameIsSaved = false;
@@ -74,21 +104,116 @@ public class App {
                                 try {
                                     displaySerializedFiles();
                                     String filename = robustReadingString("Enter the name of the file: ");
-                                    Game.write(game, filename);
+                                    waitForSave(SAVES.save(game, Path.of("game.ser", filename)));
                                     gameIsSaved = true;
-                                    displayMessage(ANSI_GREEN + "The game was successfully serialized!" + ANSI_RESET);
+                                    displayMessage(ANSI_GREEN + "The game was successfully saved!" + ANSI_RESET);
                                 } catch (QwirkleException e) {
                                     displayMessage(ANSI_ORANGE + e.getMessage() + ANSI_RESET);
                                 }
                             } while (!gameIsSaved && saveGame());
                         }
-                        displayGameOver(determineWinners(game));
+                        displayGameOver(engine.getWinners());
                     }
                 }
             } catch (QwirkleException e) {
                 displayError(e.getMessage());
             }
         }
+        for (Bot bot : bots) {
+            if (bot != null) {
+                bot.close();
+            }
+        }
+        stopJournal(journal);
+        SAVES.close();
+        reportSave();
+    }
+
+    /**
+     * Waits until a save is written.
+     *
+     * @param save the future of the save.
+     * @throws QwirkleException if the save cannot be written.
+     */
+    private static void waitForSave(CompletableFuture<Path> save) throws QwirkleException {
+        try {
+            save.join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof QwirkleException cause ? cause : new QwirkleException(e.getMessage());
+        }
+    }
+
+    /**
+     * Displays the outcome of the last save made in the background, once it is written.
+     */
+    private static void reportSave() {
+        if (lastSave != null && lastSave.isDone()) {
+            try {
+                waitForSave(lastSave);
+                displayMessage(ANSI_GREEN + "The game was successfully saved!" + ANSI_RESET);
+            } catch (QwirkleException e) {
+                displayMessage(ANSI_ORANGE + e.getMessage() + ANSI_RESET);
+            }
+            lastSave = null;
+        }
+    }
+
+    /**
+     * Offers to recover the game interrupted by a crash, whose journal is left in the file "autosave",
+     * and goes on recording its turns. The journal is only replaced by the next game once the user declines.
+     *
+     * @return the journal of the recovered game, or null if there is none or the user declines.
+     */
+    private static MoveJournal recoverJournal() {
+        MoveJournal journal = null;
+        boolean decided = !Files.exists(AUTOSAVE);
+        while (!decided) {
+            String message = ANSI_CYAN + "A game was interrupted! Do you want to recover it? (y or n)" + ANSI_RESET;
+            if (yesOrNoRobustReading(message).equalsIgnoreCase("y")) {
+                try {
+                    journal = MoveJournal.resume(AUTOSAVE, 1);
+                    decided = true;
+                    displayMessage(ANSI_GREEN + "The game was successfully recovered!" + ANSI_RESET);
+                } catch (QwirkleException e) {
+                    displayMessage(ANSI_ORANGE + e.getMessage() + ANSI_RESET);
+                }
+            } else {
+                decided = true;
+                displayMessage(ANSI_ORANGE + "The interrupted game will be replaced by the next one!" + ANSI_RESET);
+            }
+        }
+        return journal;
+    }
+
+    /**
+     * Starts recording the turns of the game, so that it can be loaded from the file "autosave" after a crash.
+     *
+     * @param engine the engine of the Qwirkle game.
+     * @return the journal of the game, or null if it cannot be written.
+     */
+    private static MoveJournal startJournal(GameEngine engine) {
+        try {
+            return MoveJournal.create(AUTOSAVE, engine, 1);
+        } catch (QwirkleException e) {
+            displayMessage(ANSI_ORANGE + "The game will not be saved automatically! " + e.getMessage() + ANSI_RESET);
+            return null;
+        }
+    }
+
+    /**
+     * Stops recording the turns of the game and deletes its journal, no longer needed once the game is left.
+     *
+     * @param journal the journal of the game, or null if there is none.
+     */
+    private static void stopJournal(MoveJournal journal) {
+        if (journal != null) {
+            try {
+                journal.close();
+                Files.deleteIfExists(AUTOSAVE);
+            } catch (QwirkleException | IOException e) {
+                displayMessage(ANSI_ORANGE + e.getMessage() + ANSI_RESET);
+            }
+        }
     }
 
     /**
@@ -148,6 +273,49 @@ public class App {
         return playersList;
     }
 
+    /**
+     * Asks which players are played by a bot.
+     *
+     * @param game The Qwirkle game instance.
+     * @return the bot of each player, null for the players played by a human.
+     */
+    private static Bot[] chooseBots(Game game) {
+        String[] names = game.getPlayersName();
+        Bot[] bots = new Bot[names.length];
+        for (int i = 0; i < names.length; i++) {
+            String message = ANSI_CYAN + "Is " + names[i] + " played by a bot? (y or n)" + ANSI_RESET;
+            if (yesOrNoRobustReading(message).equalsIgnoreCase("y")) {
+                bots[i] = new GreedyBot();
+            }
+        }
+        return bots;
+    }
+
+    /**
+     * Lets a bot play the move of the current player, or pass if it has no legal move.
+     *
+     * @param engine the engine of the Qwirkle game.
+     * @param bot    the bot of the current player.
+     */
+    private static void playBot(GameEngine engine, Bot bot) {
+        Game game = engine.getGame();
+        int player = game.getCurrentPlayerIndex();
+        String name = game.getCurrentPlayerName();
+        int score = game.getCurrentPlayerScore();
+        MoveBuffer moves = new MoveBuffer();
+        engine.generateMoves(moves);
+        int move = bot.choose(game, moves);
+        if (move == -1) {
+            engine.play(new Move.Pass());
+            displayMessage(ANSI_YELLOW + name + " (bot) passes." + ANSI_RESET);
+        } else {
+            engine.play(moves, move);
+            displayMessage(ANSI_GREEN + name + " (bot) plays " + moves.count(move) + " tile(s) for "
+                    + (game.getPlayersScore()[player] - score) + " points." + ANSI_RESET);
+        }
+        displayGridView(game.getGrid());
+    }
+
     /**
      * Asks which player will start the game.
      *
@@ -225,10 +393,10 @@ public class App {
     /**
      * Handles the addition of tiles based on the input provided.
      *
-     * @param game  the Qwirkle game.
-     * @param input the input specifying the type of addition.
+     * @param engine the engine of the Qwirkle game.
+     * @param input  the input specifying the type of addition.
      */
-    private static void add(Game game, String input) {
+    private static void add(GameEngine engine, String input) {
         String invalidInputMessage = "Invalid input! Try again!";
         String replayMessage = "Replay!";
         String[] detailInput = input.split(" ");
@@ -236,35 +404,35 @@ public class App {
 
         switch (typeOfPlay) {
             case "f":
-                if (!firstAdd(input, game)) {
+                if (!firstAdd(input, engine)) {
                     displayInvalidInput(invalidInputMessage);
-                    tryToPlay(replayMessage, game);
+                    tryToPlay(replayMessage, engine);
                 }
                 break;
             case "o":
-                if (!playOneTile(input, game)) {
+                if (!playOneTile(input, engine)) {
                     displayInvalidInput(invalidInputMessage);
-                    tryToPlay(replayMessage, game);
+                    tryToPlay(replayMessage, engine);
                 }
                 break;
             case "l":
-                if (!playLine(input, game)) {
+                if (!playLine(input, engine)) {
                     displayInvalidInput(invalidInputMessage);
-                    tryToPlay(replayMessage, game);
+                    tryToPlay(replayMessage, engine);
                 }
                 break;
             case "m":
-                if (!playTileAtPosition(input, game)) {
+                if (!playTileAtPosition(input, engine)) {
                     displayInvalidInput(invalidInputMessage);
-                    tryToPlay(replayMessage, game);
+                    tryToPlay(replayMessage, engine);
                 }
                 break;
             case "p":
-                game.pass();
+                play(engine, new Move.Pass());
                 break;
             default:
                 displayInvalidInput(invalidInputMessage);
-                tryToPlay(replayMessage, game);
+                tryToPlay(replayMessage, engine);
                 break;
         }
     }
@@ -273,17 +441,19 @@ public class App {
      * Handles the user's attempt to play a move.
      *
      * @param message The message to display before prompting for input.
-     * @param game    The Qwirkle game.
+     * @param engine  The engine of the Qwirkle game.
      * @return True if the user wants to continue playing, false if they want to quit.
      */
-    private static boolean tryToPlay(String message, Game game) {
+    private static boolean tryToPlay(String message, GameEngine engine) {
         Scanner keyboard = new Scanner(System.in);
+        Game game = engine.getGame();
 
+        reportSave();
         displayGridView(game.getGrid());
         displayPlayerInfo(game.getCurrentPlayerName(), game.getCurrentPlayerHand(), game.getCurrentPlayerScore());
         displayMessage(message);
 
-        String validCommandsRegex = "(?i)[folmpq]"; // Case-insensitive regular expression for matching the letters f, o, l, m, or p
+        String validCommandsRegex = "(?i)[folmpqs]"; // Case-insensitive regular expression for matching the letters f, o, l, m, p, q or s
         String input;
         String[] detailInput;
         String typeOfPlay;
@@ -300,8 +470,20 @@ public class App {
 
         if (input.equalsIgnoreCase("q")) {
             return false; // User wants to quit
+        } else if (typeOfPlay.equalsIgnoreCase("s")) {
+            if (input.matches("(?i)^s \\S+$")) { // s <file>; the game goes on while it is written;
+                try {
+                    lastSave = SAVES.save(game, Path.of("game.ser", detailInput[1]));
+                    displayMessage(ANSI_GREEN + "The game is being saved!" + ANSI_RESET);
+                } catch (QwirkleException e) {
+                    displayMessage(ANSI_ORANGE + e.getMessage() + ANSI_RESET);
+                }
+            } else {
+                displayInvalidInput("Invalid input! Try again!");
+            }
+            return tryToPlay(message, engine);
         } else {
-            add(game, input);
+            add(engine, input);
             return true; // User wants to continue playing
         }
     }
@@ -309,11 +491,11 @@ public class App {
     /**
      * Handles the first addition of tiles to the game grid.
      *
-     * @param input the user's input for the first play of tiles.
-     * @param game  the Qwirkle game.
+     * @param input  the user's input for the first play of tiles.
+     * @param engine the engine of the Qwirkle game.
      * @return true if the input is valid and the tiles are successfully added, false otherwise.
      */
-    private static boolean firstAdd(String input, Game game) {
+    private static boolean firstAdd(String input, GameEngine engine) {
         boolean validInput = true;
         String regex = "(?i)^f [drul]( [0-5]){1,6}$"; // f [<direction>] <f1> [<f2> ...]; (case-insensitive);
 
@@ -325,8 +507,8 @@ public class App {
                 indexes[i - 2] = Integer.parseInt(detailInput[i]);
             }
             displayMessage(ANSI_GREEN + "Start!" + ANSI_RESET);
-            game.first(direction, indexes);
-            displayGridView(game.getGrid());
+            play(engine, new Move.First(direction, indexes));
+            displayGridView(engine.getGame().getGrid());
         } else {
             validInput = false;
         }
@@ -336,21 +518,21 @@ public class App {
     /**
      * Plays one tile on the game grid.
      *
-     * @param input the user's input for playing one tile.
-     * @param game  the Qwirkle game.
+     * @param input  the user's input for playing one tile.
+     * @param engine the engine of the Qwirkle game.
      * @return true if the input is valid and the tile is successfully added, false otherwise.
      */
-    private static boolean playOneTile(String input, Game game) {
+    private static boolean playOneTile(String input, GameEngine engine) {
         boolean validInput = true;
-        String regex = "(?i)^o( ([0-9]|[1-8][0-9])){2} [0-5]$"; // o <row> <col> <i>; (case-insensitive);
+        String regex = "(?i)^o( -?[0-9]{1,3}){2} [0-5]$"; // o <row> <col> <i>; (case-insensitive);
 
         if (input.matches(regex)) {
             String[] detailInput = input.split(" ");
             int row = Integer.parseInt(detailInput[1]);
             int col = Integer.parseInt(detailInput[2]);
             int tileIndex = Integer.parseInt(detailInput[3]);
-            game.play(row, col, tileIndex);
-            displayGridView(game.getGrid());
+            play(engine, new Move.Single(row, col, tileIndex));
+            displayGridView(engine.getGame().getGrid());
         } else {
             validInput = false;
         }
@@ -360,13 +542,13 @@ public class App {
     /**
      * Plays a line of tiles on the game grid.
      *
-     * @param input the user's input for playing a line of tiles.
-     * @param game  the Qwirkle game.
+     * @param input  the user's input for playing a line of tiles.
+     * @param engine the engine of the Qwirkle game.
      * @return true if the input is valid and the tiles are successfully added, false otherwise.
      */
-    private static boolean playLine(String input, Game game) {
+    private static boolean playLine(String input, GameEngine engine) {
         boolean validInput = true;
-        String regex = "(?i)^l( ([0-9]|[1-8][0-9])){2} [drul]( [0-5]){1,6}$"; // l <row> <col> <direction> <i1> [<i2>];
+        String regex = "(?i)^l( -?[0-9]{1,3}){2} [drul]( [0-5]){1,6}$"; // l <row> <col> <direction> <i1> [<i2>];
         // (case-insensitive);
 
         if (input.matches(regex)) {
@@ -378,8 +560,8 @@ public class App {
             for (int i = 4; i < detailInput.length; i++) {
                 indexes[i - 4] = Integer.parseInt(detailInput[i]);
             }
-            game.play(row, col, direction, indexes);
-            displayGridView(game.getGrid());
+            play(engine, new Move.Line(row, col, direction, indexes));
+            displayGridView(engine.getGame().getGrid());
         } else {
             validInput = false;
         }
@@ -389,13 +571,13 @@ public class App {
     /**
      * Plays tiles at specified positions on the game grid.
      *
-     * @param input the user's input for playing tiles at positions.
-     * @param game  the Qwirkle game.
+     * @param input  the user's input for playing tiles at positions.
+     * @param engine the engine of the Qwirkle game.
      * @return true if the input is valid and the tiles are successfully played, false otherwise.
      */
-    private static boolean playTileAtPosition(String input, Game game) {
+    private static boolean playTileAtPosition(String input, GameEngine engine) {
         boolean validInput = true;
-        String regex = "(?i)^m(( ([0-9]|[1-8][0-9])){2} [0-5]){1,6}$"; // m <row1> <col1> <i1> [<row2> <col2> <i2> ...];
+        String regex = "(?i)^m(( -?[0-9]{1,3}){2} [0-5]){1,6}$"; // m <row1> <col1> <i1> [<row2> <col2> <i2> ...];
         // (case-insensitive);
 
         if (input.matches(regex)) {
@@ -411,8 +593,8 @@ public class App {
                 detailTileAtPosition[indexTab + 2] = tileIndex;
                 indexTab = indexTab + 3;
             }
-            game.play(detailTileAtPosition);
-            displayGridView(game.getGrid());
+            play(engine, new Move.Positions(detailTileAtPosition));
+            displayGridView(engine.getGame().getGrid());
         } else {
             validInput = false;
         }
@@ -437,32 +619,16 @@ public class App {
     }
 
     /**
-     * Determines the winner(s) with the highest score in the game.
+     * Plays a move for the current player, displaying the reason why it is rejected if it is.
      *
-     * @param game The current game instance.
-     * @return A list of the name(s) of the winner(s).
+     * @param engine the engine of the Qwirkle game.
+     * @param move   the move.
      */
-    private static List<String> determineWinners(Game game) {
-        List<Integer> scores = new ArrayList<>();
-
-        for (int score : game.getPlayersScore()) {
-            scores.add(score);
+    private static void play(GameEngine engine, Move move) {
+        MoveResult result = engine.play(move);
+        if (!result.isOk()) {
+            displayError(result.getMessage());
         }
-
-        Collections.sort(scores);
-        int maxScore = scores.get(scores.size() - 1);
-
-        List<String> winners = new ArrayList<>();
-
-        if (maxScore > 0) {
-            for (int i = 0; i < game.getPlayersScore().length; i++) {
-                if (game.getPlayersScore()[i] == maxScore) {
-                    winners.add(game.getPlayersName()[i]);
-                }
-            }
-        }
-
-        return winners;
     }
 
     /**
@@ -0,0 +1,75 @@
+package g60085.qwirkle.bot;
+
+import g60085.qwirkle.model.Game;
+import g60085.qwirkle.model.MoveBuffer;
+import g60085.qwirkle.model.QwirkleException;
+
+/**
+ * Bot chooses the moves of a player without any input.
+ * A bot is not thread-safe: each thread playing games uses its own bots,
+ * and closes them once its games are over so that the threads of their searches are released.
+ */
+public interface Bot extends AutoCloseable {
+
+    /**
+     * Chooses the move of the current player of a game among its legal moves.
+     *
+     * @param game  the game, which the bot may play moves on and undo, but must leave as it was.
+     * @param moves the legal moves of the current player (see {@link Game#generateMoves(MoveBuffer)}).
+     * @return the index of the chosen move in the buffer, or -1 to pass.
+     */
+    int choose(Game game, MoveBuffer moves);
+
+    /**
+     * Gives the name of the bot.
+     *
+     * @return the name used to create the bot with {@link #of(String, long)}.
+     */
+    String getName();
+
+    /**
+     * Releases the threads searching for the bot, if it has any. The bot cannot choose any move anymore.
+     */
+    @Override
+    default void close() {
+    }
+
+    /**
+     * Creates a bot given by its name.
+     * The Monte Carlo bot may be followed by its budget in milliseconds and its number of threads,
+     * as in {@code mcts:200:4}; by default it thinks 200 ms on all the cores.
+     *
+     * @param name the name of the bot: random, greedy or mcts.
+     * @param seed the seed of the random choices of the bot.
+     * @return the bot.
+     * @throws QwirkleException if there is no bot with this name.
+     */
+    static Bot of(String name, long seed) throws QwirkleException {
+        return of(name, seed, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates a bot given by its name, as {@link #of(String, long)}, the Monte Carlo bot thinking by default
+     * on a number of threads, so that the bots of many games played at once share the cores.
+     *
+     * @param name    the name of the bot: random, greedy or mcts.
+     * @param seed    the seed of the random choices of the bot.
+     * @param threads the number of threads of the Monte Carlo bot when its name gives none.
+     * @return the bot.
+     * @throws QwirkleException if there is no bot with this name.
+     */
+    static Bot of(String name, long seed, int threads) throws QwirkleException {
+        String[] parts = name.toLowerCase().split(":");
+        try {
+            return switch (parts[0]) {
+                case "random" -> new RandomBot(seed);
+                case "greedy" -> new GreedyBot();
+                case "mcts" -> new MctsBot(seed, parts.length > 1 ? Long.parseLong(parts[1]) : 200,
+                        parts.length > 2 ? Integer.parseInt(parts[2]) : threads);
+                default -> throw new QwirkleException("Unknown bot: " + name);
+            };
+        } catch (NumberFormatException e) {
+            throw new QwirkleException("Invalid options of bot: " + name);
+        }
+    }
+}
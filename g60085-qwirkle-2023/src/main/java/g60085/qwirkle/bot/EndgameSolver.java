@@ -0,0 +1,508 @@
+package g60085.qwirkle.bot;
+
+import g60085.qwirkle.model.Game;
+import g60085.qwirkle.model.MoveBuffer;
+import g60085.qwirkle.model.QwirkleException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * EndgameSolver searches the last turns of a game once the bag is empty, when no tile is drawn anymore.
+ * A player who has counted the tiles then knows the hand of their opponent, so the end of a game between two players
+ * is a game of perfect information, searched exactly by alpha-beta.
+ * With more players the hands of the opponents are taken as they are in the game, and the search is paranoid:
+ * the player to move maximizes their lead over the best of the others, and all the others minimize it.
+ * The value of a finished game counts the 6 points of the player who has played all their tiles (see {@link Game#isOver()}).
+ * <p>
+ * The search deepens one turn at a time until it reaches the end of every line or the budget is spent,
+ * and remembers the positions in a {@link TranspositionTable} keyed by {@link Game#hash()}, so that each iteration
+ * tries first the best move found by the previous one, then the moves with the highest score.
+ * The moves of the root are split between the threads, each playing on its own copy of the game:
+ * the first move is searched alone to set the bound of the others, which the threads then share through a single
+ * atomic integer, along with the transposition table.
+ */
+public final class EndgameSolver implements AutoCloseable {
+    private static final int MAX_DEPTH = 64;
+    private static final int TABLE_BITS = 20;
+    private static final int INFINITY = Short.MAX_VALUE;
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+    private final int threads;
+    private final TranspositionTable table;
+    private ForkJoinPool pool;
+
+    /**
+     * Solution is the result of a search: the move to play, its value, and whether the value is exact.
+     *
+     * @param move  the index of the best move in the buffer of the legal moves, or -1 to pass.
+     * @param value the lead of the player to move over the best of the others at the end of the game,
+     *              or at the depth reached if the search is not exact.
+     * @param exact true if the search has reached the end of every line, false if it was stopped by the budget.
+     * @param depth the number of turns searched.
+     * @param nodes the number of positions searched by all the threads.
+     */
+    public record Solution(int move, int value, boolean exact, int depth, long nodes) {
+    }
+
+    /**
+     * Initializes a solver with an empty transposition table.
+     *
+     * @param threads the number of threads searching at once.
+     * @throws QwirkleException if the number of threads is not positive.
+     */
+    public EndgameSolver(int threads) throws QwirkleException {
+        if (threads <= 0) {
+            throw new QwirkleException("The number of threads must be positive!");
+        }
+        this.threads = threads;
+        this.table = new TranspositionTable(TABLE_BITS);
+    }
+
+    /**
+     * Searches the best move of the current player of a game whose bag is empty.
+     * The game is left as it was.
+     *
+     * @param game         the game.
+     * @param moves        the legal moves of the current player (see {@link Game#generateMoves(MoveBuffer)}).
+     * @param budgetMillis the time the search may take, in milliseconds.
+     * @return the best move found, with its value.
+     * @throws QwirkleException if the bag of the game is not empty.
+     */
+    public Solution solve(Game game, MoveBuffer moves, long budgetMillis) throws QwirkleException {
+        if (game.getBagSize() != 0) {
+            throw new QwirkleException("The endgame can only be solved once the bag is empty!");
+        }
+        long deadline = System.nanoTime() + budgetMillis * 1_000_000;
+        int root = game.getCurrentPlayerIndex();
+        Searcher[] searchers = new Searcher[this.threads];
+        for (int t = 0; t < searchers.length; t++) {
+            searchers[t] = new Searcher(t == 0 ? game : game.copy(), root, deadline);
+        }
+        if (moves.size() == 0) {
+            return new Solution(-1, searchers[0].evaluate(), false, 0, 0);
+        }
+
+        // The moves of the root, best first;
+        int[] order = new int[moves.size()];
+        int[] values = new int[moves.size()];
+        for (int m = 0; m < moves.size(); m++) {
+            order[m] = m;
+            values[m] = moves.score(m) * 8 + moves.count(m);
+        }
+        sort(order, values, order.length);
+
+        int best = order[0];
+        int bestValue = 0;
+        int depth = 0;
+        boolean exact = false;
+        boolean stopped = false;
+        while (!exact && !stopped && depth < MAX_DEPTH) {
+            boolean[] bounded = new boolean[order.length];
+            int[] iteration = new int[order.length];
+            for (Searcher searcher : searchers) {
+                searcher.horizon = 0;
+            }
+            // The first move alone, with the full window;
+            iteration[0] = searchers[0].searchRoot(moves, order[0], depth + 1, -INFINITY, INFINITY);
+            AtomicInteger alpha = new AtomicInteger(iteration[0]);
+            AtomicInteger next = new AtomicInteger(1);
+            split(searchers, moves, order, depth + 1, alpha, next, iteration, bounded);
+
+            int horizon = 0;
+            for (Searcher searcher : searchers) {
+                stopped = stopped || searcher.stopped;
+                horizon += searcher.horizon;
+            }
+            if (!stopped) {
+                depth++;
+                // The best of the moves whose value is exact, the first one in case of a tie;
+                int first = 0;
+                for (int i = 1; i < order.length; i++) {
+                    if (!bounded[i] && iteration[i] > iteration[first]) {
+                        first = i;
+                    }
+                }
+                best = order[first];
+                bestValue = iteration[first];
+                exact = horizon == 0;
+                // The next iteration tries the best move first, then the others by value;
+                for (int i = 0; i < order.length; i++) {
+                    values[i] = i == first ? INFINITY : iteration[i];
+                }
+                sort(order, values, order.length);
+            }
+        }
+        long nodes = 0;
+        for (Searcher searcher : searchers) {
+            nodes += searcher.nodes;
+        }
+        return new Solution(best, bestValue, exact, depth, nodes);
+    }
+
+    /**
+     * Searches the moves of the root after the first one, on all the threads.
+     *
+     * @param searchers the searchers, one per thread.
+     * @param moves     the legal moves of the root.
+     * @param order     the indexes of the moves, in the order of the search.
+     * @param depth     the number of turns to search.
+     * @param alpha     the best value found so far, shared by the threads.
+     * @param next      the position in the order of the next move to search, shared by the threads.
+     * @param values    the array receiving the values of the moves, by position in the order.
+     * @param bounded   the array receiving, by position in the order, true if the value is only an upper bound.
+     * @throws QwirkleException if a thread fails.
+     */
+    private void split(Searcher[] searchers, MoveBuffer moves, int[] order, int depth,
+                       AtomicInteger alpha, AtomicInteger next, int[] values, boolean[] bounded) throws QwirkleException {
+        if (searchers.length == 1) {
+            searchers[0].searchMoves(moves, order, depth, alpha, next, values, bounded);
+            return;
+        }
+        if (this.pool == null) {
+            this.pool = new ForkJoinPool(this.threads - 1);
+        }
+        List<Future<?>> workers = new ArrayList<>();
+        for (int t = 1; t < searchers.length; t++) {
+            Searcher searcher = searchers[t];
+            workers.add(this.pool.submit(() -> searcher.searchMoves(moves, order, depth, alpha, next, values, bounded)));
+        }
+        searchers[0].searchMoves(moves, order, depth, alpha, next, values, bounded);
+        try {
+            for (Future<?> worker : workers) {
+                worker.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new QwirkleException("The search was interrupted!");
+        } catch (ExecutionException e) {
+            throw new QwirkleException("The search failed: " + e.getCause());
+        }
+    }
+
+    /**
+     * Shuts down the threads of the search. The solver cannot search anymore.
+     */
+    @Override
+    public void close() {
+        if (this.pool != null) {
+            this.pool.shutdown();
+            this.pool = null;
+        }
+    }
+
+    /**
+     * Sorts indexes by decreasing priority, keeping the order of the indexes with the same priority.
+     * The lists are short, so an insertion sort is enough and allocates nothing.
+     *
+     * @param indexes    the indexes, sorted in place.
+     * @param priorities the priorities, by position of the index, sorted along.
+     * @param length     the number of indexes.
+     */
+    private static void sort(int[] indexes, int[] priorities, int length) {
+        for (int i = 1; i < length; i++) {
+            int index = indexes[i];
+            int priority = priorities[i];
+            int j = i - 1;
+            while (j >= 0 && priorities[j] < priority) {
+                indexes[j + 1] = indexes[j];
+                priorities[j + 1] = priorities[j];
+                j--;
+            }
+            indexes[j + 1] = index;
+            priorities[j + 1] = priority;
+        }
+    }
+
+    /**
+     * Searcher is the search of a thread, on its own copy of the game, with its own buffers and counters.
+     */
+    private final class Searcher {
+        private final Game game;
+        private final int root;
+        private final long salt;
+        private final long deadline;
+        private final MoveBuffer[] buffers;
+        private final int[][] orders;
+        private final int[][] priorities;
+        private long nodes;
+        private int horizon;
+        private boolean stopped;
+
+        /**
+         * Initializes the search of a thread.
+         *
+         * @param game     the copy of the game of the thread.
+         * @param root     the index of the player to move at the root.
+         * @param deadline the time at which the search stops, as given by {@link System#nanoTime()}.
+         */
+        private Searcher(Game game, int root, long deadline) {
+            this.game = game;
+            this.root = root;
+            // The values depend on the player of the root, who is part of the key of the positions;
+            this.salt = (root + 1) * GOLDEN_GAMMA;
+            this.deadline = deadline;
+            this.buffers = new MoveBuffer[MAX_DEPTH + 1];
+            this.orders = new int[MAX_DEPTH + 1][];
+            this.priorities = new int[MAX_DEPTH + 1][];
+        }
+
+        /**
+         * Searches the moves of the root taken one after the other from the shared position, until there is none left.
+         *
+         * @param moves   the legal moves of the root.
+         * @param order   the indexes of the moves, in the order of the search.
+         * @param depth   the number of turns to search.
+         * @param alpha   the best value found so far, shared by the threads.
+         * @param next    the position in the order of the next move to search, shared by the threads.
+         * @param values  the array receiving the values of the moves, by position in the order.
+         * @param bounded the array receiving, by position in the order, true if the value is only an upper bound.
+         */
+        private void searchMoves(MoveBuffer moves, int[] order, int depth,
+                                 AtomicInteger alpha, AtomicInteger next, int[] values, boolean[] bounded) {
+            int i = next.getAndIncrement();
+            while (i < order.length && !this.stopped) {
+                int bound = alpha.get();
+                // A null window first, to prove cheaply that the move is not better than the best one;
+                values[i] = searchRoot(moves, order[i], depth, bound, bound + 1);
+                bounded[i] = values[i] <= bound;
+                if (!bounded[i]) {
+                    values[i] = searchRoot(moves, order[i], depth, values[i], INFINITY);
+                }
+                alpha.accumulateAndGet(values[i], Math::max);
+                i = next.getAndIncrement();
+            }
+        }
+
+        /**
+         * Searches a move of the root.
+         *
+         * @param moves the legal moves of the root.
+         * @param move  the index of the move.
+         * @param depth the number of turns to search, the move included.
+         * @param alpha the value the move has to beat.
+         * @param beta  the value above which the exact value of the move does not matter.
+         * @return the value of the move if it lies between alpha and beta, or a bound beyond alpha or beta otherwise.
+         */
+        private int searchRoot(MoveBuffer moves, int move, int depth, int alpha, int beta) {
+            int token = this.game.apply(moves, move);
+            int value = search(1, depth - 1, alpha, beta);
+            this.game.undo(token);
+            return value;
+        }
+
+        /**
+         * Searches a position by alpha-beta, the player of the root maximizing the value and the others minimizing it.
+         *
+         * @param ply   the number of turns played since the root.
+         * @param depth the number of turns left to search.
+         * @param alpha the value the player of the root is sure to get.
+         * @param beta  the value the other players are sure to hold the player of the root to.
+         * @return the value of the position if it lies between alpha and beta,
+         * or a bound beyond alpha or beta otherwise.
+         */
+        private int search(int ply, int depth, int alpha, int beta) {
+            this.nodes++;
+            if ((this.nodes & 255) == 0 && System.nanoTime() > this.deadline) {
+                this.stopped = true;
+            }
+            if (this.stopped) {
+                return 0; // The value is thrown away;
+            }
+            if (this.game.isFinished()) {
+                return evaluate();
+            }
+            if (depth == 0 || ply == MAX_DEPTH) {
+                this.horizon++;
+                return evaluate();
+            }
+            long key = this.game.hash() ^ this.salt;
+            long entry = EndgameSolver.this.table.probe(key);
+            int tableMove = 0;
+            if (entry != 0) {
+                tableMove = TranspositionTable.moveKey(entry);
+                int value = TranspositionTable.value(entry);
+                int bound = TranspositionTable.bound(entry);
+                if (TranspositionTable.depth(entry) >= depth && (bound == TranspositionTable.EXACT
+                        || bound == TranspositionTable.LOWER && value >= beta
+                        || bound == TranspositionTable.UPPER && value <= alpha)) {
+                    if (TranspositionTable.depth(entry) != TranspositionTable.SOLVED) {
+                        this.horizon++;
+                    }
+                    return value;
+                }
+            }
+
+            int horizonBefore = this.horizon;
+            int alphaBefore = alpha;
+            int betaBefore = beta;
+            boolean maximizing = this.game.getCurrentPlayerIndex() == this.root;
+            MoveBuffer moves = buffer(ply);
+            this.game.generateMoves(moves);
+            int best;
+            int bestMove = -1;
+            if (moves.size() == 0) { // The only move is to pass;
+                int token = this.game.applyPass();
+                best = search(ply + 1, depth - 1, alpha, beta);
+                this.game.undo(token);
+            } else if (depth == 1) {
+                bestMove = frontier(moves);
+                best = evaluate(this.game.getCurrentPlayerIndex(), gain(moves, bestMove));
+            } else {
+                int[] order = order(ply, moves, tableMove);
+                best = maximizing ? -INFINITY : INFINITY;
+                int i = 0;
+                while (i < moves.size() && alpha < beta && !this.stopped) {
+                    int token = this.game.apply(moves, order[i]);
+                    int value;
+                    if (i == 0) {
+                        value = search(ply + 1, depth - 1, alpha, beta);
+                    } else if (maximizing) {
+                        // A null window first, to prove cheaply that the move is not better than the first ones;
+                        value = search(ply + 1, depth - 1, alpha, alpha + 1);
+                        if (value > alpha && value < beta) {
+                            value = search(ply + 1, depth - 1, value, beta);
+                        }
+                    } else {
+                        value = search(ply + 1, depth - 1, beta - 1, beta);
+                        if (value < beta && value > alpha) {
+                            value = search(ply + 1, depth - 1, alpha, value);
+                        }
+                    }
+                    this.game.undo(token);
+                    if (maximizing ? value > best : value < best) {
+                        best = value;
+                        bestMove = order[i];
+                    }
+                    if (maximizing) {
+                        alpha = Math.max(alpha, value);
+                    } else {
+                        beta = Math.min(beta, value);
+                    }
+                    i++;
+                }
+            }
+            if (!this.stopped) {
+                int bound = best <= alphaBefore ? TranspositionTable.UPPER
+                        : best >= betaBefore ? TranspositionTable.LOWER : TranspositionTable.EXACT;
+                EndgameSolver.this.table.store(key, best, bound,
+                        this.horizon == horizonBefore ? TranspositionTable.SOLVED : depth,
+                        bestMove == -1 ? 0 : (int) this.game.moveKey(moves, bestMove));
+            }
+            return best;
+        }
+
+        /**
+         * Chooses the best move of a position one turn before the horizon, whose value is known without playing it:
+         * the points of the move, and the 6 points of the end of the game if it plays the whole hand.
+         * A move that does not end the game reaches the horizon.
+         *
+         * Whoever moves, the value is best for them when they score the most.
+         *
+         * @param moves the legal moves of the position.
+         * @return the index of the best move.
+         */
+        private int frontier(MoveBuffer moves) {
+            int handSize = this.game.getPlayers()[this.game.getCurrentPlayerIndex()].handSize();
+            int best = 0;
+            boolean horizon = false;
+            for (int m = 0; m < moves.size(); m++) {
+                horizon = horizon || moves.count(m) < handSize;
+                if (gain(moves, m) > gain(moves, best)) {
+                    best = m;
+                }
+            }
+            if (horizon) {
+                this.horizon++;
+            }
+            return best;
+        }
+
+        /**
+         * Gives the points a move brings to the player to move, the 6 points of the end of the game included.
+         *
+         * @param moves the legal moves of the position.
+         * @param move  the index of the move.
+         * @return the points of the move.
+         */
+        private int gain(MoveBuffer moves, int move) {
+            int handSize = this.game.getPlayers()[this.game.getCurrentPlayerIndex()].handSize();
+            return moves.score(move) + (moves.count(move) == handSize ? 6 : 0);
+        }
+
+        /**
+         * Gives the value of the position for the player of the root:
+         * their lead over the best of the others, with the points of the end of the game.
+         *
+         * @return the value of the position.
+         */
+        private int evaluate() {
+            return evaluate(this.root, 0);
+        }
+
+        /**
+         * Gives the value for the player of the root of the position where a player would have more points.
+         *
+         * @param player the index of the player.
+         * @param points the points the player would have in addition to their final score.
+         * @return the value of the position.
+         */
+        private int evaluate(int player, int points) {
+            int rootScore = 0;
+            int bestOther = Integer.MIN_VALUE;
+            for (int i = 0; i < this.game.getPlayers().length; i++) {
+                int score = this.game.getFinalScore(i) + (i == player ? points : 0);
+                if (i == this.root) {
+                    rootScore = score;
+                } else {
+                    bestOther = Math.max(bestOther, score);
+                }
+            }
+            return rootScore - bestOther;
+        }
+
+        /**
+         * Gives the buffer of the moves of a ply, created the first time it is needed.
+         *
+         * @param ply the number of turns played since the root.
+         * @return the buffer of the ply.
+         */
+        private MoveBuffer buffer(int ply) {
+            if (this.buffers[ply] == null) {
+                this.buffers[ply] = new MoveBuffer();
+            }
+            return this.buffers[ply];
+        }
+
+        /**
+         * Orders the moves of a ply: the best move remembered by the transposition table first,
+         * then the moves with the highest score, then those playing the most tiles.
+         *
+         * @param ply       the number of turns played since the root.
+         * @param moves     the legal moves of the ply.
+         * @param tableMove the low bits of the key of the best move remembered, or 0 if there is none.
+         * @return the indexes of the moves, in the order to search them.
+         */
+        private int[] order(int ply, MoveBuffer moves, int tableMove) {
+            if (this.orders[ply] == null || this.orders[ply].length < moves.size()) {
+                this.orders[ply] = new int[Math.max(64, moves.size())];
+                this.priorities[ply] = new int[this.orders[ply].length];
+            }
+            int[] order = this.orders[ply];
+            int[] priority = this.priorities[ply];
+            for (int m = 0; m < moves.size(); m++) {
+                order[m] = m;
+                priority[m] = moves.score(m) * 8 + moves.count(m);
+                if (tableMove != 0 && (int) this.game.moveKey(moves, m) == tableMove) {
+                    priority[m] = Integer.MAX_VALUE;
+                }
+            }
+            sort(order, priority, moves.size());
+            return order;
+        }
+    }
+}
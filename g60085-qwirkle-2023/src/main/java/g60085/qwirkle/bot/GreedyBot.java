@@ -0,0 +1,41 @@
+package g60085.qwirkle.bot;
+
+import g60085.qwirkle.model.Game;
+import g60085.qwirkle.model.MoveBuffer;
+
+/**
+ * GreedyBot plays the legal move with the highest score, and passes only when it has none.
+ * Among the moves with the same score, it plays the one using the most tiles, so that it draws more new tiles.
+ * Its choice is a single pass over the moves generated for its hand, so it costs little more than the generation.
+ */
+public final class GreedyBot implements Bot {
+
+    /**
+     * Chooses the legal move with the highest score.
+     *
+     * @param game  the game.
+     * @param moves the legal moves of the current player.
+     * @return the index of the chosen move, or -1 if there is none.
+     */
+    @Override
+    public int choose(Game game, MoveBuffer moves) {
+        int best = -1;
+        for (int m = 0; m < moves.size(); m++) {
+            if (best == -1 || moves.score(m) > moves.score(best)
+                    || moves.score(m) == moves.score(best) && moves.count(m) > moves.count(best)) {
+                best = m;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Gives the name of the bot.
+     *
+     * @return greedy.
+     */
+    @Override
+    public String getName() {
+        return "greedy";
+    }
+}
@@ -0,0 +1,374 @@
+package g60085.qwirkle.bot;
+
+import g60085.qwirkle.model.Game;
+import g60085.qwirkle.model.MoveBuffer;
+import g60085.qwirkle.model.Player;
+import g60085.qwirkle.model.QwirkleException;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * MctsBot chooses its moves with a Monte Carlo tree search bounded by a wall-clock budget.
+ * The hands of the other players and the order of the bag are hidden, so each iteration of the search
+ * first deals them again from the tiles the bot cannot see (see {@link Game#redeal(long)}),
+ * then walks down a single tree shared by all the deals (single-observer information set search):
+ * the children of a node are the moves legal in at least one deal, keyed by {@link Game#moveKey(MoveBuffer, int)},
+ * and a child is only chosen, by UCB1, when it is legal in the current deal.
+ * A playout then plays a few turns greedily and rates the position for each player by their lead in score.
+ * The moves are played on a private copy of the game and taken back with {@link Game#undo(int)}.
+ * <p>
+ * The search is root-parallel: each thread grows its own tree on its own copy of the game, so the threads
+ * share no node and take no lock, and the visits of the moves of the roots are summed when the budget is spent.
+ * <p>
+ * Once the bag is empty in a game between two players, nothing is hidden anymore to a player who has counted the tiles,
+ * so the bot leaves the sampling to the {@link EndgameSolver}, with the same budget and threads.
+ */
+public final class MctsBot implements Bot {
+    private static final double EXPLORATION = 0.7;
+    private static final double SCORE_SCALE = 10;
+    private static final int PLAYOUT_ROUNDS = 2;
+    private static final long PASS = 0;
+
+    private final long budgetNanos;
+    private final int threads;
+    private final SplittableRandom random;
+    private ForkJoinPool pool;
+    private EndgameSolver solver;
+    private long playouts;
+    private long searchNanos;
+    private long lastPlayouts;
+    private long lastSearchNanos;
+
+    /**
+     * Initializes the bot.
+     *
+     * @param seed         the seed of its random choices.
+     * @param budgetMillis the time it may think about each move, in milliseconds.
+     * @param threads      the number of threads searching at once.
+     * @throws QwirkleException if the budget or the number of threads is not positive.
+     */
+    public MctsBot(long seed, long budgetMillis, int threads) throws QwirkleException {
+        if (budgetMillis <= 0 || threads <= 0) {
+            throw new QwirkleException("The budget and the number of threads must be positive!");
+        }
+        this.budgetNanos = budgetMillis * 1_000_000;
+        this.threads = threads;
+        this.random = new SplittableRandom(seed);
+    }
+
+    /**
+     * Chooses the move visited the most by the search, or the best move of the endgame solver.
+     *
+     * @param game  the game.
+     * @param moves the legal moves of the current player.
+     * @return the index of the chosen move, or -1 if there is none.
+     */
+    @Override
+    public int choose(Game game, MoveBuffer moves) {
+        if (moves.size() <= 1) {
+            return moves.size() - 1; // Nothing to think about;
+        }
+        if (game.getBagSize() == 0 && game.getPlayers().length == 2) {
+            if (this.solver == null) {
+                this.solver = new EndgameSolver(this.threads);
+            }
+            return this.solver.solve(game, moves, this.budgetNanos / 1_000_000).move();
+        }
+        long deadline = System.nanoTime() + this.budgetNanos;
+        AtomicLong iterations = new AtomicLong();
+        long start = System.nanoTime();
+        List<Map<Long, Node>> roots = new ArrayList<>();
+        if (this.threads == 1) {
+            roots.add(search(game.copy(), this.random.nextLong(), deadline, iterations));
+        } else {
+            if (this.pool == null) {
+                this.pool = new ForkJoinPool(this.threads);
+            }
+            List<Future<Map<Long, Node>>> workers = new ArrayList<>();
+            for (int t = 0; t < this.threads; t++) {
+                long seed = this.random.nextLong();
+                workers.add(this.pool.submit(() -> search(game.copy(), seed, deadline, iterations)));
+            }
+            try {
+                for (Future<Map<Long, Node>> worker : workers) {
+                    roots.add(worker.get());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new QwirkleException("The search was interrupted!");
+            } catch (ExecutionException e) {
+                throw new QwirkleException("The search failed: " + e.getCause());
+            }
+        }
+        this.lastPlayouts = iterations.get();
+        this.lastSearchNanos = System.nanoTime() - start;
+        this.playouts += this.lastPlayouts;
+        this.searchNanos += this.lastSearchNanos;
+
+        // The move visited the most by all the threads, then the best rated;
+        int best = 0;
+        long bestVisits = -1;
+        double bestReward = -1;
+        for (int m = 0; m < moves.size(); m++) {
+            long key = game.moveKey(moves, m);
+            long visits = 0;
+            double reward = 0;
+            for (Map<Long, Node> root : roots) {
+                Node child = root.get(key);
+                if (child != null) {
+                    visits += child.visits;
+                    reward += child.reward;
+                }
+            }
+            if (visits > bestVisits || visits == bestVisits && reward > bestReward) {
+                best = m;
+                bestVisits = visits;
+                bestReward = reward;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Runs iterations of the search on a copy of the game until the deadline.
+     *
+     * @param copy       the private copy of the game.
+     * @param seed       the seed of the deals of the thread.
+     * @param deadline   the time at which the search stops, as given by {@link System#nanoTime()}.
+     * @param iterations the counter of the iterations of all the threads.
+     * @return the children of the root of the tree of the thread, by key of move.
+     */
+    private static Map<Long, Node> search(Game copy, long seed, long deadline, AtomicLong iterations) {
+        SplittableRandom random = new SplittableRandom(seed);
+        Node root = new Node(PASS, -1);
+        MoveBuffer moves = new MoveBuffer();
+        int[] scores = new int[copy.getPlayers().length];
+        double[] rewards = new double[scores.length];
+        List<Node> path = new ArrayList<>();
+        do {
+            copy.redeal(random.nextLong());
+            int token = copy.mark();
+            path.clear();
+            Node node = root;
+            boolean expanded = false;
+            while (!expanded && !copy.isFinished()) {
+                node = select(copy, node, moves, random);
+                expanded = node.visits == 0;
+                path.add(node);
+            }
+            playout(copy, moves);
+            rate(copy, scores, rewards);
+            for (Node visited : path) {
+                visited.visits++;
+                visited.reward += rewards[visited.player];
+            }
+            copy.undo(token);
+            iterations.incrementAndGet();
+        } while (System.nanoTime() < deadline);
+        return root.children == null ? Map.of() : root.children;
+    }
+
+    /**
+     * Chooses the child of a node to visit among the moves legal in the current deal, and plays it.
+     * A move never tried before is expanded first, the one with the best score, so that a short search
+     * still considers the strong moves; otherwise the child with the best UCB1 value.
+     *
+     * @param copy   the copy of the game, in the position of the node.
+     * @param node   the node.
+     * @param moves  the buffer receiving the legal moves.
+     * @param random the random generator of the thread.
+     * @return the child visited, whose move has been played.
+     */
+    private static Node select(Game copy, Node node, MoveBuffer moves, SplittableRandom random) {
+        if (node.children == null) {
+            node.children = new HashMap<>();
+        }
+        int player = copy.getCurrentPlayerIndex();
+        copy.generateMoves(moves);
+        if (moves.size() == 0) { // The only move is to pass;
+            Node child = node.children.computeIfAbsent(PASS, key -> new Node(key, player));
+            child.available++;
+            copy.applyPass();
+            return child;
+        }
+        int untried = -1;
+        int untriedCount = 0;
+        Node best = null;
+        int bestMove = -1;
+        double bestValue = Double.NEGATIVE_INFINITY;
+        for (int m = 0; m < moves.size(); m++) {
+            Node child = node.children.get(copy.moveKey(moves, m));
+            if (child == null) {
+                // The untried move with the best score, ties broken at random;
+                if (untried == -1 || moves.score(m) > moves.score(untried)) {
+                    untried = m;
+                    untriedCount = 1;
+                } else if (moves.score(m) == moves.score(untried)) {
+                    untriedCount++;
+                    if (random.nextInt(untriedCount) == 0) {
+                        untried = m;
+                    }
+                }
+            } else {
+                child.available++;
+                double value = child.reward / child.visits
+                        + EXPLORATION * Math.sqrt(Math.log(child.available) / child.visits);
+                if (value > bestValue) {
+                    best = child;
+                    bestMove = m;
+                    bestValue = value;
+                }
+            }
+        }
+        if (untried != -1) {
+            best = new Node(copy.moveKey(moves, untried), player);
+            best.available++;
+            node.children.put(best.key, best);
+            bestMove = untried;
+        }
+        copy.apply(moves, bestMove);
+        return best;
+    }
+
+    /**
+     * Plays a few turns greedily from the position reached by the tree, unless the game is over.
+     *
+     * @param copy  the copy of the game.
+     * @param moves the buffer receiving the legal moves.
+     */
+    private static void playout(Game copy, MoveBuffer moves) {
+        int turns = PLAYOUT_ROUNDS * copy.getPlayers().length;
+        while (turns > 0 && !copy.isFinished()) {
+            copy.generateMoves(moves);
+            int best = -1;
+            for (int m = 0; m < moves.size(); m++) {
+                if (best == -1 || moves.score(m) > moves.score(best)) {
+                    best = m;
+                }
+            }
+            if (best == -1) {
+                copy.applyPass();
+            } else {
+                copy.apply(moves, best);
+            }
+            turns--;
+        }
+    }
+
+    /**
+     * Rates the position reached by a playout for each player, between 0 and 1,
+     * by their lead over the best of the other players, the going-out bonus included.
+     *
+     * @param copy    the copy of the game.
+     * @param scores  the array receiving the scores of the players.
+     * @param rewards the array receiving the rating of the position for each player.
+     */
+    private static void rate(Game copy, int[] scores, double[] rewards) {
+        Player[] players = copy.getPlayers();
+        for (int i = 0; i < players.length; i++) {
+            scores[i] = copy.getFinalScore(i);
+        }
+        for (int i = 0; i < players.length; i++) {
+            int bestOther = Integer.MIN_VALUE;
+            for (int j = 0; j < players.length; j++) {
+                if (j != i) {
+                    bestOther = Math.max(bestOther, scores[j]);
+                }
+            }
+            rewards[i] = 1 / (1 + Math.exp((bestOther - scores[i]) / SCORE_SCALE));
+        }
+    }
+
+    /**
+     * Gives the number of playouts of the last search.
+     *
+     * @return the number of playouts.
+     */
+    public long getLastPlayouts() {
+        return this.lastPlayouts;
+    }
+
+    /**
+     * Gives the number of playouts per second of all the searches of the bot.
+     *
+     * @return the speed of the search.
+     */
+    public double getPlayoutsPerSecond() {
+        return this.searchNanos == 0 ? 0 : this.playouts * 1e9 / this.searchNanos;
+    }
+
+    /**
+     * Gives the number of playouts of all the searches of the bot.
+     *
+     * @return the number of playouts.
+     */
+    public long getPlayouts() {
+        return this.playouts;
+    }
+
+    /**
+     * Gives the time spent searching by the bot.
+     *
+     * @return the time in nanoseconds.
+     */
+    public long getSearchNanos() {
+        return this.searchNanos;
+    }
+
+    /**
+     * Gives the name of the bot.
+     *
+     * @return mcts.
+     */
+    @Override
+    public String getName() {
+        return "mcts";
+    }
+
+    /**
+     * Shuts down the threads of the search and of the endgame solver.
+     */
+    @Override
+    public void close() {
+        if (this.pool != null) {
+            this.pool.shutdown();
+            this.pool = null;
+        }
+        if (this.solver != null) {
+            this.solver.close();
+            this.solver = null;
+        }
+    }
+
+    /**
+     * Node is a node of the tree of a thread, reached by a move of a player.
+     * Its statistics are only read and written by the thread owning the tree.
+     */
+    private static final class Node {
+        private final long key;
+        private final int player;
+        private int visits;
+        private int available;
+        private double reward;
+        private Map<Long, Node> children;
+
+        /**
+         * Initializes a node never visited.
+         *
+         * @param key    the key of the move leading to the node.
+         * @param player the index of the player who plays the move.
+         */
+        private Node(long key, int player) {
+            this.key = key;
+            this.player = player;
+        }
+    }
+}
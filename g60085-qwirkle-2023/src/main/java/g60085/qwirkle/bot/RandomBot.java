@@ -0,0 +1,48 @@
+package g60085.qwirkle.bot;
+
+import g60085.qwirkle.model.Game;
+import g60085.qwirkle.model.MoveBuffer;
+
+import java.util.SplittableRandom;
+
+/**
+ * RandomBot plays one of its legal moves chosen at random, and passes only when it has none.
+ * It is the baseline the other bots are measured against.
+ */
+public final class RandomBot implements Bot {
+    private final SplittableRandom random;
+
+    /**
+     * Initializes the bot.
+     *
+     * @param seed the seed of its random choices.
+     */
+    public RandomBot(long seed) {
+        this.random = new SplittableRandom(seed);
+    }
+
+    /**
+     * Chooses one of the legal moves at random.
+     *
+     * @param game  the game.
+     * @param moves the legal moves of the current player.
+     * @return the index of the chosen move, or -1 if there is none.
+     */
+    @Override
+    public int choose(Game game, MoveBuffer moves) {
+        if (moves.size() == 0) {
+            return -1;
+        }
+        return this.random.nextInt(moves.size());
+    }
+
+    /**
+     * Gives the name of the bot.
+     *
+     * @return random.
+     */
+    @Override
+    public String getName() {
+        return "random";
+    }
+}
@@ -0,0 +1,102 @@
+package g60085.qwirkle.bot;
+
+/**
+ * TranspositionTable remembers the results of the positions searched by the {@link EndgameSolver},
+ * keyed by the Zobrist hash of the game (see {@link g60085.qwirkle.model.Game#hash()}).
+ * Each entry is packed in a single long: the value, its bound, the depth searched and the key of the best move.
+ * The threads of the solver share the table without any lock: an entry is stored as two longs, the key xored
+ * with the entry and the entry itself, so that an entry torn by two threads writing at once no longer matches
+ * its key and is read as a miss.
+ * A new entry always replaces the one in its slot.
+ */
+final class TranspositionTable {
+    static final int EXACT = 0;
+    static final int LOWER = 1;
+    static final int UPPER = 2;
+    static final int SOLVED = 255;
+
+    private static final long VALID = 1L << 63;
+
+    private final long[] keys;
+    private final long[] entries;
+    private final int mask;
+
+    /**
+     * Initializes an empty table.
+     *
+     * @param bits the base-2 logarithm of the number of entries.
+     */
+    TranspositionTable(int bits) {
+        this.keys = new long[1 << bits];
+        this.entries = new long[1 << bits];
+        this.mask = (1 << bits) - 1;
+    }
+
+    /**
+     * Gives the entry of a position.
+     *
+     * @param key the hash of the position.
+     * @return the entry, or 0 if the position is not in the table.
+     */
+    long probe(long key) {
+        int slot = (int) key & this.mask;
+        long entry = this.entries[slot];
+        return entry != 0 && (this.keys[slot] ^ entry) == key ? entry : 0;
+    }
+
+    /**
+     * Remembers the result of the search of a position.
+     *
+     * @param key     the hash of the position.
+     * @param value   the value found, between -32768 and 32767.
+     * @param bound   EXACT, LOWER if the value is at least the one found, or UPPER if it is at most the one found.
+     * @param depth   the number of turns searched, or SOLVED if the search reached the end of every line.
+     * @param moveKey the low bits of the key of the best move, or 0 if there is none.
+     */
+    void store(long key, int value, int bound, int depth, int moveKey) {
+        int slot = (int) key & this.mask;
+        long entry = VALID | (long) bound << 56 | (long) depth << 48 | (value & 0xFFFFL) << 32 | moveKey & 0xFFFFFFFFL;
+        this.keys[slot] = key ^ entry;
+        this.entries[slot] = entry;
+    }
+
+    /**
+     * Gives the value of an entry.
+     *
+     * @param entry the entry.
+     * @return the value.
+     */
+    static int value(long entry) {
+        return (short) (entry >>> 32);
+    }
+
+    /**
+     * Gives the bound of the value of an entry.
+     *
+     * @param entry the entry.
+     * @return EXACT, LOWER or UPPER.
+     */
+    static int bound(long entry) {
+        return (int) (entry >>> 56) & 3;
+    }
+
+    /**
+     * Gives the depth searched for an entry.
+     *
+     * @param entry the entry.
+     * @return the number of turns searched, or SOLVED.
+     */
+    static int depth(long entry) {
+        return (int) (entry >>> 48) & 0xFF;
+    }
+
+    /**
+     * Gives the key of the best move of an entry.
+     *
+     * @param entry the entry.
+     * @return the low bits of the key of the move, or 0 if there is none.
+     */
+    static int moveKey(long entry) {
+        return (int) entry;
+    }
+}
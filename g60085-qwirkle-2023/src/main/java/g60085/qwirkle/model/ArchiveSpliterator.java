@@ -0,0 +1,190 @@
+package g60085.qwirkle.model;
+
+import java.util.Arrays;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * ArchiveSpliterator plays again a range of the games of a {@link GameArchive} and gives their summaries.
+ * The range is split in halves for the threads of a parallel stream, and each part plays its games
+ * with its own buffers: only the tiles are placed and scored by a {@link Grid}, new for each game since
+ * it is cheaper to build than to undo, the hands and the bag being followed by their sizes only,
+ * so that nothing is allocated per turn.
+ */
+final class ArchiveSpliterator implements Spliterator<GameSummary> {
+    private static final int TILES = 108;
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    private final GameArchive archive;
+    private final int end;
+    private int next;
+    private Grid grid;
+    private Tile[][] lines;
+    private Tile[] tiles;
+    private int[] packed;
+    private int[] rows;
+    private int[] cols;
+    private int[] scores;
+    private int[] hands;
+
+    /**
+     * Initializes the spliterator of a range of games.
+     *
+     * @param archive the archive.
+     * @param from    the index of the first game.
+     * @param to      the index after the last game.
+     */
+    ArchiveSpliterator(GameArchive archive, int from, int to) {
+        this.archive = archive;
+        this.next = from;
+        this.end = to;
+    }
+
+    /**
+     * Plays the next game of the range again and gives its summary.
+     *
+     * @param action the action receiving the summary.
+     * @return true if there was a game left, false otherwise.
+     */
+    @Override
+    public boolean tryAdvance(Consumer<? super GameSummary> action) {
+        boolean advanced = this.next < this.end;
+        if (advanced) {
+            action.accept(replay(this.next));
+            this.next++;
+        }
+        return advanced;
+    }
+
+    /**
+     * Gives the first half of the games left to another spliterator.
+     *
+     * @return the spliterator of the first half, or null if there are too few games to split.
+     */
+    @Override
+    public Spliterator<GameSummary> trySplit() {
+        int middle = (this.next + this.end) >>> 1;
+        if (middle - this.next < 16) {
+            return null;
+        }
+        ArchiveSpliterator first = new ArchiveSpliterator(this.archive, this.next, middle);
+        this.next = middle;
+        return first;
+    }
+
+    /**
+     * Gives the number of games left.
+     *
+     * @return the number of games.
+     */
+    @Override
+    public long estimateSize() {
+        return this.end - this.next;
+    }
+
+    /**
+     * Gives the characteristics of the spliterator: its size is known and its games do not change.
+     *
+     * @return the characteristics.
+     */
+    @Override
+    public int characteristics() {
+        return ORDERED | SIZED | SUBSIZED | NONNULL | IMMUTABLE;
+    }
+
+    /**
+     * Plays a game again on a new grid.
+     *
+     * @param game the index of the game.
+     * @return the summary of the game.
+     */
+    private GameSummary replay(int game) {
+        if (this.lines == null) { // The buffers are only created by the spliterators which play games;
+            this.lines = new Tile[7][];
+            for (int i = 0; i < this.lines.length; i++) {
+                this.lines[i] = new Tile[i];
+            }
+            this.tiles = new Tile[6];
+            this.packed = new int[256];
+            this.rows = new int[6];
+            this.cols = new int[6];
+            this.scores = new int[4];
+            this.hands = new int[4];
+        }
+        this.grid = new Grid();
+        int count = this.archive.packedCount(game);
+        if (count > this.packed.length) {
+            this.packed = new int[Math.max(count, this.packed.length * 2)];
+        }
+        this.archive.packed(game, this.packed);
+        int players = this.archive.playerCount(game);
+        int firstPlayer = this.archive.firstPlayer(game);
+        int bag = TILES - 6 * players;
+        Arrays.fill(this.scores, 6);
+        Arrays.fill(this.hands, 6);
+
+        int player = firstPlayer;
+        int turns = 0;
+        int passes = 0;
+        int qwirkles = 0;
+        int length = 0;
+        for (int i = 0; i < count; i++) {
+            int p = this.packed[i];
+            if (p == GameArchive.PASS) {
+                this.scores[player]--;
+                passes++;
+            } else {
+                this.rows[length] = GameArchive.row(p);
+                this.cols[length] = GameArchive.col(p);
+                this.tiles[length] = Tile.of(GameArchive.tileId(p));
+                length++;
+            }
+            if (p == GameArchive.PASS || GameArchive.isLastOfTurn(p)) {
+                if (length > 0) {
+                    qwirkles += place(player, length);
+                    int drawn = Math.min(length, bag);
+                    this.hands[player] += drawn - length;
+                    bag -= drawn;
+                }
+                length = 0;
+                turns++;
+                player = (player + 1) % players;
+            }
+        }
+        int[] finalScores = Arrays.copyOf(this.scores, players);
+        for (int i = 0; i < players; i++) {
+            if (bag == 0 && this.hands[i] == 0) {
+                finalScores[i] += 6; // The points of the player who has played all their tiles;
+            }
+        }
+        return new GameSummary(game, firstPlayer, finalScores, turns, passes, qwirkles, this.grid.placedCount());
+    }
+
+    /**
+     * Places the tiles of a turn on the grid and gives their points to the player of the turn.
+     *
+     * @param player the index of the player.
+     * @param length the number of tiles, in the buffers of the spliterator in the order they were placed.
+     * @return the number of Qwirkles made.
+     */
+    private int place(int player, int length) {
+        int qwirkles;
+        if (this.grid.isEmpty()) {
+            Tile[] line = this.lines[length];
+            System.arraycopy(this.tiles, 0, line, 0, length);
+            Direction direction = Direction.RIGHT;
+            for (Direction d : DIRECTIONS) {
+                if (length > 1 && this.rows[1] - this.rows[0] == d.getDeltaRow()
+                        && this.cols[1] - this.cols[0] == d.getDeltaCol()) {
+                    direction = d;
+                }
+            }
+            this.scores[player] += this.grid.placeFirst(direction, line);
+            qwirkles = length == 6 ? 1 : 0;
+        } else {
+            this.scores[player] += this.grid.placePositions(length, this.rows, this.cols, this.tiles);
+            qwirkles = this.grid.qwirkles(length, this.rows, this.cols);
+        }
+        return qwirkles;
+    }
+}
@@ -0,0 +1,322 @@
+package g60085.qwirkle.model;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * ArchiveWriter appends finished games to a {@link GameArchive}: each game is recorded turn by turn
+ * by a listener of its engine (see {@link #record(GameEngine)}) and appended once it is over.
+ * The games are buffered and written to the archive before their offsets are written to the index,
+ * so that the index never points to a game which is not whole; the games written after the last
+ * offset of the index, by a writer stopped by a crash, are overwritten by the next writer.
+ * A writer can be shared by many threads.
+ */
+public final class ArchiveWriter implements Closeable {
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final FileChannel data;
+    private final FileChannel index;
+    private final ByteBuffer dataBuffer;
+    private final ByteBuffer indexBuffer;
+    private long end;
+    private int games;
+
+    /**
+     * Initializes a writer appending to the files of an archive.
+     *
+     * @param data  the archive, positioned after its last game.
+     * @param index the index, positioned after its last offset.
+     * @param end   the offset after the last game of the archive.
+     * @param games the number of games of the archive.
+     */
+    private ArchiveWriter(FileChannel data, FileChannel index, long end, int games) {
+        this.data = data;
+        this.index = index;
+        this.dataBuffer = ByteBuffer.allocate(BUFFER_SIZE);
+        this.indexBuffer = ByteBuffer.allocate(BUFFER_SIZE);
+        this.end = end;
+        this.games = games;
+    }
+
+    /**
+     * Opens an archive to append games to it, creating it if it does not exist.
+     *
+     * @param path the path of the archive.
+     * @return the writer.
+     * @throws QwirkleException if the files cannot be written or do not hold an archive.
+     */
+    public static ArchiveWriter open(Path path) throws QwirkleException {
+        FileChannel data = null;
+        FileChannel index = null;
+        try {
+            data = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            index = FileChannel.open(GameArchive.indexPath(path),
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            ArchiveWriter writer;
+            if (data.size() == 0) {
+                writeHeader(data, GameArchive.MAGIC);
+                writeHeader(index, GameArchive.INDEX_MAGIC);
+                writer = new ArchiveWriter(data, index, GameArchive.HEADER_SIZE, 0);
+            } else {
+                GameArchive.requireHeader(read(data, 0, GameArchive.HEADER_SIZE), GameArchive.MAGIC);
+                GameArchive.requireHeader(read(index, 0, GameArchive.HEADER_SIZE), GameArchive.INDEX_MAGIC);
+                int indexed = (int) ((index.size() - GameArchive.HEADER_SIZE) / 8);
+                LongBuffer offsets = read(index, GameArchive.HEADER_SIZE, indexed * 8).asLongBuffer();
+                int games = GameArchive.wholeGames(data, offsets);
+                long end = GameArchive.HEADER_SIZE;
+                if (games > 0) {
+                    long last = offsets.get(games - 1);
+                    end = last + 4 + read(data, last, 4).getInt();
+                }
+                // The games not written whole are overwritten;
+                data.truncate(end);
+                index.truncate(GameArchive.HEADER_SIZE + games * 8L);
+                writer = new ArchiveWriter(data, index, end, games);
+            }
+            data.position(writer.end);
+            index.position(GameArchive.HEADER_SIZE + writer.games * 8L);
+            return writer;
+        } catch (IOException e) {
+            closeQuietly(data);
+            closeQuietly(index);
+            throw new QwirkleException("An error occurred while writing the archive: " + e.getMessage());
+        } catch (QwirkleException e) {
+            closeQuietly(data);
+            closeQuietly(index);
+            throw e;
+        }
+    }
+
+    /**
+     * Writes the header of a new file of an archive.
+     *
+     * @param channel the file.
+     * @param magic   the magic number of the file.
+     * @throws IOException if the file cannot be written.
+     */
+    private static void writeHeader(FileChannel channel, int magic) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(GameArchive.HEADER_SIZE);
+        header.putInt(magic).putShort(GameArchive.VERSION).putShort((short) 0).flip();
+        while (header.hasRemaining()) {
+            channel.write(header);
+        }
+    }
+
+    /**
+     * Reads bytes of a file.
+     *
+     * @param channel  the file.
+     * @param position the offset of the bytes.
+     * @param size     the number of bytes.
+     * @return the bytes read, ready to be read.
+     * @throws IOException if the file cannot be read.
+     */
+    private static ByteBuffer read(FileChannel channel, long position, int size) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        while (buffer.hasRemaining() && channel.read(buffer, position + buffer.position()) >= 0) {
+            // Reads until the buffer is full;
+        }
+        return buffer.flip();
+    }
+
+    /**
+     * Starts recording a new game, which is appended to the archive once it is over.
+     *
+     * @param engine the engine of the game, whose turns are not played yet.
+     * @return the listener recording the game, registered to the engine.
+     * @throws QwirkleException if some turns of the game have been played.
+     */
+    public GameListener record(GameEngine engine) throws QwirkleException {
+        Game game = engine.getGame();
+        if (game.getMoveCount() != 0 || !game.getModelGrid().isEmpty()) {
+            throw new QwirkleException("Only the games which have not started can be archived!");
+        }
+        Recording recording = new Recording(game);
+        engine.addListener(recording);
+        return recording;
+    }
+
+    /**
+     * Appends a game to the buffers, writing them first if the game does not fit.
+     *
+     * @param recording the recording of the game.
+     * @throws QwirkleException if the files cannot be written.
+     */
+    private synchronized void append(Recording recording) throws QwirkleException {
+        String[] names = recording.game.getPlayersName();
+        byte[][] bytes = new byte[names.length][];
+        int size = GameArchive.TURNS_OFFSET + 4 + recording.count * 4;
+        for (int i = 0; i < names.length; i++) {
+            bytes[i] = names[i].getBytes(StandardCharsets.UTF_8);
+            size += 2 + bytes[i].length;
+        }
+        ByteBuffer buffer = this.dataBuffer;
+        if (size > buffer.remaining()) {
+            flush();
+            if (size > buffer.capacity()) { // A game larger than the buffer is written alone;
+                buffer = ByteBuffer.allocate(size);
+            }
+        }
+        buffer.putInt(size - 4);
+        buffer.putLong(recording.game.getSeed());
+        buffer.put((byte) names.length);
+        buffer.put((byte) recording.firstPlayer);
+        buffer.putShort((short) 0);
+        buffer.putInt(recording.count);
+        for (int i = 0; i < recording.count; i++) {
+            buffer.putInt(recording.packed[i]);
+        }
+        for (byte[] name : bytes) {
+            buffer.putShort((short) name.length);
+            buffer.put(name);
+        }
+        if (buffer != this.dataBuffer) {
+            write(this.data, buffer.flip());
+        }
+        if (!this.indexBuffer.hasRemaining()) {
+            flush();
+        }
+        this.indexBuffer.putLong(this.end);
+        this.end += size;
+        this.games++;
+    }
+
+    /**
+     * Writes the buffered games to the archive, then their offsets to the index.
+     *
+     * @throws QwirkleException if the files cannot be written.
+     */
+    public synchronized void flush() throws QwirkleException {
+        write(this.data, this.dataBuffer.flip());
+        this.dataBuffer.clear();
+        write(this.index, this.indexBuffer.flip());
+        this.indexBuffer.clear();
+    }
+
+    /**
+     * Writes a buffer to a file.
+     *
+     * @param channel the file.
+     * @param buffer  the bytes to write.
+     * @throws QwirkleException if the file cannot be written.
+     */
+    private static void write(FileChannel channel, ByteBuffer buffer) throws QwirkleException {
+        try {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } catch (IOException e) {
+            throw new QwirkleException("An error occurred while writing the archive: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Gives the number of games of the archive, those still buffered included.
+     *
+     * @return the number of games.
+     */
+    public synchronized int size() {
+        return this.games;
+    }
+
+    /**
+     * Writes the buffered games, forces the archive and its index to the disk and closes them.
+     *
+     * @throws QwirkleException if the files cannot be written.
+     */
+    @Override
+    public synchronized void close() throws QwirkleException {
+        try {
+            flush();
+            this.data.force(false);
+            this.index.force(false);
+        } catch (IOException e) {
+            throw new QwirkleException("An error occurred while writing the archive: " + e.getMessage());
+        } finally {
+            closeQuietly(this.data);
+            closeQuietly(this.index);
+        }
+    }
+
+    /**
+     * Closes a file, ignoring a failure.
+     *
+     * @param channel the file, or null if it was not opened.
+     */
+    private static void closeQuietly(FileChannel channel) {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // The first failure is the one reported;
+            }
+        }
+    }
+
+    /**
+     * Recording packs the tiles placed during a game, in the order they were placed, and appends the game
+     * to the archive once it is over.
+     */
+    private final class Recording implements GameListener {
+        private final Game game;
+        private final int firstPlayer;
+        private int[] packed;
+        private int count;
+        private int placed;
+
+        /**
+         * Initializes the recording of a game which has not started.
+         *
+         * @param game the game.
+         */
+        private Recording(Game game) {
+            this.game = game;
+            this.firstPlayer = game.getCurrentPlayerIndex();
+            this.packed = new int[128];
+        }
+
+        /**
+         * Packs the tiles placed during a turn, or the pass.
+         *
+         * @param player the index of the player.
+         * @param move   the move played.
+         */
+        @Override
+        public void onPlayed(int player, Move move) {
+            Grid grid = this.game.getModelGrid();
+            if (this.count + 6 > this.packed.length) {
+                this.packed = Arrays.copyOf(this.packed, this.packed.length * 2);
+            }
+            if (grid.placedCount() == this.placed) {
+                this.packed[this.count++] = GameArchive.PASS;
+            }
+            while (this.placed < grid.placedCount()) {
+                long cell = grid.placedCell(this.placed);
+                int row = Grid.cellRow(cell);
+                int col = Grid.cellCol(cell);
+                this.placed++;
+                this.packed[this.count++] = GameArchive.pack(row, col, grid.get(row, col).id(),
+                        this.placed == grid.placedCount());
+            }
+        }
+
+        /**
+         * Appends the game to the archive.
+         *
+         * @param winners the names of the winners.
+         * @throws QwirkleException if the archive cannot be written.
+         */
+        @Override
+        public void onGameOver(List<String> winners) throws QwirkleException {
+            append(this);
+        }
+    }
+}
@@ -1,53 +1,79 @@
 package g60085.qwirkle.model;
 
 import java.io.Serializable;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
 
 /**
- * Provides a single instance of the Bag class using the Singleton design pattern.
- * The Bag instance represents a single tile bag in the game.
+ * Bag holds the tiles not yet drawn by the players of a game.
+ * Each game owns its bag, built from a seed: two bags built from the same seed give the same tiles
+ * in the same order, so that a game can be replayed, and several games can be played at once.
+ * The bag does not keep the tiles themselves but how many tiles of each of the 36 kinds are left,
+ * and draws a kind at random weighted by these counts, so that a draw takes at most 36 steps
+ * and a copy of the bag costs 36 ints: simulations can sample many hypothetical draws cheaply.
+ * The random numbers come from a SplitMix64 generator whose state is a single long,
+ * so that taking back draws can also restore the generator.
  */
 public class Bag implements Serializable {
-    private final List<Tile> tiles;
-    private static Bag instance;
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+    private final int[] counts;
+    private int total;
+    private final long seed;
+    private long state;
+    private long hash;
 
     /**
-     * Private constructor to prevent direct instantiation from outside the class.
-     * Initializes an instance of the Bag class by creating 108 tiles.
+     * Initializes a bag of 108 tiles drawn at random from a seed.
      * Each tile consists of a combination of color and shape.
      * There are 6 colors and 6 shapes, resulting in 36 different tiles.
      * Each tile is added to the bag with 3 copies.
-     * The tiles are shuffled randomly to provide a randomized order.
+     *
+     * @param seed the seed of the draws.
      */
-    private Bag() {
-        this.tiles = new ArrayList<>();
-
-        // Create tiles for each combination of color and shape
-        for (Color color : Color.values()) {
-            for (Shape shape : Shape.values()) {
-                // Add 3 copies of each tile to the bag
-                for (int i = 0; i < 3; i++) {
-                    this.tiles.add(new Tile(color, shape));
-                }
-            }
+    public Bag(long seed) {
+        this.counts = new int[36];
+        this.seed = seed;
+        this.state = seed;
+
+        // Add 3 copies of each combination of color and shape
+        for (int type = 0; type < 36; type++) {
+            this.counts[type] = 3;
+            this.hash += 3 * Zobrist.bagTile(type);
         }
+        this.total = 108;
+    }
 
-        // Shuffle the tiles randomly
-        Collections.shuffle(tiles);
+    /**
+     * Initializes a copy of a bag, drawing from another seed.
+     *
+     * @param bag  the bag to copy.
+     * @param seed the seed of the draws of the copy.
+     */
+    private Bag(Bag bag, long seed) {
+        this.counts = bag.counts.clone();
+        this.total = bag.total;
+        this.seed = seed;
+        this.state = seed;
+        this.hash = bag.hash;
     }
 
     /**
-     * Retrieves the instance of the Bag class.
+     * Gives a copy of the bag holding the same tiles, whose draws come from another seed.
+     * The copy and the bag are independent: drawing from one leaves the other unchanged.
      *
-     * @return The single instance of the Bag class.
+     * @param seed the seed of the draws of the copy.
+     * @return the copy of the bag.
      */
-    public static Bag getInstance() {
-        if (instance == null) {
-            instance = new Bag();
-        }
-        return instance;
+    public Bag copy(long seed) {
+        return new Bag(this, seed);
+    }
+
+    /**
+     * Gives the seed the bag was built with.
+     *
+     * @return the seed of the bag.
+     */
+    public long getSeed() {
+        return this.seed;
     }
 
     /**
@@ -56,7 +82,7 @@ public class Bag implements Serializable {
      *
      * @param n The number of tiles requested.
      * @return An array with the requested tiles, or an array of remaining tiles if there are not enough tiles left.
-     *  *         Returns null if the bag is empty.
+     *         Returns null if the bag is empty.
      * @throws QwirkleException If an invalid number of tiles is requested (must be between 1 and 6 inclusive).
      */
     public Tile[] getRandomTiles(int n) throws QwirkleException {
@@ -64,26 +90,139 @@ public class Bag implements Serializable {
             throw new QwirkleException("Invalid number of tiles requested. Must be between 1 and 6 (inclusive).");
         }
 
-        if (this.tiles.isEmpty()) {
+        if (this.total == 0) {
             return null;
         }
 
-        int tilesToRetrieve = Math.min(n, this.tiles.size());
+        int tilesToRetrieve = Math.min(n, this.total);
         Tile[] randomTiles = new Tile[tilesToRetrieve];
 
         for (int i = 0; i < tilesToRetrieve; i++) {
-            randomTiles[i] = tiles.remove(tiles.size() - 1);
+            randomTiles[i] = Tile.of(drawType());
         }
 
         return randomTiles;
     }
 
+    /**
+     * Draws random kinds of tiles without replacement into a buffer.
+     *
+     * @param buffer the buffer receiving the indexes of the kinds of tiles drawn, between 0 and 35.
+     * @param offset the index of the buffer where the first kind drawn is written.
+     * @param n      the number of tiles requested.
+     * @return the number of tiles drawn, less than n if the bag runs out of tiles.
+     */
+    public int drawInto(byte[] buffer, int offset, int n) {
+        int drawn = Math.min(n, this.total);
+        for (int i = 0; i < drawn; i++) {
+            buffer[offset + i] = (byte) drawType();
+        }
+        return drawn;
+    }
+
+    /**
+     * Draws a random kind of tile, each tile left having the same chance of being drawn.
+     *
+     * @return the index of the kind of tile drawn, between 0 and 35.
+     * @throws QwirkleException if the bag is empty.
+     */
+    public int drawType() throws QwirkleException {
+        if (this.total == 0) {
+            throw new QwirkleException("The bag is empty!");
+        }
+        int r = nextInt(this.total);
+        int type = 0;
+        while (r >= this.counts[type]) { // Walks the counts until the tile drawn;
+            r -= this.counts[type];
+            type++;
+        }
+        this.counts[type]--;
+        this.total--;
+        this.hash -= Zobrist.bagTile(type);
+        return type;
+    }
+
+    /**
+     * Removes a known tile from the bag, such as a tile seen in the hand of a player.
+     *
+     * @param type the index of the kind of tile, between 0 and 35.
+     * @throws QwirkleException if no such tile is left in the bag.
+     */
+    public void remove(int type) throws QwirkleException {
+        if (this.counts[type] == 0) {
+            throw new QwirkleException("The tile is not in the bag!");
+        }
+        this.counts[type]--;
+        this.total--;
+        this.hash -= Zobrist.bagTile(type);
+    }
+
+    /**
+     * Puts back a tile in the bag.
+     *
+     * @param tile the tile.
+     */
+    void putBack(Tile tile) {
+        int type = tile.id();
+        this.counts[type]++;
+        this.total++;
+        this.hash += Zobrist.bagTile(type);
+    }
+
+    /**
+     * Gives the state of the random generator, so that the next draws can be replayed with {@link #restore(long)}.
+     *
+     * @return the state of the generator.
+     */
+    long state() {
+        return this.state;
+    }
+
+    /**
+     * Sets back the state of the random generator.
+     *
+     * @param state a state given by {@link #state()}.
+     */
+    void restore(long state) {
+        this.state = state;
+    }
+
+    /**
+     * Gives a random number below a bound and advances the generator.
+     *
+     * @param bound the bound, between 1 and 108.
+     * @return a number between 0 and bound - 1.
+     */
+    private int nextInt(int bound) {
+        this.state += GOLDEN_GAMMA;
+        return (int) (((Zobrist.mix(this.state) >>> 32) * bound) >>> 32);
+    }
+
+    /**
+     * Gives the number of tiles of a kind left in the bag.
+     *
+     * @param type the index of the kind of tile, between 0 and 35.
+     * @return the number of tiles of this kind.
+     */
+    public int count(int type) {
+        return this.counts[type];
+    }
+
+    /**
+     * Gives the hash of the contents of the bag: the sum of a key per tile left.
+     *
+     * @return the hash of the bag, 0 for an empty bag.
+     */
+    public long hash() {
+        return this.hash;
+    }
+
     /**
      * Retrieves the size of the bag of tiles.
      *
      * @return The size of the bag of tiles.
      */
     public int size() {
-        return this.tiles.size();
+        return this.total;
     }
 }
@@ -0,0 +1,277 @@
+package g60085.qwirkle.model;
+
+import java.io.Serializable;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+/**
+ * Frontier is the set of the empty cells of the game grid that are orthogonally adjacent to at least one tile,
+ * which are the only cells where a move can start.
+ * The cells are packed positions (see {@link TileMap#key(int, int)}) stored densely in an array,
+ * so that they can be walked without allocation, and an open-addressing index gives the place of each cell
+ * in the array: adding and removing a cell are O(1), a removed cell being replaced by the last one.
+ * A game can never hold more than 108 tiles, so the frontier never holds more than a few hundred cells.
+ * Each cell carries a mask of the kinds of tiles that may be placed on it, kept up to date by the grid,
+ * and the number of cells accepting each kind of tile is counted, so that the kinds accepted somewhere are known
+ * without walking the frontier.
+ */
+final class Frontier implements Serializable {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private long[] cells;
+    private long[] masks;
+    private int size;
+    private long[] indexKeys;
+    private int[] indexSlots;
+    private final int[] acceptCounts;
+    private long accepted;
+
+    /**
+     * Initializes an empty frontier.
+     */
+    Frontier() {
+        this.cells = new long[INITIAL_CAPACITY];
+        this.masks = new long[INITIAL_CAPACITY];
+        this.size = 0;
+        this.indexKeys = new long[INITIAL_CAPACITY * 2];
+        this.indexSlots = new int[INITIAL_CAPACITY * 2];
+        this.acceptCounts = new int[36];
+        this.accepted = 0;
+    }
+
+    /**
+     * Gives the kinds of tiles accepted by at least one cell of the frontier.
+     *
+     * @return a mask whose bit i is set if the tile of index i may be placed somewhere.
+     */
+    long accepted() {
+        return this.accepted;
+    }
+
+    /**
+     * Gives the number of cells of the frontier.
+     *
+     * @return the number of cells.
+     */
+    int size() {
+        return this.size;
+    }
+
+    /**
+     * Gives the cell stored at a place of the dense array.
+     *
+     * @param i the place of the cell, between 0 and size() - 1.
+     * @return the packed position of the cell.
+     */
+    long cell(int i) {
+        return this.cells[i];
+    }
+
+    /**
+     * Gives the mask of the kinds of tiles allowed on the cell stored at a place of the dense array.
+     *
+     * @param i the place of the cell, between 0 and size() - 1.
+     * @return a mask whose bit i is set if the tile of index i may be placed on the cell.
+     */
+    long mask(int i) {
+        return this.masks[i];
+    }
+
+    /**
+     * Gives the mask of the kinds of tiles allowed on a cell.
+     *
+     * @param key the packed position of the cell.
+     * @return the mask of the cell, or 0 if the cell does not belong to the frontier.
+     */
+    long maskOf(long key) {
+        int i = find(key);
+        return this.indexSlots[i] == 0 ? 0 : this.masks[this.indexSlots[i] - 1];
+    }
+
+    /**
+     * Sets the mask of the kinds of tiles allowed on a cell of the frontier.
+     *
+     * @param key  the packed position of the cell, which must belong to the frontier.
+     * @param mask the new mask of the cell.
+     */
+    void setMask(long key, long mask) {
+        int place = this.indexSlots[find(key)] - 1;
+        uncount(this.masks[place]);
+        this.masks[place] = mask;
+        count(mask);
+    }
+
+    /**
+     * Checks if a cell belongs to the frontier.
+     *
+     * @param key the packed position of the cell.
+     * @return true if the cell belongs to the frontier, false otherwise.
+     */
+    boolean contains(long key) {
+        return this.indexSlots[find(key)] != 0;
+    }
+
+    /**
+     * Adds a cell to the frontier if it is not already in it.
+     *
+     * @param key the packed position of the cell.
+     */
+    void add(long key) {
+        int i = find(key);
+        if (this.indexSlots[i] == 0) {
+            if (this.size == this.cells.length) {
+                grow();
+                i = find(key);
+            }
+            this.cells[this.size] = key;
+            this.masks[this.size] = 0;
+            this.size++;
+            this.indexKeys[i] = key;
+            this.indexSlots[i] = this.size; // The place plus one, 0 marks a free slot;
+        }
+    }
+
+    /**
+     * Removes a cell from the frontier if it is in it.
+     * The last cell of the dense array takes the place of the removed one.
+     *
+     * @param key the packed position of the cell.
+     */
+    void remove(long key) {
+        int i = find(key);
+        if (this.indexSlots[i] != 0) {
+            int place = this.indexSlots[i] - 1;
+            uncount(this.masks[place]);
+            long last = this.cells[this.size - 1];
+            this.cells[place] = last;
+            this.masks[place] = this.masks[this.size - 1];
+            this.size--;
+            if (last != key) {
+                this.indexSlots[find(last)] = place + 1;
+            }
+            deleteSlot(i);
+        }
+    }
+
+    /**
+     * Gives an iterator over the packed positions of the cells of the frontier.
+     * The frontier must not be modified while the iterator is used.
+     *
+     * @return a primitive iterator over the cells.
+     */
+    PrimitiveIterator.OfLong iterator() {
+        return new PrimitiveIterator.OfLong() {
+            private int next = 0;
+
+            @Override
+            public boolean hasNext() {
+                return this.next < size;
+            }
+
+            @Override
+            public long nextLong() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return cells[this.next++];
+            }
+        };
+    }
+
+    /**
+     * Counts the kinds of tiles of a mask as accepted by one more cell.
+     *
+     * @param mask the mask of a cell.
+     */
+    private void count(long mask) {
+        while (mask != 0) {
+            int kind = Long.numberOfTrailingZeros(mask);
+            mask &= mask - 1;
+            this.acceptCounts[kind]++;
+            this.accepted |= 1L << kind;
+        }
+    }
+
+    /**
+     * Counts the kinds of tiles of a mask as accepted by one less cell.
+     *
+     * @param mask the former mask of a cell.
+     */
+    private void uncount(long mask) {
+        while (mask != 0) {
+            int kind = Long.numberOfTrailingZeros(mask);
+            mask &= mask - 1;
+            this.acceptCounts[kind]--;
+            if (this.acceptCounts[kind] == 0) {
+                this.accepted &= ~(1L << kind);
+            }
+        }
+    }
+
+    /**
+     * Finds the slot of the index holding a key, or the free slot where it would be inserted.
+     *
+     * @param key the packed position of the cell.
+     * @return the index of the slot.
+     */
+    private int find(long key) {
+        int mask = this.indexKeys.length - 1;
+        int i = slot(key, mask);
+        while (this.indexSlots[i] != 0 && this.indexKeys[i] != key) {
+            i = (i + 1) & mask;
+        }
+        return i;
+    }
+
+    /**
+     * Frees a slot of the index, shifting back the following entries of the probe sequence.
+     *
+     * @param i the index of the slot to free.
+     */
+    private void deleteSlot(int i) {
+        int mask = this.indexKeys.length - 1;
+        int hole = i;
+        int j = (i + 1) & mask;
+        while (this.indexSlots[j] != 0) {
+            int home = slot(this.indexKeys[j], mask);
+            if (((j - home) & mask) >= ((j - hole) & mask)) {
+                this.indexKeys[hole] = this.indexKeys[j];
+                this.indexSlots[hole] = this.indexSlots[j];
+                hole = j;
+            }
+            j = (j + 1) & mask;
+        }
+        this.indexSlots[hole] = 0;
+    }
+
+    /**
+     * Computes the home slot of a key in the index.
+     *
+     * @param key  the packed position.
+     * @param mask the capacity of the index minus one.
+     * @return the index of the home slot.
+     */
+    private static int slot(long key, int mask) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    /**
+     * Doubles the dense arrays and rebuilds the index, which stays at most half full.
+     */
+    private void grow() {
+        long[] oldCells = this.cells;
+        this.cells = new long[oldCells.length * 2];
+        System.arraycopy(oldCells, 0, this.cells, 0, this.size);
+        long[] oldMasks = this.masks;
+        this.masks = new long[this.cells.length];
+        System.arraycopy(oldMasks, 0, this.masks, 0, this.size);
+        this.indexKeys = new long[this.cells.length * 2];
+        this.indexSlots = new int[this.cells.length * 2];
+        for (int place = 0; place < this.size; place++) {
+            int i = find(this.cells[place]);
+            this.indexKeys[i] = this.cells[place];
+            this.indexSlots[i] = place + 1;
+        }
+    }
+}
@@ -1,8 +1,10 @@
 package g60085.qwirkle.model;
 
 import java.io.*;
+import java.nio.file.Path;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Locale;
+import java.util.SplittableRandom;
 
 
 /**
@@ -10,20 +12,47 @@ import java.util.Locale;
  * It encapsulates the game logic and provides a simplified interface for the view to interact with.
  * The `Game` class manages the game state, including the grid, players, and current player.
  * It allows for playing moves, switching players, and accessing game-related information.
+ * The turns played are remembered, so that search algorithms can take them back with a token instead of copying.
  * The `Game` class is serializable to support saving and loading game state.
  */
 public class Game implements Serializable {
+    private static final int TURN_INTS = 5;
+
     private Grid grid;
+    private final Bag bag;
     private final Player[] players;
     private int currentPlayer;
+    private int moveCount;
+    private transient Tile[][] lines;
+    private transient int[] rows;
+    private transient int[] cols;
+    private transient MoveGenerator generator;
+    private transient boolean[] canPlay;
+    private transient int[] turns;
+    private transient Tile[] turnTiles;
+    private transient byte[] turnIndexes;
+    private transient long[] turnStates;
+    private transient int turnCount;
 
     /**
-     * Initializes the game with the given list of player names.
+     * Initializes the game with the given list of player names and a bag shuffled at random.
      *
      * @param names A list of player names.
      */
     public Game(List<String> names) {
+        this(names, new SplittableRandom().nextLong());
+    }
+
+    /**
+     * Initializes the game with the given list of player names and a bag shuffled from a seed.
+     * Two games built from the same names and seed draw the same tiles.
+     *
+     * @param names A list of player names.
+     * @param seed  the seed of the bag.
+     */
+    public Game(List<String> names, long seed) {
         this.grid = new Grid();
+        this.bag = new Bag(seed);
         this.players = new Player[names.size()];
 
         for (int i = 0; i < names.size(); i++) {
@@ -34,22 +63,34 @@ public class Game implements Serializable {
     }
 
     /**
-     * Reads a serialized `Game` object from a file and returns it.
+     * Initializes a game read from a save file.
      *
-     * @param filename The name of the file containing the serialized `Game` object.
-     * @return The deserialized `Game` object.
+     * @param grid          the grid.
+     * @param bag           the bag.
+     * @param players       the players, with their hands and scores.
+     * @param currentPlayer the index of the player whose turn it is.
+     * @param moveCount     the number of turns played before the save.
+     */
+    Game(Grid grid, Bag bag, Player[] players, int currentPlayer, int moveCount) {
+        this.grid = grid;
+        this.bag = bag;
+        this.players = players;
+        this.currentPlayer = currentPlayer;
+        this.moveCount = moveCount;
+        refreshPlayability();
+    }
+
+    /**
+     * Reads a saved `Game` from a file of the directory game.ser and returns it.
+     * The files saved by the first versions of the game, with Java serialization, can still be read.
+     *
+     * @param filename The name of the file containing the saved `Game`.
+     * @return The saved `Game`.
      * @throws QwirkleException If an I/O error occurs while reading the file
-     *                          or if the class of the serialized object cannot be found.
+     *                          or if the file does not hold a game.
      */
     public static Game getFromFile(String filename) throws QwirkleException {
-        try (FileInputStream fileIn = new FileInputStream("game.ser/" + filename);
-             ObjectInputStream objIn = new ObjectInputStream(fileIn)) {
-            return (Game) objIn.readObject();
-        } catch (IOException | ClassNotFoundException e) {
-            Locale.setDefault(Locale.ENGLISH);
-            String errorMessage = "An error occurred while reading the file: " + e.getMessage();
-            throw new QwirkleException(errorMessage);
-        }
+        return GameFile.read(Path.of("game.ser", filename));
     }
 
     /**
@@ -60,17 +101,30 @@ public class Game implements Serializable {
      * @throws QwirkleException If the move does not comply with the rules of the Qwirkle game.
      */
     public void first(Direction direction, int... indices) throws QwirkleException {
-        Player firstPlayer = this.players[this.currentPlayer];
-        Tile[] tiles = new Tile[indices.length];
+        requireOk(tryFirst(direction, indices));
+    }
 
-        for (int i = 0; i < indices.length; i++) {
-            tiles[i] = firstPlayer.getHand().get(indices[i]);
+    /**
+     * Plays the move for the first player if it complies with the rules of the Qwirkle game, without throwing.
+     *
+     * @param direction The tile placement direction.
+     * @param indices   The indices of the tiles to play.
+     * @return OK if the move has been played, or the reason why it cannot be played.
+     */
+    public MoveResult tryFirst(Direction direction, int... indices) {
+        Player firstPlayer = this.players[this.currentPlayer];
+        if (indices.length == 0 || indices.length > 6) {
+            return MoveResult.INVALID_NUMBER_OF_TILES;
         }
-
-        firstPlayer.addScore(this.grid.firstAdd(direction, tiles));
-        firstPlayer.remove(tiles);
-        firstPlayer.refill();
-        changeCurrentPlayer();
+        Tile[] tiles = line(indices.length);
+        if (!handTiles(firstPlayer, indices, tiles)) {
+            return MoveResult.INVALID_INDEX;
+        }
+        MoveResult result = this.grid.checkFirst(direction, tiles);
+        if (result.isOk()) {
+            endTurn(firstPlayer, this.grid.placeFirst(direction, tiles), tiles);
+        }
+        return result;
     }
 
     /**
@@ -82,12 +136,29 @@ public class Game implements Serializable {
      * @throws QwirkleException If the move does not comply with the rules of the Qwirkle game.
      */
     public void play(int row, int col, int index) throws QwirkleException {
+        requireOk(tryPlay(row, col, index));
+    }
+
+    /**
+     * Plays a tile for the current player if it complies with the rules of the Qwirkle game, without throwing.
+     *
+     * @param row   The row of the tile.
+     * @param col   The column of the tile.
+     * @param index The index of the tile.
+     * @return OK if the move has been played, or the reason why it cannot be played.
+     */
+    public MoveResult tryPlay(int row, int col, int index) {
         Player currentPlayer = this.players[this.currentPlayer];
-        Tile tile = currentPlayer.getHand().get(index);
-        currentPlayer.addScore(this.grid.add(row, col, tile));
-        currentPlayer.remove(tile);
-        currentPlayer.refill();
-        changeCurrentPlayer();
+        if (index < 0 || index >= currentPlayer.getHand().size()) {
+            return MoveResult.INVALID_INDEX;
+        }
+        Tile[] tiles = line(1);
+        tiles[0] = currentPlayer.getHand().get(index);
+        MoveResult result = this.grid.check(row, col, tiles[0]);
+        if (result.isOk()) {
+            endTurn(currentPlayer, this.grid.place(row, col, tiles[0]), tiles);
+        }
+        return result;
     }
 
     /**
@@ -100,15 +171,33 @@ public class Game implements Serializable {
      * @throws QwirkleException If the move does not comply with the rules of the Qwirkle game.
      */
     public void play(int row, int col, Direction d, int... indexes) throws QwirkleException {
+        requireOk(tryPlay(row, col, d, indexes));
+    }
+
+    /**
+     * Plays several aligned tiles for the current player if they comply with the rules of the Qwirkle game,
+     * without throwing.
+     *
+     * @param row     The row of the first tile.
+     * @param col     The column of the first tile.
+     * @param d       The tile placement direction.
+     * @param indexes The indexes of the tiles.
+     * @return OK if the move has been played, or the reason why it cannot be played.
+     */
+    public MoveResult tryPlay(int row, int col, Direction d, int... indexes) {
         Player currentPlayer = this.players[this.currentPlayer];
-        Tile[] tiles = new Tile[indexes.length];
-        for (int i = 0; i < indexes.length; i++) {
-            tiles[i] = currentPlayer.getHand().get(indexes[i]);
+        if (indexes.length == 0 || indexes.length > 6) {
+            return MoveResult.INVALID_NUMBER_OF_TILES;
         }
-        currentPlayer.addScore(this.grid.add(row, col, d, tiles));
-        currentPlayer.remove(tiles);
-        currentPlayer.refill();
-        changeCurrentPlayer();
+        Tile[] tiles = line(indexes.length);
+        if (!handTiles(currentPlayer, indexes, tiles)) {
+            return MoveResult.INVALID_INDEX;
+        }
+        MoveResult result = this.grid.check(row, col, d, tiles);
+        if (result.isOk()) {
+            endTurn(currentPlayer, this.grid.place(row, col, d, tiles), tiles);
+        }
+        return result;
     }
 
     /**
@@ -118,23 +207,359 @@ public class Game implements Serializable {
      * @throws QwirkleException If the move does not comply with the rules of the Qwirkle game.
      */
     public void play(int... is) throws QwirkleException {
+        requireOk(tryPlay(is));
+    }
+
+    /**
+     * Plays any tiles for the current player if they comply with the rules of the Qwirkle game, without throwing.
+     *
+     * @param is The tiles to play, specified as row, column, and tile index triplets.
+     * @return OK if the move has been played, or the reason why it cannot be played.
+     */
+    public MoveResult tryPlay(int... is) {
         Player currentPlayer = this.players[this.currentPlayer];
-        TileAtPosition[] tiles = new TileAtPosition[is.length / 3];
-        Tile[] tilesToRemove = new Tile[is.length / 3];
-        int tilesIndex = 0;
-        for (int i = 0; i < is.length; i += 3) {
-            int row = is[i];
-            int col = is[i + 1];
-            int tileIndex = is[i + 2];
-            Tile tile = currentPlayer.getHand().get(tileIndex);
-            tiles[tilesIndex] = new TileAtPosition(row, col, tile);
-            tilesToRemove[tilesIndex] = tile;
-            tilesIndex++;
-        }
-        currentPlayer.addScore(this.grid.add(tiles));
-        currentPlayer.remove(tilesToRemove);
-        currentPlayer.refill();
+        if (is.length == 0 || is.length > 18 || is.length % 3 != 0) {
+            return MoveResult.INVALID_NUMBER_OF_TILES;
+        }
+        int length = is.length / 3;
+        Tile[] tiles = line(length);
+        int[] rows = this.rows;
+        int[] cols = this.cols;
+        List<Tile> hand = currentPlayer.getHand();
+        for (int i = 0; i < length; i++) {
+            int tileIndex = is[3 * i + 2];
+            if (tileIndex < 0 || tileIndex >= hand.size()) {
+                return MoveResult.INVALID_INDEX;
+            }
+            rows[i] = is[3 * i];
+            cols[i] = is[3 * i + 1];
+            tiles[i] = hand.get(tileIndex);
+        }
+        MoveResult result = this.grid.checkPositions(length, rows, cols, tiles);
+        if (result.isOk()) {
+            endTurn(currentPlayer, this.grid.placePositions(length, rows, cols, tiles), tiles);
+        }
+        return result;
+    }
+
+    /**
+     * Fills a buffer with every legal move of the current player, with its score.
+     *
+     * @param moves the buffer receiving the moves, cleared first.
+     */
+    public void generateMoves(MoveBuffer moves) {
+        if (this.generator == null) {
+            this.generator = new MoveGenerator();
+        }
+        this.generator.generate(this.grid, this.players[this.currentPlayer].getHand(), moves);
+    }
+
+    /**
+     * Plays a move generated for the current player if it complies with the rules of the Qwirkle game,
+     * without throwing.
+     *
+     * @param moves the buffer holding the move.
+     * @param move  the index of the move in the buffer.
+     * @return OK if the move has been played, or the reason why it cannot be played.
+     */
+    public MoveResult tryPlay(MoveBuffer moves, int move) {
+        Player currentPlayer = this.players[this.currentPlayer];
+        int length = moves.count(move);
+        Tile[] tiles = line(length);
+        List<Tile> hand = currentPlayer.getHand();
+        for (int i = 0; i < length; i++) {
+            int tileIndex = moves.handIndex(move, i);
+            if (tileIndex >= hand.size()) {
+                return MoveResult.INVALID_INDEX;
+            }
+            this.rows[i] = moves.row(move, i);
+            this.cols[i] = moves.col(move, i);
+            tiles[i] = hand.get(tileIndex);
+        }
+        MoveResult result;
+        if (moves.kind(move) == MoveKind.FIRST) {
+            result = this.grid.checkFirst(moves.direction(move), tiles);
+            if (result.isOk()) {
+                endTurn(currentPlayer, this.grid.placeFirst(moves.direction(move), tiles), tiles);
+            }
+        } else {
+            result = this.grid.checkPositions(length, this.rows, this.cols, tiles);
+            if (result.isOk()) {
+                endTurn(currentPlayer, this.grid.placePositions(length, this.rows, this.cols, tiles), tiles);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Gives a reusable array to hold the tiles of a move, so that checking a move does not allocate.
+     *
+     * @param length the number of tiles of the move, between 1 and 6.
+     * @return an array of the given length.
+     */
+    private Tile[] line(int length) {
+        if (this.lines == null) { // The buffers are not serialized;
+            this.lines = new Tile[7][];
+            for (int i = 0; i < this.lines.length; i++) {
+                this.lines[i] = new Tile[i];
+            }
+            this.rows = new int[6];
+            this.cols = new int[6];
+        }
+        return this.lines[length];
+    }
+
+    /**
+     * Copies the tiles at the given indexes of the hand of a player.
+     *
+     * @param player  the player.
+     * @param indexes the indexes of the tiles in the hand.
+     * @param tiles   the array receiving the tiles.
+     * @return true if all the indexes are valid, false otherwise.
+     */
+    private boolean handTiles(Player player, int[] indexes, Tile[] tiles) {
+        List<Tile> hand = player.getHand();
+        boolean valid = true;
+        int i = 0;
+        while (i < indexes.length && valid) {
+            valid = indexes[i] >= 0 && indexes[i] < hand.size();
+            if (valid) {
+                tiles[i] = hand.get(indexes[i]);
+            }
+            i++;
+        }
+        return valid;
+    }
+
+    /**
+     * Ends the turn of a player who has played some tiles.
+     *
+     * @param player the player.
+     * @param score  the score obtained by the move.
+     * @param tiles  the tiles played.
+     */
+    private void endTurn(Player player, int score, Tile... tiles) {
+        int turn = recordTurn(this.grid.mark() - tiles.length, score);
+        player.addScore(score);
+        for (int i = 0; i < tiles.length; i++) {
+            int index = player.indexOf(tiles[i]);
+            this.turnTiles[turn * 6 + i] = player.removeAt(index);
+            this.turnIndexes[turn * 6 + i] = (byte) index;
+        }
+        this.turns[turn * TURN_INTS + 3] = tiles.length;
+        int handSize = player.handSize();
+        player.refill(this.bag);
+        this.turns[turn * TURN_INTS + 4] = player.handSize() - handSize;
         changeCurrentPlayer();
+        refreshPlayability();
+    }
+
+    /**
+     * Remembers a new turn of the current player, so that it can be taken back by {@link #undo(int)}.
+     * The tiles played and drawn are counted afterwards.
+     *
+     * @param gridMark the token of the grid before the move.
+     * @param score    the points obtained by the move.
+     * @return the index of the turn.
+     */
+    private int recordTurn(int gridMark, int score) {
+        if (this.turns == null) { // The turns are not serialized;
+            this.turns = new int[64 * TURN_INTS];
+            this.turnTiles = new Tile[64 * 6];
+            this.turnIndexes = new byte[64 * 6];
+            this.turnStates = new long[64];
+        } else if ((this.turnCount + 1) * TURN_INTS > this.turns.length) {
+            this.turns = Arrays.copyOf(this.turns, this.turns.length * 2);
+            this.turnTiles = Arrays.copyOf(this.turnTiles, this.turnTiles.length * 2);
+            this.turnIndexes = Arrays.copyOf(this.turnIndexes, this.turnIndexes.length * 2);
+            this.turnStates = Arrays.copyOf(this.turnStates, this.turnStates.length * 2);
+        }
+        int turn = this.turnCount;
+        this.turns[turn * TURN_INTS] = this.currentPlayer;
+        this.turns[turn * TURN_INTS + 1] = score;
+        this.turns[turn * TURN_INTS + 2] = gridMark;
+        this.turns[turn * TURN_INTS + 3] = 0;
+        this.turns[turn * TURN_INTS + 4] = 0;
+        this.turnStates[turn] = this.bag.state();
+        this.turnCount++;
+        this.moveCount++;
+        return turn;
+    }
+
+    /**
+     * Gives the number of turns played since the start of the game, passes included.
+     * The turns of the games saved by the first versions of the game are not known.
+     *
+     * @return the number of turns played.
+     */
+    public int getMoveCount() {
+        return this.moveCount;
+    }
+
+    /**
+     * Gives a token to take back the turns played from now on with {@link #undo(int)}.
+     * Nothing is copied: each turn only remembers the player, the points, the tiles played with their places
+     * in the hand and the number of tiles drawn.
+     *
+     * @return the number of turns played since the game was created or loaded.
+     */
+    public int mark() {
+        return this.turnCount;
+    }
+
+    /**
+     * Plays a move generated for the current player and gives the token to take it back.
+     *
+     * @param moves the buffer holding the move.
+     * @param move  the index of the move in the buffer.
+     * @return the token to give to {@link #undo(int)} to take the move back.
+     * @throws QwirkleException If the move does not comply with the rules of the Qwirkle game.
+     */
+    public int apply(MoveBuffer moves, int move) throws QwirkleException {
+        int token = mark();
+        requireOk(tryPlay(moves, move));
+        return token;
+    }
+
+    /**
+     * Passes the turn of the current player and gives the token to take it back.
+     *
+     * @return the token to give to {@link #undo(int)} to take the pass back.
+     */
+    public int applyPass() {
+        int token = mark();
+        pass();
+        return token;
+    }
+
+    /**
+     * Takes back, most recent first, the turns played since a token was given,
+     * restoring the grid, the hands, the scores, the bag and the current player exactly.
+     *
+     * @param token a token given by {@link #mark()}, {@link #apply(MoveBuffer, int)} or {@link #applyPass()}.
+     * @throws QwirkleException if the token does not come from this game or some of its turns are already taken back.
+     */
+    public void undo(int token) throws QwirkleException {
+        if (token < 0 || token > this.turnCount) {
+            throw new QwirkleException("Invalid undo token!");
+        }
+        while (this.turnCount > token) {
+            this.turnCount--;
+            this.moveCount--;
+            int turn = this.turnCount;
+            Player player = this.players[this.turns[turn * TURN_INTS]];
+            // The tiles drawn go back in the bag, which will draw them again;
+            for (int i = 0; i < this.turns[turn * TURN_INTS + 4]; i++) {
+                this.bag.putBack(player.removeAt(player.handSize() - 1));
+            }
+            this.bag.restore(this.turnStates[turn]);
+            // The tiles played go back to their places in the hand;
+            for (int i = this.turns[turn * TURN_INTS + 3] - 1; i >= 0; i--) {
+                player.insert(this.turnIndexes[turn * 6 + i], this.turnTiles[turn * 6 + i]);
+                this.turnTiles[turn * 6 + i] = null;
+            }
+            player.addScore(-this.turns[turn * TURN_INTS + 1]);
+            this.grid.undo(this.turns[turn * TURN_INTS + 2]);
+            this.currentPlayer = this.turns[turn * TURN_INTS];
+        }
+        refreshPlayability();
+    }
+
+    /**
+     * Throws the exception matching a result if it is not OK.
+     *
+     * @param result the result of a move.
+     * @throws QwirkleException if the result is not OK.
+     */
+    private static void requireOk(MoveResult result) throws QwirkleException {
+        if (!result.isOk()) {
+            throw new QwirkleException(result.getMessage());
+        }
+    }
+
+    /**
+     * Gives a 64-bit hash of the state of the game: the tiles on the grid, the hands and the scores of the players,
+     * the tiles left in the bag and the current player.
+     * Each part is kept up to date when it changes, so the hash costs O(players) to combine.
+     * Positions reached by different orders of moves have the same hash, so it can key transposition tables.
+     *
+     * @return the hash of the game.
+     */
+    public long hash() {
+        long hash = this.grid.hash() ^ this.bag.hash() ^ Zobrist.currentPlayer(this.currentPlayer);
+        for (int i = 0; i < this.players.length; i++) {
+            hash ^= Zobrist.player(i, this.players[i].getHandHash(), this.players[i].getScore());
+        }
+        return hash;
+    }
+
+    /**
+     * Gives a key identifying a move generated for the current player, whatever the indexes of its tiles in the hand:
+     * the change of the hash of the grid the move would make (see {@link Grid#hash()}).
+     * The same placement of the same tiles has the same key in any game with the same grid.
+     *
+     * @param moves the buffer holding the move.
+     * @param move  the index of the move in the buffer.
+     * @return the key of the move, never 0.
+     */
+    public long moveKey(MoveBuffer moves, int move) {
+        Player player = this.players[this.currentPlayer];
+        long key = 0;
+        for (int i = 0; i < moves.count(move); i++) {
+            key ^= Zobrist.cell(TileMap.key(moves.row(move, i), moves.col(move, i)),
+                    player.tileAt(moves.handIndex(move, i)));
+        }
+        return key == 0 ? 1 : key;
+    }
+
+    /**
+     * Gives an independent deep copy of the game, such as a copy a bot can play moves on.
+     * The moves played before the copy cannot be taken back on the copy.
+     *
+     * @return the copy of the game.
+     * @throws QwirkleException if the game cannot be copied.
+     */
+    public Game copy() throws QwirkleException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(this);
+        } catch (IOException e) {
+            throw new QwirkleException("The game cannot be copied: " + e.getMessage());
+        }
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            return (Game) in.readObject();
+        } catch (IOException | ClassNotFoundException e) {
+            throw new QwirkleException("The game cannot be copied: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Deals again the tiles the current player cannot see: the hands of the other players are put back in the bag,
+     * and the same number of tiles is drawn again for each of them, from a new seed that also orders the next draws.
+     * The game is then one of the games the current player may be in, so a bot can sample the hidden information.
+     * The turns played before cannot be taken back afterwards.
+     *
+     * @param seed the seed of the new deal.
+     */
+    public void redeal(long seed) {
+        int[] sizes = new int[this.players.length];
+        for (int i = 0; i < this.players.length; i++) {
+            if (i != this.currentPlayer) {
+                Player player = this.players[i];
+                sizes[i] = player.handSize();
+                while (player.handSize() > 0) {
+                    this.bag.putBack(player.removeAt(player.handSize() - 1));
+                }
+            }
+        }
+        this.bag.restore(seed);
+        for (int i = 0; i < this.players.length; i++) {
+            if (i != this.currentPlayer) {
+                this.players[i].draw(this.bag, sizes[i]);
+            }
+        }
+        this.turnCount = 0;
+        refreshPlayability();
     }
 
     /**
@@ -190,6 +615,27 @@ public class Game implements Serializable {
         return scores;
     }
 
+    /**
+     * Returns the score a player would have if the game ended now, with the 6 points of {@link #isOver()}
+     * for having played all their tiles once the bag is empty, without giving them.
+     *
+     * @param player The index of the player.
+     * @return The score of the player at the end of the game.
+     */
+    public int getFinalScore(int player) {
+        Player p = this.players[player];
+        return p.getScore() + (this.bag.size() == 0 && p.handSize() == 0 ? 6 : 0);
+    }
+
+    /**
+     * Returns the index of the current player.
+     *
+     * @return The index of the player whose turn it is.
+     */
+    public int getCurrentPlayerIndex() {
+        return this.currentPlayer;
+    }
+
     /**
      * Returns the grid view.
      *
@@ -199,6 +645,42 @@ public class Game implements Serializable {
         return new GridView(this.grid);
     }
 
+    /**
+     * Returns the grid of the game itself, for the classes of the model that save it.
+     *
+     * @return The grid of the game.
+     */
+    Grid getModelGrid() {
+        return this.grid;
+    }
+
+    /**
+     * Returns the bag of the game, for the classes of the model that save it.
+     *
+     * @return The bag of the game.
+     */
+    Bag getBag() {
+        return this.bag;
+    }
+
+    /**
+     * Returns the number of tiles left in the bag of the game.
+     *
+     * @return The size of the bag of tiles.
+     */
+    public int getBagSize() {
+        return this.bag.size();
+    }
+
+    /**
+     * Returns the seed the bag of the game was shuffled with.
+     *
+     * @return The seed of the bag.
+     */
+    public long getSeed() {
+        return this.bag.getSeed();
+    }
+
     /**
      * Sets the player who will start the game.
      *
@@ -224,8 +706,9 @@ public class Game implements Serializable {
      */
     public void initPlayerHand() {
         for (Player player : this.players) {
-            player.refill();
+            player.refill(this.bag);
         }
+        refreshPlayability();
     }
 
     /**
@@ -233,20 +716,40 @@ public class Game implements Serializable {
      */
     public void pass() {
         Player currentPlayer = this.players[this.currentPlayer];
+        recordTurn(this.grid.mark(), -1);
         currentPlayer.addScore(-1);
         changeCurrentPlayer();
     }
 
     /**
      * Checks if the game is over.
+     * The players who have played all their tiles once the bag is empty get 6 more points.
      *
      * @return true if the game is over: either one of the players has reached 0 points, or
      * one of the players has played all their tiles,
      * or none of the players can add tiles to the existing lines.
      */
     public boolean isOver() {
+        boolean isOver = isFinished();
+        if (isOver && this.bag.size() == 0) {
+            for (Player player : this.players) {
+                if (player.handSize() == 0) {
+                    player.addScore(6); // add 6 points to the player that has played all their tiles
+                }
+            }
+        }
+        return isOver;
+    }
+
+    /**
+     * Checks if the game is over, without giving the points of the end of the game.
+     *
+     * @return true if the game is over: either one of the players has reached 0 points, or
+     * one of the players has played all their tiles,
+     * or none of the players can add tiles to the existing lines.
+     */
+    public boolean isFinished() {
         boolean isOver = false;
-        Bag bag = Bag.getInstance();
         // Check if any player has 0 points
         for (Player player : this.players) {
             if (player.getScore() == 0) {
@@ -254,11 +757,10 @@ public class Game implements Serializable {
                 break;
             }
         }
-        if (bag.size() == 0) { // no more tiles in the bag
+        if (this.bag.size() == 0) { // no more tiles in the bag
             // Game over if one of the players has played all their tiles
             for (Player player : this.players) {
-                if (player.getHand().size() == 0) {
-                    player.addScore(6); // add 6 points to the player that has played all their tiles
+                if (player.handSize() == 0) {
                     isOver = true; // Game is over
                 }
             }
@@ -272,14 +774,18 @@ public class Game implements Serializable {
 
     /**
      * Checks if none of the players can add tiles to the existing lines.
+     * It reads the playability flags of the players, kept up to date after each move.
      *
      * @return true if none of the players can add tiles to the existing lines, false otherwise.
      */
     private boolean nobodyCanPlay() {
+        if (this.canPlay == null) { // The flags are not serialized;
+            refreshPlayability();
+        }
         boolean nobodyCanPlay = true;
         int indexPlayer = 0;
         while (indexPlayer < this.players.length && nobodyCanPlay) {
-            if (canAddTilesFromHand(indexPlayer)) {
+            if (this.canPlay[indexPlayer]) {
                 nobodyCanPlay = false;
             }
             indexPlayer++;
@@ -287,57 +793,43 @@ public class Game implements Serializable {
         return nobodyCanPlay;
     }
 
+    /**
+     * Updates the playability flag of every player after the grid or a hand has changed.
+     * Each flag costs a single mask test, so the update is O(players).
+     */
+    private void refreshPlayability() {
+        if (this.canPlay == null) {
+            this.canPlay = new boolean[this.players.length];
+        }
+        for (int indexPlayer = 0; indexPlayer < this.players.length; indexPlayer++) {
+            this.canPlay[indexPlayer] = canAddTilesFromHand(indexPlayer);
+        }
+    }
+
     /**
      * Checks if the player at the given index can add any tiles from their hand to the existing lines on the grid.
+     * A tile of the hand can be added if a cell of the grid accepts its kind.
      *
      * @param indexPlayer the index of the player to check.
      * @return true if the player can add tiles from their hand to the existing lines, false otherwise.
      */
     private boolean canAddTilesFromHand(int indexPlayer) {
-        boolean canAddTile = false;
-
-        int indexRow = 0;
-        while (indexRow < 89 && !canAddTile) { // For each row;
-            int indexCol = 0;
-            while (indexCol < 89 && !canAddTile) { // For each column;
-                if (this.grid.get(indexRow, indexCol) != null) { // If there is a tile on the grid;
-                    // Checks if there is a tile from the hand's player that can be added on the game grid before this tile;
-                    int indexTileHand = 0;
-                    Player player = this.players[indexPlayer];
-                    while (indexTileHand < player.getHand().size() && !canAddTile) {
-                        canAddTile = grid.validRulesAdd(indexRow, indexCol - 1, Direction.RIGHT,
-                                getCurrentPlayerHand().get(indexTileHand));
-                        indexTileHand++;
-                    }
-                    if (!canAddTile) { // If none of the tiles from the player's hand can be added;
-                        // Continues iterating through the grid while there is a tile;
-                        while (this.grid.get(indexRow, indexCol) != null) {
-                            indexCol++;
-                        }
-                    }
-                } else {
-                    indexCol++; // Advances if there is no tile;
-                }
-            }
-            indexRow++;
+        Player player = this.players[indexPlayer];
+        if (this.grid.isEmpty()) {
+            return player.getTypeMask() != 0; // Any tile can start the game;
         }
-        return canAddTile;
+        return (player.getTypeMask() & this.grid.playableTypes()) != 0;
     }
 
     /**
-     * Writes the specified Game object to a file using serialization.
+     * Writes the specified Game to a file of the directory game.ser, in the binary format of {@link GameFile}.
      *
-     * @param game     The Game object to be serialized and written to a file.
-     * @param filename The name of the file to write the serialized Game object to.
-     * @throws QwirkleException If an error occurs while writing the Game object.
+     * @param game     The Game to be written to a file.
+     * @param filename The name of the file to write the Game to.
+     * @throws QwirkleException If an error occurs while writing the Game.
      */
     public static void write(Game game, String filename) throws QwirkleException {
-        try (FileOutputStream fileOut = new FileOutputStream("game.ser/" + filename);
-             ObjectOutputStream objOut = new ObjectOutputStream(fileOut)) {
-            objOut.writeObject(game);
-        } catch (IOException e) {
-            throw new QwirkleException("An error occurred while writing the Game object to the file: " + e.getMessage());
-        }
+        GameFile.write(game, Path.of("game.ser", filename));
     }
 
     //for tests
@@ -0,0 +1,456 @@
+package g60085.qwirkle.model;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * GameArchive reads the finished games kept by an {@link ArchiveWriter}: one append-only file of games
+ * and one index of the offsets of the games, {@code <file>.idx}. Both files are mapped in memory, so that any game
+ * is found by random access without reading the others. All the numbers are big-endian:
+ * <pre>
+ * archive: int magic "QWAR", short version, short 0, then per game:
+ *     int    size of the game, without this int
+ *     long   seed of the bag
+ *     byte   number of players, byte index of the first player, short 0
+ *     int    number of turns, then per turn the packed tiles of the turn, or a pass
+ *     per player: short length and UTF-8 bytes of the name
+ * index:   int magic "QWAI", short version, short 0, then per game: long offset of the game in the archive
+ * </pre>
+ * A tile is packed in an int (see {@link #row(int)}, {@link #col(int)}, {@link #tileId(int)}
+ * and {@link #isLastOfTurn(int)}), and a turn where the player passes is the int {@link #PASS}.
+ * Since a game is dealt again from its seed, the turns are enough to play it again:
+ * {@link #load(int)} gives back the game as it ended, and {@link #summaries()} streams the figures of all the games.
+ * <p>
+ * The archive is mapped in regions of at most 1 GB, each holding whole games. A GameArchive cannot change
+ * and can be read by many threads at once.
+ */
+public final class GameArchive {
+    public static final int PASS = -1;
+    static final int MAGIC = 0x51574152; // "QWAR";
+    static final int INDEX_MAGIC = 0x51574149; // "QWAI";
+    static final short VERSION = 1;
+    static final int HEADER_SIZE = 8;
+    static final int TURNS_OFFSET = 4 + 8 + 4;
+    static final int LAST_OF_TURN = 1 << 6;
+    private static final int MAX_REGION = 1 << 30;
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    private final LongBuffer offsets;
+    private final int games;
+    private final MappedByteBuffer[] regions;
+    private final long[] regionStarts;
+    private final int[] regionFirstGames;
+
+    /**
+     * Initializes an archive from its mapped files.
+     *
+     * @param offsets the offsets of the games in the archive.
+     * @param games   the number of whole games.
+     * @param regions the regions of the archive, each holding whole games.
+     * @param starts  the offsets of the regions in the archive.
+     * @param firsts  the first game of each region.
+     */
+    private GameArchive(LongBuffer offsets, int games, MappedByteBuffer[] regions, long[] starts, int[] firsts) {
+        this.offsets = offsets;
+        this.games = games;
+        this.regions = regions;
+        this.regionStarts = starts;
+        this.regionFirstGames = firsts;
+    }
+
+    /**
+     * Maps an archive and its index in memory.
+     * The games appended after the last one written whole, by a writer stopped by a crash, are left out.
+     *
+     * @param path the path of the archive.
+     * @return the archive.
+     * @throws QwirkleException if the files cannot be read or do not hold an archive.
+     */
+    public static GameArchive open(Path path) throws QwirkleException {
+        return open(path, MAX_REGION);
+    }
+
+    /**
+     * Maps an archive and its index in memory, in regions of a given size.
+     *
+     * @param path       the path of the archive.
+     * @param regionSize the size of the regions at most, unless a game is larger.
+     * @return the archive.
+     * @throws QwirkleException if the files cannot be read or do not hold an archive.
+     */
+    static GameArchive open(Path path, int regionSize) throws QwirkleException {
+        try (FileChannel data = FileChannel.open(path, StandardOpenOption.READ);
+             FileChannel index = FileChannel.open(indexPath(path), StandardOpenOption.READ)) {
+            LongBuffer offsets = index.map(FileChannel.MapMode.READ_ONLY, 0, index.size())
+                    .position(HEADER_SIZE).slice().asLongBuffer();
+            requireHeader(index.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE), INDEX_MAGIC);
+            requireHeader(data.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE), MAGIC);
+            int games = wholeGames(data, offsets);
+            long archiveEnd = games == 0 ? HEADER_SIZE : end(data, offsets, games - 1);
+
+            List<MappedByteBuffer> regions = new ArrayList<>();
+            List<Long> starts = new ArrayList<>();
+            List<Integer> firsts = new ArrayList<>();
+            int game = 0;
+            while (game < games) {
+                long start = offsets.get(game);
+                int first = game;
+                game++;
+                // The end of a game is the start of the next one;
+                while (game < games && (game + 1 < games ? offsets.get(game + 1) : archiveEnd) - start <= regionSize) {
+                    game++;
+                }
+                long end = game < games ? offsets.get(game) : archiveEnd;
+                regions.add(data.map(FileChannel.MapMode.READ_ONLY, start, end - start));
+                starts.add(start);
+                firsts.add(first);
+            }
+            long[] regionStarts = new long[starts.size()];
+            int[] regionFirsts = new int[firsts.size()];
+            for (int i = 0; i < regionStarts.length; i++) {
+                regionStarts[i] = starts.get(i);
+                regionFirsts[i] = firsts.get(i);
+            }
+            return new GameArchive(offsets, games, regions.toArray(new MappedByteBuffer[0]),
+                    regionStarts, regionFirsts);
+        } catch (IOException | IllegalArgumentException e) {
+            throw new QwirkleException("An error occurred while reading the archive: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Gives the path of the index of an archive.
+     *
+     * @param path the path of the archive.
+     * @return the path of its index.
+     */
+    static Path indexPath(Path path) {
+        return path.resolveSibling(path.getFileName() + ".idx");
+    }
+
+    /**
+     * Checks the header of a file of an archive.
+     *
+     * @param header the first bytes of the file.
+     * @param magic  the magic number of the file.
+     * @throws QwirkleException if the header is not the expected one.
+     */
+    static void requireHeader(ByteBuffer header, int magic) throws QwirkleException {
+        if (header.remaining() < HEADER_SIZE || header.getInt(0) != magic) {
+            throw new QwirkleException("The file is not a game archive!");
+        }
+        if (header.getShort(4) > VERSION) {
+            throw new QwirkleException("The archive comes from a newer version of the game!");
+        }
+    }
+
+    /**
+     * Counts the games of an index which are whole in the archive.
+     *
+     * @param data    the archive.
+     * @param offsets the offsets of the games.
+     * @return the number of whole games, from the first one.
+     * @throws IOException if the archive cannot be read.
+     */
+    static int wholeGames(FileChannel data, LongBuffer offsets) throws IOException {
+        int games = offsets.limit();
+        while (games > 0 && (offsets.get(games - 1) < HEADER_SIZE || end(data, offsets, games - 1) > data.size())) {
+            games--;
+        }
+        return games;
+    }
+
+    /**
+     * Gives the offset of the end of a game in the archive.
+     *
+     * @param data    the archive.
+     * @param offsets the offsets of the games.
+     * @param game    the index of the game.
+     * @return the offset after the last byte of the game, beyond the archive if the game is not whole.
+     * @throws IOException if the archive cannot be read.
+     */
+    private static long end(FileChannel data, LongBuffer offsets, int game) throws IOException {
+        ByteBuffer size = ByteBuffer.allocate(4);
+        long offset = offsets.get(game);
+        if (offset + 4 > data.size() || data.read(size, offset) < 4) {
+            return Long.MAX_VALUE;
+        }
+        return offset + 4 + size.getInt(0);
+    }
+
+    /**
+     * Gives the number of games of the archive.
+     *
+     * @return the number of games.
+     */
+    public int size() {
+        return this.games;
+    }
+
+    /**
+     * Gives the region of the archive holding a game.
+     *
+     * @param game the index of the game.
+     * @return the index of the region.
+     * @throws QwirkleException if the index is not the one of a game of the archive.
+     */
+    private int regionOf(int game) throws QwirkleException {
+        if (game < 0 || game >= this.games) {
+            throw new QwirkleException("There is no game " + game + " in the archive!");
+        }
+        int low = 0;
+        int high = this.regionFirstGames.length - 1;
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if (this.regionFirstGames[middle] <= game) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Gives the bytes of the region holding a game.
+     *
+     * @param game the index of the game.
+     * @return the buffer of the region, shared with the archive, holding the game at {@link #start(int)}.
+     */
+    private ByteBuffer region(int game) {
+        return this.regions[regionOf(game)];
+    }
+
+    /**
+     * Gives the offset of a game in the buffer of its region.
+     *
+     * @param game the index of the game.
+     * @return the offset of the size of the game.
+     */
+    private int start(int game) {
+        return (int) (this.offsets.get(game) - this.regionStarts[regionOf(game)]);
+    }
+
+    /**
+     * Gives the seed of the bag of a game.
+     *
+     * @param game the index of the game.
+     * @return the seed.
+     */
+    public long seed(int game) {
+        return region(game).getLong(start(game) + 4);
+    }
+
+    /**
+     * Gives the number of players of a game.
+     *
+     * @param game the index of the game.
+     * @return the number of players.
+     */
+    public int playerCount(int game) {
+        return region(game).get(start(game) + 12);
+    }
+
+    /**
+     * Gives the index of the first player of a game.
+     *
+     * @param game the index of the game.
+     * @return the index of the first player.
+     */
+    public int firstPlayer(int game) {
+        return region(game).get(start(game) + 13);
+    }
+
+    /**
+     * Gives the number of packed ints of a game: a tile placed or a pass each.
+     *
+     * @param game the index of the game.
+     * @return the number of packed ints.
+     */
+    public int packedCount(int game) {
+        return region(game).getInt(start(game) + 16);
+    }
+
+    /**
+     * Copies the packed ints of a game.
+     *
+     * @param game  the index of the game.
+     * @param into  the array receiving the ints, at least {@link #packedCount(int)} long.
+     * @return the number of packed ints.
+     */
+    public int packed(int game, int[] into) {
+        ByteBuffer region = region(game);
+        int start = start(game);
+        int count = region.getInt(start + 16);
+        for (int i = 0; i < count; i++) {
+            into[i] = region.getInt(start + TURNS_OFFSET + 4 + i * 4);
+        }
+        return count;
+    }
+
+    /**
+     * Gives the names of the players of a game.
+     *
+     * @param game the index of the game.
+     * @return the names, in the order of the players.
+     */
+    public String[] names(int game) {
+        ByteBuffer region = region(game);
+        int start = start(game);
+        int position = start + TURNS_OFFSET + 4 + region.getInt(start + 16) * 4;
+        String[] names = new String[playerCount(game)];
+        for (int i = 0; i < names.length; i++) {
+            byte[] name = new byte[region.getShort(position)];
+            region.get(position + 2, name);
+            names[i] = new String(name, StandardCharsets.UTF_8);
+            position += 2 + name.length;
+        }
+        return names;
+    }
+
+    /**
+     * Streams the summaries of the games of the archive, each game being played again without its bag
+     * (see {@link ArchiveSpliterator}). The stream is parallel: its games are split between the threads
+     * of the common pool.
+     *
+     * @return the parallel stream of the summaries, in the order of the games.
+     */
+    public Stream<GameSummary> summaries() {
+        return StreamSupport.stream(new ArchiveSpliterator(this, 0, this.games), true);
+    }
+
+    /**
+     * Plays a game of the archive again, from the deal of its bag to its last turn.
+     *
+     * @param game the index of the game.
+     * @return the game as it ended.
+     * @throws QwirkleException if the index is not the one of a game of the archive or the game is corrupted.
+     */
+    public Game load(int game) throws QwirkleException {
+        GameEngine engine = new GameEngine(List.of(names(game)), seed(game), firstPlayer(game));
+        Game played = engine.getGame();
+        int[] packed = new int[packedCount(game)];
+        packed(game, packed);
+        int[] is = new int[18];
+        int count = 0;
+        for (int p : packed) {
+            if (p == PASS) {
+                requireOk(engine.play(new Move.Pass()));
+            } else {
+                Player player = played.getPlayers()[played.getCurrentPlayerIndex()];
+                is[count * 3] = row(p);
+                is[count * 3 + 1] = col(p);
+                is[count * 3 + 2] = player.indexOf(Tile.of(tileId(p)));
+                count++;
+                if (isLastOfTurn(p)) {
+                    requireOk(engine.play(move(played, is, count)));
+                    count = 0;
+                }
+            }
+        }
+        return played;
+    }
+
+    /**
+     * Gives the move placing some tiles.
+     *
+     * @param game  the game.
+     * @param is    the (row, column, index in the hand) triplets of the tiles.
+     * @param count the number of tiles.
+     * @return the first move of the game if the grid is empty, or the move placing the tiles at their positions.
+     */
+    private static Move move(Game game, int[] is, int count) {
+        int[] indexes = new int[count];
+        for (int i = 0; i < count; i++) {
+            indexes[i] = is[i * 3 + 2];
+        }
+        if (!game.getModelGrid().isEmpty()) {
+            return new Move.Positions(Arrays.copyOf(is, count * 3));
+        }
+        Direction direction = Direction.RIGHT;
+        if (count > 1) {
+            for (Direction d : DIRECTIONS) {
+                if (is[3] - is[0] == d.getDeltaRow() && is[4] - is[1] == d.getDeltaCol()) {
+                    direction = d;
+                }
+            }
+        }
+        return new Move.First(direction, indexes);
+    }
+
+    /**
+     * Throws if a move of the archive cannot be played again.
+     *
+     * @param result the result of the move.
+     * @throws QwirkleException if the move is not legal.
+     */
+    private static void requireOk(MoveResult result) throws QwirkleException {
+        if (!result.isOk()) {
+            throw new QwirkleException("The archive is corrupted!");
+        }
+    }
+
+    /**
+     * Packs a tile placed on the grid.
+     *
+     * @param row  the row of the tile.
+     * @param col  the column of the tile.
+     * @param id   the id of the tile.
+     * @param last true if it is the last tile placed during the turn.
+     * @return the packed tile.
+     */
+    static int pack(int row, int col, int id, boolean last) {
+        return ((row - Grid.ORIGIN) & 0x3FF) << 18 | ((col - Grid.ORIGIN) & 0x3FF) << 8 | (last ? LAST_OF_TURN : 0) | id;
+    }
+
+    /**
+     * Gives the row of a packed tile.
+     *
+     * @param packed the packed tile.
+     * @return the row.
+     */
+    public static int row(int packed) {
+        return ((packed << 4) >> 22) + Grid.ORIGIN;
+    }
+
+    /**
+     * Gives the column of a packed tile.
+     *
+     * @param packed the packed tile.
+     * @return the column.
+     */
+    public static int col(int packed) {
+        return ((packed << 14) >> 22) + Grid.ORIGIN;
+    }
+
+    /**
+     * Gives the id of a packed tile (see {@link Tile#of(int)}).
+     *
+     * @param packed the packed tile.
+     * @return the id of the tile.
+     */
+    public static int tileId(int packed) {
+        return packed & 0x3F;
+    }
+
+    /**
+     * Checks if a packed tile is the last tile placed during its turn.
+     *
+     * @param packed the packed tile.
+     * @return true if the turn ends with this tile, false otherwise.
+     */
+    public static boolean isLastOfTurn(int packed) {
+        return packed != PASS && (packed & LAST_OF_TURN) != 0;
+    }
+}
@@ -0,0 +1,226 @@
+package g60085.qwirkle.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * GameEngine drives a game of Qwirkle without any input or output.
+ * It plays the moves it is given for the current player, tells its listeners what happens,
+ * detects the end of the game once, giving the points of the end of the game, and determines the winners.
+ * A rejected move is reported by its {@link MoveResult} and leaves the game unchanged,
+ * so that the engine can be driven by a console, a server, a simulator or a benchmark alike.
+ */
+public final class GameEngine {
+    private final Game game;
+    private final List<GameListener> listeners;
+    private boolean over;
+    private int moves;
+
+    /**
+     * Initializes an engine for a new game, whose bag is shuffled from a seed, and fills the hands of the players.
+     *
+     * @param names   the names of the players.
+     * @param seed    the seed of the bag.
+     * @param starter the index of the player who starts the game.
+     */
+    public GameEngine(List<String> names, long seed, int starter) {
+        this.game = new Game(names, seed);
+        this.game.initPlayerHand();
+        this.game.setStarterPlayer(starter);
+        this.listeners = new ArrayList<>();
+    }
+
+    /**
+     * Initializes an engine for a game already started, such as a saved game.
+     * The points of the end of the game are not given again if the game is already over.
+     *
+     * @param game the game.
+     */
+    public GameEngine(Game game) {
+        this.game = game;
+        this.listeners = new ArrayList<>();
+        this.over = game.isFinished();
+    }
+
+    /**
+     * Registers a listener told about the events of the game.
+     *
+     * @param listener the listener.
+     */
+    public void addListener(GameListener listener) {
+        this.listeners.add(listener);
+    }
+
+    /**
+     * Unregisters a listener, which is no longer told about the events of the game.
+     *
+     * @param listener the listener.
+     */
+    public void removeListener(GameListener listener) {
+        this.listeners.remove(listener);
+    }
+
+    /**
+     * Gives access to the game driven by the engine.
+     *
+     * @return the game.
+     */
+    public Game getGame() {
+        return this.game;
+    }
+
+    /**
+     * Checks if the game is over.
+     *
+     * @return true if the game is over, false otherwise.
+     */
+    public boolean isOver() {
+        return this.over;
+    }
+
+    /**
+     * Gives the number of moves played through the engine, passes included.
+     *
+     * @return the number of moves.
+     */
+    public int getMoveCount() {
+        return this.moves;
+    }
+
+    /**
+     * Plays a move for the current player.
+     *
+     * @param move the move.
+     * @return OK if the move has been played, or the reason why it cannot be played.
+     */
+    public MoveResult play(Move move) {
+        if (this.over) {
+            return MoveResult.GAME_OVER;
+        }
+        int player = this.game.getCurrentPlayerIndex();
+        int score = this.game.getCurrentPlayerScore();
+        int bagSize = this.game.getBagSize();
+        MoveResult result;
+        if (move instanceof Move.Pass) {
+            this.game.pass();
+            result = MoveResult.OK;
+        } else if (move instanceof Move.First first) {
+            result = this.game.tryFirst(first.direction(), first.indexes());
+        } else if (move instanceof Move.Single single) {
+            result = this.game.tryPlay(single.row(), single.col(), single.index());
+        } else if (move instanceof Move.Line line) {
+            result = this.game.tryPlay(line.row(), line.col(), line.direction(), line.indexes());
+        } else {
+            result = this.game.tryPlay(((Move.Positions) move).is());
+        }
+        if (result.isOk()) {
+            endMove(player, score, bagSize, move);
+        }
+        return result;
+    }
+
+    /**
+     * Plays a move generated for the current player by {@link #generateMoves(MoveBuffer)}.
+     *
+     * @param moves the buffer holding the move.
+     * @param move  the index of the move in the buffer.
+     * @return OK if the move has been played, or the reason why it cannot be played.
+     */
+    public MoveResult play(MoveBuffer moves, int move) {
+        if (this.over) {
+            return MoveResult.GAME_OVER;
+        }
+        int player = this.game.getCurrentPlayerIndex();
+        int score = this.game.getCurrentPlayerScore();
+        int bagSize = this.game.getBagSize();
+        // The move is only built as a record for the listeners, before the buffer changes;
+        Move played = this.listeners.isEmpty() ? null : Move.of(moves, move);
+        MoveResult result = this.game.tryPlay(moves, move);
+        if (result.isOk()) {
+            endMove(player, score, bagSize, played);
+        }
+        return result;
+    }
+
+    /**
+     * Fills a buffer with every legal move of the current player, with its score.
+     *
+     * @param moves the buffer receiving the moves, cleared first.
+     */
+    public void generateMoves(MoveBuffer moves) {
+        this.game.generateMoves(moves);
+    }
+
+    /**
+     * Tells the listeners about a move that has been played and checks if it ends the game.
+     *
+     * @param player  the index of the player who played the move.
+     * @param score   the score of the player before the move.
+     * @param bagSize the number of tiles of the bag before the move.
+     * @param move    the move played, or null if there is no listener.
+     */
+    private void endMove(int player, int score, int bagSize, Move move) {
+        this.moves++;
+        for (GameListener listener : this.listeners) {
+            listener.onPlayed(player, move);
+            if (move instanceof Move.Pass) {
+                listener.onPass(player);
+            } else {
+                listener.onMove(player, this.game.getPlayers()[player].getScore() - score);
+            }
+            if (bagSize > 0 && this.game.getBagSize() == 0) {
+                listener.onBagEmpty();
+            }
+        }
+        if (this.game.isOver()) {
+            this.over = true;
+            if (!this.listeners.isEmpty()) {
+                List<String> winners = getWinners();
+                for (GameListener listener : this.listeners) {
+                    listener.onGameOver(winners);
+                }
+            }
+        }
+    }
+
+    /**
+     * Determines the winner(s) with the highest score in the game.
+     * Nobody wins if the highest score is not positive.
+     *
+     * @return A list of the name(s) of the winner(s).
+     */
+    public List<String> getWinners() {
+        List<String> winners = new ArrayList<>();
+        String[] names = this.game.getPlayersName();
+        for (int i : getWinnerIndexes()) {
+            winners.add(names[i]);
+        }
+        return winners;
+    }
+
+    /**
+     * Determines the index(es) of the winner(s) with the highest score in the game.
+     * Nobody wins if the highest score is not positive.
+     *
+     * @return the indexes of the winners, in the order of the players.
+     */
+    public int[] getWinnerIndexes() {
+        int[] scores = this.game.getPlayersScore();
+        int maxScore = scores[0];
+        for (int score : scores) {
+            maxScore = Math.max(maxScore, score);
+        }
+        int count = 0;
+        int[] winners = new int[scores.length];
+        if (maxScore > 0) {
+            for (int i = 0; i < scores.length; i++) {
+                if (scores[i] == maxScore) {
+                    winners[count] = i;
+                    count++;
+                }
+            }
+        }
+        return Arrays.copyOf(winners, count);
+    }
+}
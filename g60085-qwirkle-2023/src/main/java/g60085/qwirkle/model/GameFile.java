@@ -0,0 +1,399 @@
+package g60085.qwirkle.model;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * GameFile reads and writes the save files of the games in a compact, versioned binary format.
+ * A save only holds what a game cannot rebuild: the players with their names, scores and hands as ids of tiles,
+ * the bag as a count per kind of tile with the state of its random generator, and the tiles of the grid
+ * as (row, column, id) triplets in the order they were placed, so that a loaded game draws the same tiles
+ * as the saved one would have. All the numbers are big-endian:
+ * <pre>
+ * int    magic "QWKL"
+ * short  version
+ * short  size of the header, then the header (see {@link SaveInfo}): long time of the save in milliseconds,
+ *        int number of turns played, byte tiles left in the bag, byte number of players,
+ *        per player: int score, short length and UTF-8 bytes of the name
+ * byte   number of players, byte index of the current player
+ * long   seed of the bag, long state of its generator, 36 bytes tiles left per kind
+ * per player: short length and UTF-8 bytes of the name, int score, byte size of the hand, bytes ids of the tiles
+ * short  number of tiles on the grid, then per tile: short row, short column, byte id
+ * int    CRC32 of all the bytes before
+ * </pre>
+ * The header only repeats what a listing of the saves shows, so that it can be read without the game;
+ * the files of version 1 have no header. The files are written and read whole through a {@link FileChannel},
+ * and a file is replaced atomically by a new one, so that a crash while saving leaves the previous save intact.
+ * Each save is added to the index of its directory (see {@link SaveIndex}).
+ * The save files of the first versions of the game, written by Java serialization, are still read
+ * (see {@link LegacySave}), and so are the journals of the games being played (see {@link MoveJournal}).
+ */
+public final class GameFile {
+    private static final int MAGIC = 0x51574B4C; // "QWKL";
+    private static final short VERSION = 2;
+    private static final int HEADER_START = 8;
+    private static final short SERIALIZATION_MAGIC = (short) 0xACED;
+    private static final int MAX_SIZE = 1 << 16;
+
+    /**
+     * Prevents the instantiation of this utility class.
+     */
+    private GameFile() {
+    }
+
+    /**
+     * Writes a game to a file, replacing the file if it exists, and adds the save to the index of its directory.
+     *
+     * @param game the game.
+     * @param path the path of the file.
+     * @throws QwirkleException if the file cannot be written or its name is the one of the index.
+     */
+    public static void write(Game game, Path path) throws QwirkleException {
+        SaveInfo info = describe(game, path);
+        write(path, encode(game, info), info);
+    }
+
+    /**
+     * Describes the save of a game to a file made now.
+     *
+     * @param game the game.
+     * @param path the path of the file.
+     * @return the description of the save.
+     * @throws QwirkleException if the name of the file is the one of the index.
+     */
+    static SaveInfo describe(Game game, Path path) throws QwirkleException {
+        String file = path.getFileName().toString();
+        if (file.equals(SaveIndex.FILE_NAME)) {
+            throw new QwirkleException("This name is reserved for the index of the saves!");
+        }
+        return SaveInfo.of(file, System.currentTimeMillis(), game);
+    }
+
+    /**
+     * Writes an encoded game to a file, replacing the file if it exists, and adds the save to the index of its directory.
+     *
+     * @param path   the path of the file.
+     * @param buffer the encoded game, as given by {@link #encode(Game, SaveInfo)}.
+     * @param info   the description of the save.
+     * @throws QwirkleException if the file cannot be written.
+     */
+    static void write(Path path, ByteBuffer buffer, SaveInfo info) throws QwirkleException {
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temporary,
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(false);
+            }
+            try {
+                Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            throw new QwirkleException("An error occurred while writing the Game object to the file: " + e.getMessage());
+        }
+        SaveIndex.add(path.toAbsolutePath().getParent(), info);
+    }
+
+    /**
+     * Reads a game from a file, in the binary format, written by Java serialization or recorded by a {@link MoveJournal}.
+     *
+     * @param path the path of the file.
+     * @return the game, whose turns cannot be taken back.
+     * @throws QwirkleException if the file cannot be read or does not hold a game.
+     */
+    public static Game read(Path path) throws QwirkleException {
+        ByteBuffer buffer = readBytes(path, MAX_SIZE + 1);
+        if (buffer.remaining() > MAX_SIZE) {
+            throw new QwirkleException("The file is too large to be a save file!");
+        }
+        if (buffer.remaining() >= 2 && buffer.getShort(0) == SERIALIZATION_MAGIC) {
+            return LegacySave.read(buffer);
+        }
+        if (buffer.remaining() >= 4 && buffer.getInt(0) == MoveJournal.MAGIC) {
+            return MoveJournal.replay(buffer).getGame();
+        }
+        return decode(buffer);
+    }
+
+    /**
+     * Reads the description of the save in a file, from its header only when it has one.
+     * The journal of a game (see {@link MoveJournal}) is not a save: it is only kept until its game is left.
+     *
+     * @param path the path of the file.
+     * @return the description of the save, dated by the file for the saves without a header.
+     * @throws QwirkleException if the file cannot be read, does not hold a game or holds a journal.
+     */
+    public static SaveInfo readInfo(Path path) throws QwirkleException {
+        String file = path.getFileName().toString();
+        ByteBuffer start = readBytes(path, HEADER_START);
+        if (start.remaining() >= 4 && start.getInt(0) == MoveJournal.MAGIC) {
+            throw new QwirkleException("The file is the journal of a game, not a save!");
+        }
+        if (start.remaining() == HEADER_START && start.getInt(0) == MAGIC && start.getShort(4) >= 2) {
+            ByteBuffer header = readBytes(path, HEADER_START + (start.getShort(6) & 0xFFFF));
+            header.position(6);
+            return getInfo(header, file);
+        }
+        try {
+            return SaveInfo.of(file, Files.getLastModifiedTime(path).toMillis(), read(path));
+        } catch (IOException e) {
+            throw new QwirkleException("An error occurred while reading the file: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Reads the first bytes of a file.
+     *
+     * @param path  the path of the file.
+     * @param limit the number of bytes to read at most.
+     * @return the bytes read, ready to be read.
+     * @throws QwirkleException if the file cannot be read.
+     */
+    private static ByteBuffer readBytes(Path path, int limit) throws QwirkleException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(channel.size(), limit));
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                // Reads until the buffer is full;
+            }
+            return buffer.flip();
+        } catch (IOException e) {
+            throw new QwirkleException("An error occurred while reading the file: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Gives the size of the header describing a save, its own size included.
+     *
+     * @param names the UTF-8 bytes of the names of the players.
+     * @return the size in bytes.
+     */
+    private static int infoSize(byte[][] names) {
+        int size = 2 + 8 + 4 + 1 + 1;
+        for (byte[] name : names) {
+            size += 4 + 2 + name.length;
+        }
+        return size;
+    }
+
+    /**
+     * Encodes the header describing a save.
+     *
+     * @param info the description of the save.
+     * @return the bytes of the header, its size first.
+     */
+    static byte[] encodeInfo(SaveInfo info) {
+        byte[][] names = utf8(info.names());
+        ByteBuffer buffer = ByteBuffer.allocate(infoSize(names));
+        putInfo(buffer, info, names);
+        return buffer.array();
+    }
+
+    /**
+     * Writes the header describing a save.
+     *
+     * @param buffer the buffer receiving the header.
+     * @param info   the description of the save.
+     * @param names  the UTF-8 bytes of the names of the players.
+     */
+    private static void putInfo(ByteBuffer buffer, SaveInfo info, byte[][] names) {
+        buffer.putShort((short) (infoSize(names) - 2));
+        buffer.putLong(info.time());
+        buffer.putInt(info.moves());
+        buffer.put((byte) info.bagSize());
+        buffer.put((byte) names.length);
+        for (int i = 0; i < names.length; i++) {
+            buffer.putInt(info.scores()[i]);
+            buffer.putShort((short) names[i].length);
+            buffer.put(names[i]);
+        }
+    }
+
+    /**
+     * Reads the header describing a save.
+     *
+     * @param buffer the buffer positioned on the size of the header, then after the header.
+     * @param file   the name of the save file.
+     * @return the description of the save.
+     * @throws QwirkleException if the header is corrupted.
+     */
+    static SaveInfo getInfo(ByteBuffer buffer, String file) throws QwirkleException {
+        try {
+            int end = (buffer.getShort() & 0xFFFF) + buffer.position();
+            long time = buffer.getLong();
+            int moves = buffer.getInt();
+            int bagSize = buffer.get();
+            String[] names = new String[buffer.get()];
+            int[] scores = new int[names.length];
+            for (int i = 0; i < names.length; i++) {
+                scores[i] = buffer.getInt();
+                byte[] name = new byte[buffer.getShort()];
+                buffer.get(name);
+                names[i] = new String(name, StandardCharsets.UTF_8);
+            }
+            if (buffer.position() != end) {
+                throw new QwirkleException("The save file is corrupted!");
+            }
+            return new SaveInfo(file, time, moves, bagSize, names, scores);
+        } catch (BufferUnderflowException | NegativeArraySizeException e) {
+            throw new QwirkleException("The save file is corrupted!");
+        }
+    }
+
+    /**
+     * Encodes names in UTF-8.
+     *
+     * @param names the names.
+     * @return the bytes of each name.
+     */
+    private static byte[][] utf8(String[] names) {
+        byte[][] bytes = new byte[names.length][];
+        for (int i = 0; i < names.length; i++) {
+            bytes[i] = names[i].getBytes(StandardCharsets.UTF_8);
+        }
+        return bytes;
+    }
+
+    /**
+     * Encodes a game in the binary format, saved now.
+     *
+     * @param game the game.
+     * @return a buffer holding the encoded game, ready to be read.
+     */
+    public static ByteBuffer encode(Game game) {
+        return encode(game, SaveInfo.of("", System.currentTimeMillis(), game));
+    }
+
+    /**
+     * Encodes a game in the binary format.
+     *
+     * @param game the game.
+     * @param info the description of the save, written in the header.
+     * @return a buffer holding the encoded game, ready to be read.
+     */
+    static ByteBuffer encode(Game game, SaveInfo info) {
+        Player[] players = game.getPlayers();
+        Bag bag = game.getBag();
+        Grid grid = game.getModelGrid();
+        byte[][] names = utf8(info.names());
+        int size = 4 + 2 + infoSize(names) + 2 + 8 + 8 + Tile.KINDS + 2 + grid.placedCount() * 5 + 4;
+        for (int i = 0; i < players.length; i++) {
+            size += 2 + names[i].length + 4 + 1 + players[i].handSize();
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.putInt(MAGIC);
+        buffer.putShort(VERSION);
+        putInfo(buffer, info, names);
+        buffer.put((byte) players.length);
+        buffer.put((byte) game.getCurrentPlayerIndex());
+        buffer.putLong(bag.getSeed());
+        buffer.putLong(bag.state());
+        for (int type = 0; type < Tile.KINDS; type++) {
+            buffer.put((byte) bag.count(type));
+        }
+        for (int i = 0; i < players.length; i++) {
+            buffer.putShort((short) names[i].length);
+            buffer.put(names[i]);
+            buffer.putInt(players[i].getScore());
+            buffer.put((byte) players[i].handSize());
+            for (int j = 0; j < players[i].handSize(); j++) {
+                buffer.put((byte) players[i].tileAt(j));
+            }
+        }
+        buffer.putShort((short) grid.placedCount());
+        for (int i = 0; i < grid.placedCount(); i++) {
+            long cell = grid.placedCell(i);
+            buffer.putShort((short) Grid.cellRow(cell));
+            buffer.putShort((short) Grid.cellCol(cell));
+            buffer.put((byte) grid.get(Grid.cellRow(cell), Grid.cellCol(cell)).id());
+        }
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), 0, buffer.position());
+        buffer.putInt((int) crc.getValue());
+        return buffer.flip();
+    }
+
+    /**
+     * Decodes a game from the binary format, of any version.
+     * Each kind of tile must be found 3 times in the bag, the hands and the grid.
+     *
+     * @param buffer the buffer holding the encoded game, from its position to its limit.
+     * @return the game.
+     * @throws QwirkleException if the buffer does not hold a valid game.
+     */
+    public static Game decode(ByteBuffer buffer) throws QwirkleException {
+        try {
+            int start = buffer.position();
+            if (buffer.getInt() != MAGIC) {
+                throw new QwirkleException("The file is not a save file!");
+            }
+            short version = buffer.getShort();
+            if (version > VERSION) {
+                throw new QwirkleException("The save file comes from a newer version of the game!");
+            }
+            CRC32 crc = new CRC32();
+            crc.update(buffer.duplicate().position(start).limit(buffer.limit() - 4));
+            if ((int) crc.getValue() != buffer.getInt(buffer.limit() - 4)) {
+                throw new QwirkleException("The save file is corrupted!");
+            }
+            int moveCount = version >= 2 ? getInfo(buffer, "").moves() : 0;
+            int[] tiles = new int[Tile.KINDS];
+            Player[] players = new Player[buffer.get()];
+            int currentPlayer = buffer.get();
+            Bag bag = new Bag(buffer.getLong());
+            bag.restore(buffer.getLong());
+            int[] left = new int[Tile.KINDS];
+            for (int type = 0; type < Tile.KINDS; type++) {
+                left[type] = buffer.get();
+                tiles[type] += left[type];
+            }
+            for (int i = 0; i < players.length; i++) {
+                byte[] name = new byte[buffer.getShort()];
+                buffer.get(name);
+                players[i] = new Player(new String(name, StandardCharsets.UTF_8), buffer.getInt());
+                int handSize = buffer.get();
+                for (int j = 0; j < handSize; j++) {
+                    Tile tile = Tile.of(buffer.get());
+                    players[i].insert(j, tile);
+                    tiles[tile.id()]++;
+                }
+            }
+            Grid grid = new Grid();
+            int placed = buffer.getShort();
+            for (int i = 0; i < placed; i++) {
+                int row = buffer.getShort();
+                int col = buffer.getShort();
+                Tile tile = Tile.of(buffer.get());
+                grid.load(row, col, tile);
+                tiles[tile.id()]++;
+            }
+            for (int type = 0; type < Tile.KINDS; type++) {
+                if (tiles[type] != 3) {
+                    throw new QwirkleException("The save file is corrupted!");
+                }
+                for (int i = left[type]; i < 3; i++) {
+                    bag.remove(type);
+                }
+            }
+            if (players.length < 2 || players.length > 4 || currentPlayer < 0 || currentPlayer >= players.length) {
+                throw new QwirkleException("The save file is corrupted!");
+            }
+            return new Game(grid, bag, players, currentPlayer, moveCount);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | NegativeArraySizeException e) {
+            throw new QwirkleException("The save file is corrupted!");
+        }
+    }
+}
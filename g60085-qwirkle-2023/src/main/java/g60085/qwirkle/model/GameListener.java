@@ -0,0 +1,51 @@
+package g60085.qwirkle.model;
+
+import java.util.List;
+
+/**
+ * GameListener is told by a {@link GameEngine} what happens during a game.
+ * Each method does nothing by default, so that a listener only overrides the events it needs.
+ */
+public interface GameListener {
+
+    /**
+     * Called after each turn, passes included, before the other events of the turn.
+     * A move generated in a buffer is given as built by {@link Move#of(MoveBuffer, int)}.
+     *
+     * @param player the index of the player.
+     * @param move   the move played.
+     */
+    default void onPlayed(int player, Move move) {
+    }
+
+    /**
+     * Called when a player has placed tiles on the grid.
+     *
+     * @param player the index of the player.
+     * @param score  the points obtained by the move.
+     */
+    default void onMove(int player, int score) {
+    }
+
+    /**
+     * Called when a player has passed their turn.
+     *
+     * @param player the index of the player.
+     */
+    default void onPass(int player) {
+    }
+
+    /**
+     * Called when the last tile of the bag has been drawn.
+     */
+    default void onBagEmpty() {
+    }
+
+    /**
+     * Called once when the game is over, after the points of the end of the game are given.
+     *
+     * @param winners the names of the winners.
+     */
+    default void onGameOver(List<String> winners) {
+    }
+}
@@ -0,0 +1,63 @@
+package g60085.qwirkle.model;
+
+/**
+ * GameSummary gives the figures of a finished game of a {@link GameArchive}, found by playing its turns again.
+ *
+ * @param game        the index of the game in the archive.
+ * @param firstPlayer the index of the first player.
+ * @param scores      the final scores of the players, the points of the end of the game included.
+ * @param turns       the number of turns played, passes included.
+ * @param passes      the number of turns where the player has passed.
+ * @param qwirkles    the number of lines of 6 tiles made.
+ * @param tiles       the number of tiles placed on the grid.
+ */
+public record GameSummary(int game, int firstPlayer, int[] scores, int turns, int passes, int qwirkles, int tiles) {
+
+    /**
+     * Gives the number of players of the game.
+     *
+     * @return the number of players.
+     */
+    public int players() {
+        return this.scores.length;
+    }
+
+    /**
+     * Gives the highest final score of the game.
+     *
+     * @return the best score.
+     */
+    public int bestScore() {
+        int best = Integer.MIN_VALUE;
+        for (int score : this.scores) {
+            best = Math.max(best, score);
+        }
+        return best;
+    }
+
+    /**
+     * Checks if a player is one of the winners: the players with the highest score, if it is positive.
+     *
+     * @param player the index of the player.
+     * @return true if the player has won the game, false otherwise.
+     */
+    public boolean isWinner(int player) {
+        int best = bestScore();
+        return best > 0 && this.scores[player] == best;
+    }
+
+    /**
+     * Gives the number of winners of the game, who share the win.
+     *
+     * @return the number of winners, 0 if nobody has a positive score.
+     */
+    public int winnerCount() {
+        int count = 0;
+        for (int player = 0; player < this.scores.length; player++) {
+            if (isWinner(player)) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
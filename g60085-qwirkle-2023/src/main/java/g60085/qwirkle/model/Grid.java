@@ -1,33 +1,78 @@
 package g60085.qwirkle.model;
 
 import java.io.Serializable;
-import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collections;
-import java.util.List;
+import java.util.PrimitiveIterator;
 
 
 /**
  * The `Grid` class represents the game grid in the Qwirkle game.
  * It holds the tiles placed on the grid and provides operations for manipulating the grid.
- * The grid is represented as a two-dimensional array of tiles.
+ * The grid is unbounded: only the cells holding a tile are stored, in a sparse map keyed by position,
+ * and the smallest rectangle containing all the tiles is tracked.
+ * A bitboard of the occupied cells is kept alongside the tiles to answer adjacency and emptiness questions
+ * with word-wide bit operations, and the frontier (the empty cells next to a tile, where moves start)
+ * is updated each time a tile is placed, along with the kinds of tiles each of its cells accepts.
+ * The tiles are remembered in the order they are placed, so that the last ones can be taken back without copying,
+ * and a Zobrist hash of the placed tiles is kept up to date.
  * Each cell in the grid can hold a single tile object.
  * The `Grid` class supports operations such as placing tiles, checking if the grid is empty,
  * and accessing specific cells or tiles on the grid.
  * It is serializable to support saving and loading grid state along with the game.
  */
 public class Grid implements Serializable {
-    private Tile[][] line;
+    /**
+     * The row and the column where the first tile is placed.
+     */
+    public static final int ORIGIN = 45;
+
+    /**
+     * The parts of the features of a line: one bit per kind of tile, then one per color and one per shape.
+     */
+    static final long SEEN_MASK = (1L << 36) - 1;
+    static final long COLOR_MASK = 0x3FL << 36;
+    static final long SHAPE_MASK = 0x3FL << 42;
+    private static final long ONE_SHAPE_TYPES = 0x041041041041L;
+    private static final long[] FEATURES = new long[Tile.KINDS];
+
+    static {
+        for (int id = 0; id < Tile.KINDS; id++) {
+            Tile tile = Tile.of(id);
+            FEATURES[id] = 1L << id | 1L << (36 + tile.color().ordinal()) | 1L << (42 + tile.shape().ordinal());
+        }
+    }
+
+    private final TileMap tiles;
+    private final Occupancy occupancy;
+    private final Frontier frontier;
+    private long[] history;
+    private int[] boundsHistory;
+    private int historySize;
+    private long hash;
     private boolean isEmpty;
+    private int minRow;
+    private int maxRow;
+    private int minCol;
+    private int maxCol;
 
     /**
      * Initializes a new instance of the `Grid` class.
-     * The grid is created as a two-dimensional array with a size of 91x91.
+     * No cell is allocated until a tile is placed on it.
      * Initially, the grid is considered empty.
      */
     public Grid() {
-        this.line = new Tile[91][91];
+        this.tiles = new TileMap();
+        this.occupancy = new Occupancy(ORIGIN);
+        this.frontier = new Frontier();
+        this.history = new long[108];
+        this.boundsHistory = new int[108 * 4];
+        this.historySize = 0;
+        this.hash = 0;
         this.isEmpty = true;
+        this.minRow = ORIGIN;
+        this.maxRow = ORIGIN;
+        this.minCol = ORIGIN;
+        this.maxCol = ORIGIN;
     }
 
     /**
@@ -35,13 +80,10 @@ public class Grid implements Serializable {
      *
      * @param row The row index of the tile in the grid.
      * @param col The column index of the tile in the grid.
-     * @return The tile located at the specified position, or null if the position is outside the grid.
+     * @return The tile located at the specified position, or null if there is no tile at this position.
      */
     public Tile get(int row, int col) {
-        if (row > 91 || row < 0 || col > 91 || col < 0) {
-            return null;
-        }
-        return this.line[row][col];
+        return this.tiles.get(TileMap.key(row, col));
     }
 
     /**
@@ -54,41 +96,62 @@ public class Grid implements Serializable {
      * @throws QwirkleException if the addition of tiles does not comply with the rules of the Qwirkle game.
      */
     public int firstAdd(Direction direction, Tile... line) throws QwirkleException {
+        requireOk(checkFirst(direction, line));
+        return placeFirst(direction, line);
+    }
+
+    /**
+     * Places the first set of tiles on the grid without checking them.
+     *
+     * @param direction The direction in which the tiles will be placed.
+     * @param line      The tiles to add to the grid, already checked by {@link #checkFirst(Direction, Tile...)}.
+     * @return The total number of tiles added to the grid, which corresponds to the score obtained.
+     */
+    int placeFirst(Direction direction, Tile... line) {
+        // Add the tiles to the grid
+        int row = ORIGIN;
+        int col = ORIGIN;
+        put(row, col, line[0]);
+        for (int i = 1; i < line.length; i++) {
+            row += direction.getDeltaRow();
+            col += direction.getDeltaCol();
+            put(row, col, line[i]);
+        }
+        this.isEmpty = false; // Set the "isEmpty" attribute to false
+        // Return the total number of tiles added to the grid
+        return line.length == 6 ? line.length + 6 : line.length;
+    }
+
+    /**
+     * Checks, without throwing, if the first set of tiles can be added to the game grid.
+     *
+     * @param direction The direction in which the tiles would be placed.
+     * @param line      The tiles to add to the grid.
+     * @return OK if the tiles can be added, or the reason why they cannot.
+     */
+    public MoveResult checkFirst(Direction direction, Tile... line) {
         // Check if the grid is empty
         if (!isEmpty()) {
-            throw new QwirkleException("The grid is not empty!");
+            return MoveResult.GRID_NOT_EMPTY;
         }
         // Check the line, tiles, and direction
         if (!validLine(line)) {
-            throw new QwirkleException("Invalid number of tiles!");
+            return MoveResult.INVALID_NUMBER_OF_TILES;
         }
         if (!validDirection(direction)) {
-            throw new QwirkleException("Invalid direction!");
+            return MoveResult.INVALID_DIRECTION;
         }
         if (!isTileInit(line)) {
-            throw new QwirkleException("Some tiles are not initialized!");
+            return MoveResult.TILE_NOT_INITIALIZED;
         }
         // Check if there is a common characteristic between tiles
-        if (line.length > 1) {
-            if (!validColorOrShape(line)) {
-                throw new QwirkleException("Tiles must share the same color or shape!");
-            }
-            if (hasDuplicateTiles(line)) {
-                throw new QwirkleException("You cannot add the same tile!");
-            }
+        if (!validColorOrShape(line)) {
+            return MoveResult.NO_COMMON_TRAIT;
         }
-        // Add the tiles to the grid
-        int row = 45;
-        int col = 45;
-        this.line[row][col] = line[0];
-        for (int i = 1; i < line.length; i++) {
-            row += direction.getDeltaRow();
-            col += direction.getDeltaCol();
-            this.line[row][col] = line[i];
+        if (hasDuplicateTiles(line)) {
+            return MoveResult.DUPLICATE;
         }
-        this.isEmpty = false; // Set the "isEmpty" attribute to false
-        // Return the total number of tiles added to the grid
-        return line.length == 6 ? line.length + 6 : line.length;
+        return MoveResult.OK;
     }
 
     /**
@@ -101,33 +164,52 @@ public class Grid implements Serializable {
      * @throws QwirkleException if the addition of the tile does not comply with the rules of the Qwirkle game.
      */
     public int add(int row, int col, Tile tile) throws QwirkleException {
+        requireOk(check(row, col, tile));
+        return place(row, col, tile);
+    }
+
+    /**
+     * Places a tile on the grid without checking it.
+     *
+     * @param row  The row of the tile to be added.
+     * @param col  The column of the tile to be added.
+     * @param tile The tile to be added, already checked by {@link #check(int, int, Tile)}.
+     * @return The score obtained by adding the tile.
+     */
+    int place(int row, int col, Tile tile) {
+        // Add the tile to the grid
+        put(row, col, tile);
+
+        // Calculate and return the score obtained
+        return score(row, col, Direction.RIGHT, 1);
+    }
+
+    /**
+     * Checks, without throwing, if a tile can be added to the specified position on the grid.
+     *
+     * @param row  The row of the tile to be added.
+     * @param col  The column of the tile to be added.
+     * @param tile The tile to be added.
+     * @return OK if the tile can be added, or the reason why it cannot.
+     */
+    public MoveResult check(int row, int col, Tile tile) {
         if (isEmpty()) {
-            throw new QwirkleException("The grid game is empty! You must call the firstAdd method!");
-        }
-        if (!validPosition(row, col, Direction.RIGHT, tile)) {
-            throw new QwirkleException("Position outside the grid!");
+            return MoveResult.GRID_EMPTY;
         }
-        if (!validLine(tile)) {
-            throw new QwirkleException("Invalid number of tiles!");
+        if (tile == null) {
+            return MoveResult.TILE_NOT_INITIALIZED;
         }
-        if (!isTileInit(tile)) {
-            throw new QwirkleException("Some tiles are not initialized!");
+        if (isTilePresent(row, col)) {
+            return MoveResult.OCCUPIED;
         }
-        if (existAlreadyTile(row, col, Direction.RIGHT, tile)) {
-            throw new QwirkleException("There is already a tile at this position!");
+        long key = TileMap.key(row, col);
+        if (!this.frontier.contains(key)) {
+            return MoveResult.NOT_ADJACENT;
         }
-        if (!adjacentTiles(row, col, Direction.RIGHT, tile)) {
-            throw new QwirkleException("The tiles are not connected to another tile!");
+        if ((this.frontier.maskOf(key) & typeMask(tile)) == 0) {
+            return MoveResult.BREAKS_RULES;
         }
-        if (!validRulesAdd(row, col, Direction.RIGHT, tile)) {
-            throw new QwirkleException("Does not respect the rules of Qwirkle game!");
-        }
-
-        // Add the tile to the grid
-        this.line[row][col] = tile;
-
-        // Calculate and return the score obtained
-        return score(row, col, Direction.RIGHT, tile);
+        return MoveResult.OK;
     }
 
     /**
@@ -141,40 +223,63 @@ public class Grid implements Serializable {
      * @throws QwirkleException if the addition of tiles does not comply with the rules of the Qwirkle game.
      */
     public int add(int row, int col, Direction d, Tile... line) throws QwirkleException {
-        if (isEmpty()) {
-            throw new QwirkleException("The grid game is empty! You must call the firstAdd method!");
+        requireOk(check(row, col, d, line));
+        return place(row, col, d, line);
+    }
+
+    /**
+     * Places multiple tiles in the given direction without checking them.
+     *
+     * @param row  The row of the first tile position.
+     * @param col  The column of the first tile position.
+     * @param d    The direction of tile placement.
+     * @param line The tiles to be added, already checked by {@link #check(int, int, Direction, Tile...)}.
+     * @return The score obtained by adding the tiles.
+     */
+    int place(int row, int col, Direction d, Tile... line) {
+        // Add the tiles to the grid
+        for (int i = 0; i < line.length; i++) {
+            int newRow = row + i * d.getDeltaRow();
+            int newCol = col + i * d.getDeltaCol();
+            put(newRow, newCol, line[i]);
         }
-        if (!validPosition(row, col, d, line)) {
-            throw new QwirkleException("Position outside the grid!");
+
+        // Calculate and return the score obtained
+        return score(row, col, d, line.length);
+    }
+
+    /**
+     * Checks, without throwing, if multiple tiles can be added at a specified position in the given direction.
+     *
+     * @param row  The row of the first tile position.
+     * @param col  The column of the first tile position.
+     * @param d    The direction of tile placement.
+     * @param line The tiles to be added.
+     * @return OK if the tiles can be added, or the reason why they cannot.
+     */
+    public MoveResult check(int row, int col, Direction d, Tile... line) {
+        if (isEmpty()) {
+            return MoveResult.GRID_EMPTY;
         }
         if (!validLine(line)) {
-            throw new QwirkleException("Invalid number of tiles!");
+            return MoveResult.INVALID_NUMBER_OF_TILES;
         }
         if (!validDirection(d)) {
-            throw new QwirkleException("Invalid direction!");
+            return MoveResult.INVALID_DIRECTION;
         }
         if (!isTileInit(line)) {
-            throw new QwirkleException("Some tiles are not initialized!");
+            return MoveResult.TILE_NOT_INITIALIZED;
         }
         if (existAlreadyTile(row, col, d, line)) {
-            throw new QwirkleException("There is already a tile at this position!");
+            return MoveResult.OCCUPIED;
         }
         if (!adjacentTiles(row, col, d, line)) {
-            throw new QwirkleException("The tiles are not connected to another tile!");
+            return MoveResult.NOT_ADJACENT;
         }
         if (!validRulesAdd(row, col, d, line)) {
-            throw new QwirkleException("Does not respect the rules of Qwirkle game!");
-        }
-
-        // Add the tiles to the grid
-        for (int i = 0; i < line.length; i++) {
-            int newRow = row + i * d.getDeltaRow();
-            int newCol = col + i * d.getDeltaCol();
-            this.line[newRow][newCol] = line[i];
+            return MoveResult.BREAKS_RULES;
         }
-
-        // Calculate and return the score obtained
-        return score(row, col, d, line);
+        return MoveResult.OK;
     }
 
     /**
@@ -185,72 +290,267 @@ public class Grid implements Serializable {
      * @throws QwirkleException if the addition of tiles does not comply with the rules of the Qwirkle game.
      */
     public int add(TileAtPosition... line) throws QwirkleException {
-        if (line.length == 1) {
-            return add(line[0].row(), line[0].col(), line[0].tile());
-        } else {
-            if (isEmpty()) {
-                throw new QwirkleException("The grid game is empty! You must call the firstAdd method!");
+        requireOk(checkTilesAtPosition(line));
+        int[] rows = new int[line.length];
+        int[] cols = new int[line.length];
+        Tile[] tiles = new Tile[line.length];
+        unpack(line, rows, cols, tiles);
+        return addPositions(line.length, rows, cols, tiles);
+    }
+
+    /**
+     * Checks, without throwing, if tiles can be added at any position on the grid.
+     *
+     * @param line The tiles to add at any position.
+     * @return OK if the tiles can be added, or the reason why they cannot.
+     */
+    public MoveResult check(TileAtPosition... line) {
+        MoveResult result = checkTilesAtPosition(line);
+        if (result.isOk()) {
+            int[] rows = new int[line.length];
+            int[] cols = new int[line.length];
+            Tile[] tiles = new Tile[line.length];
+            unpack(line, rows, cols, tiles);
+            result = checkPositions(line.length, rows, cols, tiles);
+        }
+        return result;
+    }
+
+    /**
+     * Adds tiles given as parallel arrays at any position on the grid, following the rules of the Qwirkle game.
+     * The arrays may be longer than the number of tiles, so that callers can reuse them.
+     *
+     * @param length the number of tiles to add.
+     * @param rows   the rows of the tiles.
+     * @param cols   the columns of the tiles.
+     * @param tiles  the tiles to add.
+     * @return The score obtained by adding the tiles.
+     * @throws QwirkleException if the addition of tiles does not comply with the rules of the Qwirkle game.
+     */
+    int addPositions(int length, int[] rows, int[] cols, Tile[] tiles) throws QwirkleException {
+        requireOk(checkPositions(length, rows, cols, tiles));
+        return placePositions(length, rows, cols, tiles);
+    }
+
+    /**
+     * Places tiles given as parallel arrays on the grid without checking them.
+     *
+     * @param length the number of tiles to add.
+     * @param rows   the rows of the tiles.
+     * @param cols   the columns of the tiles.
+     * @param tiles  the tiles to add, already checked by {@link #checkPositions(int, int[], int[], Tile[])}.
+     * @return The score obtained by adding the tiles.
+     */
+    int placePositions(int length, int[] rows, int[] cols, Tile[] tiles) {
+        for (int i = 0; i < length; i++) {
+            put(rows[i], cols[i], tiles[i]);
+        }
+        return scorePositions(length, rows, cols);
+    }
+
+    /**
+     * Checks, without throwing and without allocating, if tiles given as parallel arrays can be added on the grid.
+     * All the tiles must be on the same row or column, with no hole between them once added,
+     * and at least one of them must touch a tile of the grid.
+     *
+     * @param length the number of tiles to add.
+     * @param rows   the rows of the tiles.
+     * @param cols   the columns of the tiles.
+     * @param tiles  the tiles to add.
+     * @return OK if the tiles can be added, or the reason why they cannot.
+     */
+    MoveResult checkPositions(int length, int[] rows, int[] cols, Tile[] tiles) {
+        if (length == 1) {
+            return check(rows[0], cols[0], tiles[0]);
+        }
+        if (isEmpty()) {
+            return MoveResult.GRID_EMPTY;
+        }
+        if (length < 1 || length > 6) {
+            return MoveResult.INVALID_NUMBER_OF_TILES;
+        }
+        long placed = 0;
+        for (int i = 0; i < length; i++) {
+            if (tiles[i] == null) {
+                return MoveResult.TILE_NOT_INITIALIZED;
             }
-            Tile[] lineTiles = new Tile[line.length];
-            for (int i = 0; i < line.length; i++) {
-                lineTiles[i] = line[i].tile();
+            placed |= features(tiles[i]);
+        }
+        if (!sharesColorOrShape(placed)) {
+            return MoveResult.NO_COMMON_TRAIT;
+        }
+        if (Long.bitCount(placed & SEEN_MASK) != length) {
+            return MoveResult.DUPLICATE;
+        }
+        boolean sameRow = true;
+        boolean sameCol = true;
+        for (int i = 0; i < length; i++) {
+            if (isTilePresent(rows[i], cols[i])) {
+                return MoveResult.OCCUPIED;
             }
-            if (!validLine(lineTiles)) {
-                throw new QwirkleException("Invalid number of tiles!");
+            sameRow = sameRow && rows[i] == rows[0];
+            sameCol = sameCol && cols[i] == cols[0];
+        }
+        if (!sameRow && !sameCol) {
+            return MoveResult.NOT_SAME_LINE;
+        }
+        Direction d = sameRow ? Direction.RIGHT : Direction.DOWN;
+        int[] along = sameRow ? cols : rows;
+        int min = along[0];
+        int max = along[0];
+        for (int i = 0; i < length; i++) {
+            for (int j = i + 1; j < length; j++) {
+                if (along[i] == along[j]) {
+                    return MoveResult.SAME_POSITION;
+                }
             }
-            if (!validColorOrShape(lineTiles)) {
-                throw new QwirkleException("Tiles must share the same color or shape!");
+            min = Math.min(min, along[i]);
+            max = Math.max(max, along[i]);
+        }
+        // The tiles and the tiles of the grid between them must form a single line;
+        int firstRow = sameRow ? rows[0] : min;
+        int firstCol = sameRow ? min : cols[0];
+        int span = max - min + 1;
+        long line = placed;
+        for (int k = 0; k < span; k++) {
+            int row = firstRow + k * d.getDeltaRow();
+            int col = firstCol + k * d.getDeltaCol();
+            if (isTilePresent(row, col)) {
+                line |= features(get(row, col));
+            } else if (indexOf(along, length, min + k) < 0) {
+                return MoveResult.NOT_ADJACENT;
             }
-            if (hasDuplicateTiles(lineTiles)) {
-                throw new QwirkleException("You cannot add the same tile!");
+        }
+        boolean connected = span > length;
+        int i = 0;
+        while (!connected && i < length) {
+            connected = isTilePresent(rows[i] - 1, cols[i]) || isTilePresent(rows[i] + 1, cols[i])
+                    || isTilePresent(rows[i], cols[i] - 1) || isTilePresent(rows[i], cols[i] + 1);
+            i++;
+        }
+        if (!connected) {
+            return MoveResult.NOT_ADJACENT;
+        }
+        // Qwirkle rules;
+        if (!validTilesLine(firstRow, firstCol, d, line, span)) {
+            return MoveResult.BREAKS_RULES;
+        }
+        for (i = 0; i < length; i++) {
+            if (!validTilesLine(rows[i], cols[i], d.diagonal(), features(tiles[i]), 1)) {
+                return MoveResult.BREAKS_RULES;
             }
-            // For each tile;
-            List<Integer> tilesRow = new ArrayList<>();
-            List<Integer> tilesCol = new ArrayList<>();
-            List<Integer> sumRowCol = new ArrayList<>();
-            for (TileAtPosition tileAtPosition : line) {
-                int row = tileAtPosition.row();
-                tilesRow.add(row);
-                int col = tileAtPosition.col();
-                tilesCol.add(col);
-                Tile tile = tileAtPosition.tile();
-                if (!validPosition(row, col, Direction.RIGHT, tile)) { // The direction doesn't matter;
-                    throw new QwirkleException("Position outside the grid!");
-                }
-                if (!isTileInit(tile)) {
-                    throw new QwirkleException("Some tiles are not initialized!");
-                }
-                if (existAlreadyTile(row, col, Direction.RIGHT, tile)) {
-                    throw new QwirkleException("There is already a tile at this position!");
-                }
-                if (!tilesSameLine(tilesRow, tilesCol)) {
-                    throw new QwirkleException("Tiles are not on the same line!");
-                }
-                sumRowCol.add(row + col);
-                if (tileAtPositionSamePosition(sumRowCol)) {
-                    throw new QwirkleException("You cannot put two tiles at the same position!");
-                }
-                // Qwirkle rules;
-                if (!validRulesAdd(row, col, Direction.RIGHT, tile)) {
-                    throw new QwirkleException("Does not respect the rules of qwirkle game!");
-                }
+        }
+        return MoveResult.OK;
+    }
 
+    /**
+     * Checks that the tiles at any position are well initialized before they are unpacked.
+     *
+     * @param line The tiles to add at any position.
+     * @return OK if the array can be unpacked, or the reason why it cannot.
+     */
+    private MoveResult checkTilesAtPosition(TileAtPosition... line) {
+        if (isEmpty()) {
+            return MoveResult.GRID_EMPTY;
+        }
+        if (line == null || line.length == 0 || line.length > 6) {
+            return MoveResult.INVALID_NUMBER_OF_TILES;
+        }
+        for (TileAtPosition tileAtPosition : line) {
+            if (tileAtPosition == null) {
+                return MoveResult.TILE_NOT_INITIALIZED;
             }
-            // We place the tiles in order to verify if tiles are adjacent;
-            for (TileAtPosition tileAtPosition : line) {
-                this.line[tileAtPosition.row()][tileAtPosition.col()] = tileAtPosition.tile();
-            }
+        }
+        return MoveResult.OK;
+    }
 
-            if (!adjacentTileAtPosition(tilesRow, tilesCol, line[0])) {
-                // We remove the tiles if not adjacent;
-                for (TileAtPosition tileAtPosition : line) {
-                    this.line[tileAtPosition.row()][tileAtPosition.col()] = null;
-                }
-                throw new QwirkleException("The tiles are not connected to another tile!");
-            }
+    /**
+     * Copies the tiles at any position into parallel arrays.
+     *
+     * @param line  The tiles at any position.
+     * @param rows  the array receiving the rows.
+     * @param cols  the array receiving the columns.
+     * @param tiles the array receiving the tiles.
+     */
+    private static void unpack(TileAtPosition[] line, int[] rows, int[] cols, Tile[] tiles) {
+        for (int i = 0; i < line.length; i++) {
+            rows[i] = line[i].row();
+            cols[i] = line[i].col();
+            tiles[i] = line[i].tile();
+        }
+    }
+
+    /**
+     * Gives the index of a value among the first values of an array.
+     *
+     * @param values the array to search.
+     * @param length the number of values to consider.
+     * @param value  the value to find.
+     * @return the index of the value, or -1 if it is not found.
+     */
+    private static int indexOf(int[] values, int length, int value) {
+        int i = 0;
+        while (i < length && values[i] != value) {
+            i++;
+        }
+        return i < length ? i : -1;
+    }
 
+    /**
+     * Throws the exception matching a result if it is not OK.
+     *
+     * @param result the result of a check.
+     * @throws QwirkleException if the result is not OK.
+     */
+    private static void requireOk(MoveResult result) throws QwirkleException {
+        if (!result.isOk()) {
+            throw new QwirkleException(result.getMessage());
         }
-        return scoreRulesAdd3(line);
+    }
+
+    /**
+     * Gives a token to take back the tiles placed from now on with {@link #undo(int)}.
+     * Nothing is copied: the grid only remembers the order in which the tiles have been placed.
+     *
+     * @return the number of tiles placed so far.
+     */
+    public int mark() {
+        return this.historySize;
+    }
+
+    /**
+     * Takes back, most recent first, the tiles placed since a token was given by {@link #mark()},
+     * restoring the cells, the bounding box, the frontier and the masks of its cells exactly.
+     *
+     * @param token a token given by {@link #mark()} on this grid.
+     * @throws QwirkleException if the token does not come from this grid or some of its tiles are already taken back.
+     */
+    public void undo(int token) throws QwirkleException {
+        if (token < 0 || token > this.historySize) {
+            throw new QwirkleException("Invalid undo token!");
+        }
+        while (this.historySize > token) {
+            this.historySize--;
+            long key = this.history[this.historySize];
+            clear(TileMap.row(key), TileMap.col(key));
+            // The bounding box is the one before the tile was placed;
+            this.minRow = this.boundsHistory[this.historySize * 4];
+            this.maxRow = this.boundsHistory[this.historySize * 4 + 1];
+            this.minCol = this.boundsHistory[this.historySize * 4 + 2];
+            this.maxCol = this.boundsHistory[this.historySize * 4 + 3];
+        }
+        this.isEmpty = this.tiles.size() == 0;
+    }
+
+    /**
+     * Gives the Zobrist hash of the tiles placed on the grid: the xor of a key per cell and kind of tile.
+     * Two grids holding the same tiles at the same positions have the same hash, whatever the order of the moves.
+     * It is updated in O(1) per tile placed or taken back.
+     *
+     * @return the hash of the grid, 0 for an empty grid.
+     */
+    public long hash() {
+        return this.hash;
     }
 
     /**
@@ -262,6 +562,379 @@ public class Grid implements Serializable {
         return this.isEmpty;
     }
 
+    /**
+     * Gives the number of tiles placed on the grid.
+     *
+     * @return the number of tiles on the grid.
+     */
+    public int size() {
+        return this.tiles.size();
+    }
+
+    /**
+     * Gives the smallest row holding a tile.
+     *
+     * @return the top row of the bounding box of the tiles.
+     */
+    public int getMinRow() {
+        return this.minRow;
+    }
+
+    /**
+     * Gives the greatest row holding a tile.
+     *
+     * @return the bottom row of the bounding box of the tiles.
+     */
+    public int getMaxRow() {
+        return this.maxRow;
+    }
+
+    /**
+     * Gives the smallest column holding a tile.
+     *
+     * @return the left column of the bounding box of the tiles.
+     */
+    public int getMinCol() {
+        return this.minCol;
+    }
+
+    /**
+     * Gives the greatest column holding a tile.
+     *
+     * @return the right column of the bounding box of the tiles.
+     */
+    public int getMaxCol() {
+        return this.maxCol;
+    }
+
+    /**
+     * Gives the number of empty cells next to at least one tile.
+     *
+     * @return the size of the frontier.
+     */
+    public int frontierSize() {
+        return this.frontier.size();
+    }
+
+    /**
+     * Gives an iterator over the empty cells next to at least one tile, where every move must start or pass.
+     * The cells are packed positions read with {@link #cellRow(long)} and {@link #cellCol(long)}.
+     * The grid must not be modified while the iterator is used.
+     *
+     * @return a primitive iterator over the packed positions of the frontier.
+     */
+    public PrimitiveIterator.OfLong frontier() {
+        return this.frontier.iterator();
+    }
+
+    /**
+     * Gives a cell of the frontier by its place, to walk the frontier without allocating an iterator.
+     *
+     * @param i the place of the cell, between 0 and frontierSize() - 1.
+     * @return the packed position of the cell.
+     */
+    long frontierCell(int i) {
+        return this.frontier.cell(i);
+    }
+
+    /**
+     * Gives the kinds of tiles that may be placed alone on a cell without breaking its row or its column.
+     * The masks are cached for every cell of the frontier and only refreshed when a run next to them changes.
+     *
+     * @param row the row of the cell.
+     * @param col the column of the cell.
+     * @return a mask whose bit i is set if the tile of index i is accepted (see {@link #typeMask(Tile)}),
+     * or 0 if the cell is not next to a tile.
+     */
+    public long cellMask(int row, int col) {
+        return this.frontier.maskOf(TileMap.key(row, col));
+    }
+
+    /**
+     * Gives the kinds of tiles that may be placed alone somewhere on the grid.
+     * A hand can play a move if and only if {@code (handMask & playableTypes()) != 0}, since the first tile
+     * of any move on the frontier could also be played alone.
+     * It is kept up to date with the masks of the cells, at no cost for the caller.
+     *
+     * @return a mask whose bit i is set if the tile of index i is accepted by a cell, 0 if the grid is empty.
+     */
+    public long playableTypes() {
+        return this.frontier.accepted();
+    }
+
+    /**
+     * Gives the kinds of tiles accepted by a cell of the frontier, to walk the frontier without allocating.
+     *
+     * @param i the place of the cell, between 0 and frontierSize() - 1.
+     * @return the mask of the cell.
+     */
+    long frontierMask(int i) {
+        return this.frontier.mask(i);
+    }
+
+    /**
+     * Gives the bit of a kind of tile in the masks of the cells: the tiles of a hand are folded with a bitwise or,
+     * and a tile of the hand may be placed on a cell if {@code (handMask & cellMask) != 0}.
+     *
+     * @param tile the tile.
+     * @return a mask with the single bit of the kind of the tile.
+     */
+    public static long typeMask(Tile tile) {
+        return 1L << tile.id();
+    }
+
+    /**
+     * Checks if a cell is empty and next to at least one tile.
+     *
+     * @param row the row of the cell.
+     * @param col the column of the cell.
+     * @return true if the cell belongs to the frontier, false otherwise.
+     */
+    boolean isFrontier(int row, int col) {
+        return this.frontier.contains(TileMap.key(row, col));
+    }
+
+    /**
+     * Gives the number of consecutive tiles starting at a cell in a direction.
+     *
+     * @param row the row of the first cell.
+     * @param col the column of the first cell.
+     * @param d   the direction of the run.
+     * @return the length of the run, 0 if the first cell is empty.
+     */
+    int run(int row, int col, Direction d) {
+        return this.occupancy.run(row, col, d);
+    }
+
+    /**
+     * Extracts the row of a packed position given by the frontier.
+     *
+     * @param cell the packed position.
+     * @return the row of the cell.
+     */
+    public static int cellRow(long cell) {
+        return TileMap.row(cell);
+    }
+
+    /**
+     * Extracts the column of a packed position given by the frontier.
+     *
+     * @param cell the packed position.
+     * @return the column of the cell.
+     */
+    public static int cellCol(long cell) {
+        return TileMap.col(cell);
+    }
+
+    /**
+     * Places a tile read from a save file on a cell without checking it.
+     *
+     * @param row  the row of the cell.
+     * @param col  the column of the cell.
+     * @param tile the tile to place.
+     */
+    void load(int row, int col, Tile tile) {
+        put(row, col, tile);
+        this.isEmpty = false;
+    }
+
+    /**
+     * Gives the number of tiles placed on the grid.
+     *
+     * @return the number of tiles.
+     */
+    int placedCount() {
+        return this.historySize;
+    }
+
+    /**
+     * Gives the cell of a tile placed on the grid, in the order the tiles were placed.
+     *
+     * @param index the index of the tile, between 0 and {@link #placedCount()} - 1.
+     * @return the packed position of the cell (see {@link #cellRow(long)} and {@link #cellCol(long)}).
+     */
+    long placedCell(int index) {
+        return this.history[index];
+    }
+
+    /**
+     * Places a tile on a cell and extends the bounding box if needed.
+     *
+     * @param row  the row of the cell.
+     * @param col  the column of the cell.
+     * @param tile the tile to place.
+     */
+    private void put(int row, int col, Tile tile) {
+        if (this.historySize == this.history.length) {
+            this.history = Arrays.copyOf(this.history, this.history.length * 2);
+            this.boundsHistory = Arrays.copyOf(this.boundsHistory, this.boundsHistory.length * 2);
+        }
+        this.history[this.historySize] = TileMap.key(row, col);
+        this.boundsHistory[this.historySize * 4] = this.minRow;
+        this.boundsHistory[this.historySize * 4 + 1] = this.maxRow;
+        this.boundsHistory[this.historySize * 4 + 2] = this.minCol;
+        this.boundsHistory[this.historySize * 4 + 3] = this.maxCol;
+        this.historySize++;
+        if (this.tiles.size() == 0) {
+            this.minRow = row;
+            this.maxRow = row;
+            this.minCol = col;
+            this.maxCol = col;
+        } else {
+            this.minRow = Math.min(this.minRow, row);
+            this.maxRow = Math.max(this.maxRow, row);
+            this.minCol = Math.min(this.minCol, col);
+            this.maxCol = Math.max(this.maxCol, col);
+        }
+        this.tiles.put(TileMap.key(row, col), tile);
+        this.occupancy.set(row, col);
+        this.hash ^= Zobrist.cell(TileMap.key(row, col), tile.id());
+        // The cell leaves the frontier and its empty neighbours join it;
+        this.frontier.remove(TileMap.key(row, col));
+        addToFrontier(row - 1, col);
+        addToFrontier(row + 1, col);
+        addToFrontier(row, col - 1);
+        addToFrontier(row, col + 1);
+        // Only the cells at the ends of the two runs through the tile accept other tiles now;
+        refreshRunEnds(row, col, Direction.RIGHT);
+        refreshRunEnds(row, col, Direction.DOWN);
+    }
+
+    /**
+     * Recomputes the kinds of tiles accepted by the empty cells at both ends of the run through a tile.
+     *
+     * @param row the row of the tile.
+     * @param col the column of the tile.
+     * @param d   the direction of the run.
+     */
+    private void refreshRunEnds(int row, int col, Direction d) {
+        int after = 1 + this.occupancy.run(row + d.getDeltaRow(), col + d.getDeltaCol(), d);
+        refreshMask(row + after * d.getDeltaRow(), col + after * d.getDeltaCol());
+        int before = 1 + this.occupancy.run(row - d.getDeltaRow(), col - d.getDeltaCol(), d.opposite());
+        refreshMask(row - before * d.getDeltaRow(), col - before * d.getDeltaCol());
+    }
+
+    /**
+     * Recomputes the kinds of tiles accepted by a cell of the frontier, in both of its lines.
+     *
+     * @param row the row of the cell.
+     * @param col the column of the cell.
+     */
+    private void refreshMask(int row, int col) {
+        this.frontier.setMask(TileMap.key(row, col),
+                acceptedTypes(row, col, Direction.RIGHT) & acceptedTypes(row, col, Direction.DOWN));
+    }
+
+    /**
+     * Gives the kinds of tiles that may be placed on an empty cell given the tiles on both sides of it in one line.
+     * The line must stay at most 6 tiles long, without duplicate and with a single color or a single shape.
+     *
+     * @param row the row of the cell.
+     * @param col the column of the cell.
+     * @param d   the direction of the line.
+     * @return a mask whose bit i is set if the tile of index i is accepted.
+     */
+    private long acceptedTypes(int row, int col, Direction d) {
+        int afterRow = row + d.getDeltaRow();
+        int afterCol = col + d.getDeltaCol();
+        int afterRun = this.occupancy.run(afterRow, afterCol, d);
+        int beforeRow = row - d.getDeltaRow();
+        int beforeCol = col - d.getDeltaCol();
+        int beforeRun = this.occupancy.run(beforeRow, beforeCol, d.opposite());
+        int count = afterRun + beforeRun;
+        if (count == 0) {
+            return SEEN_MASK; // Nothing to match in this line;
+        }
+        if (count >= 6) {
+            return 0;
+        }
+
+        long line = 0;
+        for (int i = 0; i < afterRun; i++) {
+            line |= features(get(afterRow + i * d.getDeltaRow(), afterCol + i * d.getDeltaCol()));
+        }
+        for (int i = 0; i < beforeRun; i++) {
+            line |= features(get(beforeRow - i * d.getDeltaRow(), beforeCol - i * d.getDeltaCol()));
+        }
+        return Long.bitCount(line & SEEN_MASK) == count ? acceptedBy(line) : 0;
+    }
+
+    /**
+     * Gives the kinds of tiles that may extend a valid line: the tiles of its color if it has a single color,
+     * the tiles of its shape if it has a single shape, except the tiles already in the line.
+     *
+     * @param line the features of the tiles of the line, folded together, or 0 for an empty line.
+     * @return a mask whose bit i is set if the tile of index i may extend the line.
+     */
+    static long acceptedBy(long line) {
+        if (line == 0) {
+            return SEEN_MASK;
+        }
+        long accepted = 0;
+        if (Long.bitCount(line & COLOR_MASK) == 1) { // The tiles of this color;
+            accepted |= 0x3FL << (6 * Long.numberOfTrailingZeros(line >>> 36));
+        }
+        if (Long.bitCount(line & SHAPE_MASK) == 1) { // The tiles of this shape;
+            accepted |= ONE_SHAPE_TYPES << Long.numberOfTrailingZeros(line >>> 42);
+        }
+        return accepted & ~line & SEEN_MASK;
+    }
+
+    /**
+     * Removes the tile of a cell and updates the frontier and the masks of the cells whose lines went through the cell.
+     *
+     * @param row the row of the cell.
+     * @param col the column of the cell.
+     */
+    private void clear(int row, int col) {
+        this.occupancy.clear(row, col);
+        Tile removed = this.tiles.remove(TileMap.key(row, col));
+        if (removed != null) {
+            this.hash ^= Zobrist.cell(TileMap.key(row, col), removed.id());
+        }
+        // The cell joins the frontier if it still has a neighbour, and its lonely empty neighbours leave it;
+        if (hasNeighbour(row, col)) {
+            this.frontier.add(TileMap.key(row, col));
+            refreshMask(row, col);
+        }
+        for (Direction d : Direction.values()) {
+            int nextRow = row + d.getDeltaRow();
+            int nextCol = col + d.getDeltaCol();
+            int run = this.occupancy.run(nextRow, nextCol, d);
+            if (run > 0) { // The far end of the run next to the cell has lost a tile of its line;
+                refreshMask(nextRow + run * d.getDeltaRow(), nextCol + run * d.getDeltaCol());
+            } else if (hasNeighbour(nextRow, nextCol)) {
+                refreshMask(nextRow, nextCol);
+            } else {
+                this.frontier.remove(TileMap.key(nextRow, nextCol));
+            }
+        }
+    }
+
+    /**
+     * Checks if a cell has a tile on at least one of its four sides.
+     *
+     * @param row the row of the cell.
+     * @param col the column of the cell.
+     * @return true if a tile is next to the cell, false otherwise.
+     */
+    private boolean hasNeighbour(int row, int col) {
+        return isTilePresent(row - 1, col) || isTilePresent(row + 1, col)
+                || isTilePresent(row, col - 1) || isTilePresent(row, col + 1);
+    }
+
+    /**
+     * Adds a cell to the frontier if it is empty.
+     *
+     * @param row the row of the cell.
+     * @param col the column of the cell.
+     */
+    private void addToFrontier(int row, int col) {
+        if (!isTilePresent(row, col)) {
+            this.frontier.add(TileMap.key(row, col));
+        }
+    }
+
     /**
      * Checks if the tiles to add are adjacent to an existing tile on the grid.
      *
@@ -272,31 +945,19 @@ public class Grid implements Serializable {
      * @return true if the tiles are adjacent to an existing tile, false otherwise.
      */
     private boolean adjacentTiles(int row, int col, Direction d, Tile... line) {
-        boolean adjacent = true;
-        if ((this.line[row + (line.length * d.getDeltaRow())][col + (line.length * d.getDeltaCol())] == null)) {
-            if ((this.line[row + (d.opposite().getDeltaRow())][col + (d.opposite().getDeltaCol())] == null)) {
-                int i;
-                for (i = 0; i < line.length; i++) {
-                    Direction diagonal = d.diagonal(); // The diagonal direction
-                    if ((this.line[row + (i * d.getDeltaRow()) + diagonal.getDeltaRow()] //diagonal
-                            [col + (i * d.getDeltaCol()) + diagonal.getDeltaCol()] != null) ||
-                            (this.line[row + (i * d.getDeltaRow()) + diagonal.opposite().getDeltaRow()] //opposite diagonal
-                                    [col + (i * d.getDeltaCol()) + diagonal.opposite().getDeltaCol()] != null)) {
-                        break;
-                    }
-                }
-                if (i == line.length) {
-                    adjacent = false;
-                }
-            }
-        }
-        return adjacent;
+        Direction diagonal = d.diagonal(); // The diagonal direction
+        return isTilePresent(row + (line.length * d.getDeltaRow()), col + (line.length * d.getDeltaCol())) // after
+                || isTilePresent(row + d.opposite().getDeltaRow(), col + d.opposite().getDeltaCol()) // before
+                || this.occupancy.any(row + diagonal.getDeltaRow(), col + diagonal.getDeltaCol(), d, line.length)
+                || this.occupancy.any(row + diagonal.opposite().getDeltaRow(), col + diagonal.opposite().getDeltaCol(),
+                d, line.length); // The two lines alongside the tiles
     }
 
     /**
      * Checks if the horizontal and vertical tile line are composed of a maximum of 6 tiles.
      * Additionally, it verifies that the line does not contain duplicate tiles and that all tiles
      * in the line share a common characteristic (color or shape).
+     * The lines are walked in place on the grid, nothing is allocated.
      *
      * @param row  the row of the first tile position.
      * @param col  the column of the first tile position.
@@ -305,198 +966,131 @@ public class Grid implements Serializable {
      * @return true if the rules of adding tiles are valid, false otherwise.
      */
     public boolean validRulesAdd(int row, int col, Direction d, Tile... line) {
-        boolean validRules = true;
-
-        List<Tile> tilesFromTheLine = tilesFromTheLine(row, col, d, line);
-        Tile[] tilesLineTab = tilesFromTheLine.toArray(Tile[]::new);
-        if (!doesNotExceedMaxTiles(tilesLineTab) || !validColorOrShape(tilesLineTab) || hasDuplicateTiles(tilesLineTab)) {
-            validRules = false;
+        long features = 0;
+        for (Tile tile : line) {
+            features |= features(tile);
         }
+        boolean validRules = validTilesLine(row, col, d, features, line.length);
 
         int indexLine = 0;
         while (indexLine < line.length && validRules) {
             int tileColumn = col + indexLine * d.getDeltaCol();
             int tileRow = row + indexLine * d.getDeltaRow();
-            List<Tile> tilesFromOppLine = tilesFromTheLine(tileRow, tileColumn, d.diagonal(), line[indexLine]);
-            Tile[] tilesOppLineTab = tilesFromOppLine.toArray(Tile[]::new);
-            if (!doesNotExceedMaxTiles(tilesOppLineTab) || !validColorOrShape(tilesOppLineTab) || hasDuplicateTiles(tilesOppLineTab)) {
-                validRules = false;
-            }
-            tilesFromOppLine.clear();
+            validRules = validTilesLine(tileRow, tileColumn, d.diagonal(), features(line[indexLine]), 1);
             indexLine++;
         }
         return validRules;
     }
 
     /**
-     * Retrieves the tile line based on the given starting position and direction.
+     * Checks the whole line formed by some tiles to add and the tiles already on the grid on both sides of them.
+     * Each tile of the line is folded into a 6-bit mask of colors, a 6-bit mask of shapes and a 36-bit mask of
+     * the tiles already seen (see {@link #features(Tile)}): the line is valid if it has at most 6 tiles,
+     * if no bit of the seen mask is set twice and if a single color or a single shape is used.
      *
-     * @param row  the row of the starting tile position.
-     * @param col  the column of the starting tile position.
-     * @param d    the direction of the line.
-     * @param line the tiles to add.
-     * @return the list of tiles in the line.
+     * @param row      the row of the first tile to add.
+     * @param col      the column of the first tile to add.
+     * @param d        the direction of the line.
+     * @param features the features of the tiles to add, folded together.
+     * @param length   the number of tiles to add.
+     * @return true if the line respects the rules of the Qwirkle game, false otherwise.
      */
-    private List<Tile> tilesFromTheLine(int row, int col, Direction d, Tile... line) {
-        List<Tile> directionTiles = new ArrayList<>(Arrays.asList(line));
-        int colDirection = col + line.length * d.getDeltaCol();
-        int rowDirection = row + line.length * d.getDeltaRow();
-        while (isTilePresent(rowDirection, colDirection)) {
-            directionTiles.add(this.line[rowDirection][colDirection]);
-            colDirection += d.getDeltaCol();
-            rowDirection += d.getDeltaRow();
-        }
-        int oppCol = col + d.opposite().getDeltaCol();
-        int oppRow = row + d.opposite().getDeltaRow();
-        while (isTilePresent(oppRow, oppCol)) {
-            directionTiles.add(this.line[oppRow][oppCol]);
-            oppCol += d.opposite().getDeltaCol();
-            oppRow += d.opposite().getDeltaRow();
+    private boolean validTilesLine(int row, int col, Direction d, long features, int length) {
+        int afterRow = row + length * d.getDeltaRow();
+        int afterCol = col + length * d.getDeltaCol();
+        int afterRun = this.occupancy.run(afterRow, afterCol, d);
+        int beforeRow = row - d.getDeltaRow();
+        int beforeCol = col - d.getDeltaCol();
+        int beforeRun = this.occupancy.run(beforeRow, beforeCol, d.opposite());
+        int count = length + afterRun + beforeRun;
+        if (count > 6) {
+            return false;
         }
-        return directionTiles;
-    }
-
-    /**
-     * Checks if a tile is present at the specified row and column coordinates.
-     *
-     * @param row the row coordinate.
-     * @param col the column coordinate.
-     * @return true if a tile is present, false otherwise.
-     */
-    private boolean isTilePresent(int row, int col) {
-        return this.line[row][col] != null;
-    }
 
-    /**
-     * Checks if a line of tiles does not exceed the maximum number of tiles allowed.
-     *
-     * @param tiles the array of tiles in the line.
-     * @return true if the line does not exceed the maximum number of tiles, false otherwise.
-     */
-    private boolean doesNotExceedMaxTiles(Tile[] tiles) {
-        return tiles.length <= 6;
+        long line = features;
+        for (int i = 0; i < afterRun; i++) {
+            line |= features(get(afterRow + i * d.getDeltaRow(), afterCol + i * d.getDeltaCol()));
+        }
+        for (int i = 0; i < beforeRun; i++) {
+            line |= features(get(beforeRow - i * d.getDeltaRow(), beforeCol - i * d.getDeltaCol()));
+        }
+        return Long.bitCount(line & SEEN_MASK) == count && sharesColorOrShape(line);
     }
 
     /**
-     * Checks if there are any duplicate tiles in the given array.
+     * Gives the number of tiles of the line formed by some tiles to add and the tiles on both sides of them.
      *
-     * @param tiles the array of tiles to check.
-     * @return true if there are duplicate tiles, false otherwise.
+     * @param row    the row of the first tile to add.
+     * @param col    the column of the first tile to add.
+     * @param d      the direction of the line.
+     * @param length the number of tiles to add.
+     * @return the number of tiles of the line.
      */
-    private boolean hasDuplicateTiles(Tile[] tiles) {
-        boolean sameTile = false;
-        int indexTile = 0;
-        while (indexTile < tiles.length && !sameTile) {
-            int i = indexTile + 1;
-            while (i < tiles.length && !sameTile) {
-                if (tiles[indexTile].equals(tiles[i])) {
-                    sameTile = true;
-                }
-                i++;
-            }
-            indexTile++;
-        }
-        return sameTile;
+    private int lineLength(int row, int col, Direction d, int length) {
+        return length
+                + this.occupancy.run(row + length * d.getDeltaRow(), col + length * d.getDeltaCol(), d)
+                + this.occupancy.run(row - d.getDeltaRow(), col - d.getDeltaCol(), d.opposite());
     }
 
     /**
-     * Checks if all the tiles in the given array share either the same color or the same shape.
+     * Gives the features of a tile packed in a long: the bit of the kind of tile (bits 0 to 35),
+     * the bit of its color (bits 36 to 41) and the bit of its shape (bits 42 to 47).
+     * The features of several tiles are folded together with a bitwise or.
      *
-     * @param line the array of tiles to check.
-     * @return true if all tiles share the same color or shape, false otherwise.
+     * @param tile the tile.
+     * @return the features of the tile.
      */
-    private boolean validColorOrShape(Tile... line) {
-        boolean validColorOrShape = false;
-        int i = 1;
-        while (i < line.length && line[0].color() == line[i].color()) {
-            i++;
-        }
-        if (i >= line.length) {
-            validColorOrShape = true;
-        }
-        if (!validColorOrShape) {
-            int j = 1;
-            while (j < line.length && line[0].shape() == line[j].shape()) {
-                j++;
-            }
-            if (j >= line.length) {
-                validColorOrShape = true;
-            }
-        }
-        return validColorOrShape;
+    static long features(Tile tile) {
+        return FEATURES[tile.id()];
     }
 
     /**
-     * Checks if all the elements in the given list are the same.
+     * Checks if folded features use a single color or a single shape.
      *
-     * @param rowOrCol the list of row or column values to check.
-     * @return true if all elements are the same, false otherwise.
+     * @param features the features of some tiles, folded together.
+     * @return true if the tiles share their color or their shape, false otherwise.
      */
-    private boolean sameRowOrCol(List<Integer> rowOrCol) {
-        boolean sameRowOrCol = true;
-        int indexRow = 0;
-        while (indexRow < rowOrCol.size() - 1 && sameRowOrCol) {
-            if (!rowOrCol.get(indexRow).equals(rowOrCol.get(indexRow + 1))) {
-                sameRowOrCol = false;
-            }
-            indexRow++;
-        }
-        return sameRowOrCol;
+    private static boolean sharesColorOrShape(long features) {
+        return Long.bitCount(features & COLOR_MASK) == 1 || Long.bitCount(features & SHAPE_MASK) == 1;
     }
 
     /**
-     * Checks if the list of row values or the list of column values contains the same value for all elements.
+     * Checks if a tile is present at the specified row and column coordinates.
      *
-     * @param row the list of row values.
-     * @param col the list of column values.
-     * @return true if either the row values or the column values are the same for all elements, false otherwise.
+     * @param row the row coordinate.
+     * @param col the column coordinate.
+     * @return true if a tile is present, false otherwise.
      */
-    private boolean tilesSameLine(List<Integer> row, List<Integer> col) {
-        return sameRowOrCol(row) || sameRowOrCol(col);
+    boolean isTilePresent(int row, int col) {
+        return this.occupancy.isSet(row, col);
     }
 
     /**
-     * Checks if the list of sum of row and column values has any duplicate values.
+     * Checks if there are any duplicate tiles in the given array.
      *
-     * @param sumRowCol the list of sum of row and column values.
-     * @return true if there are duplicate values in the list, false otherwise.
+     * @param tiles the array of tiles to check.
+     * @return true if there are duplicate tiles, false otherwise.
      */
-    private boolean tileAtPositionSamePosition(List<Integer> sumRowCol) {
-        boolean samePosition = false;
-        int i = 0;
-        while (i < sumRowCol.size() && !samePosition) {
-            int j = i + 1;
-            while (j < sumRowCol.size() && !samePosition) {
-                if (sumRowCol.get(i).equals(sumRowCol.get(j))) {
-                    samePosition = true;
-                }
-                j++;
-            }
-            i++;
+    private boolean hasDuplicateTiles(Tile[] tiles) {
+        long seen = 0;
+        for (Tile tile : tiles) {
+            seen |= features(tile);
         }
-        return samePosition;
+        return Long.bitCount(seen & SEEN_MASK) != tiles.length;
     }
 
     /**
-     * Checks if the position of the first and last tile is valid.
+     * Checks if all the tiles in the given array share either the same color or the same shape.
      *
-     * @param row  the row of the first tile position.
-     * @param col  the column of the first tile position.
-     * @param d    the direction of tiles placement.
-     * @param line the tiles to add.
-     * @return true if the position is valid, false otherwise.
+     * @param line the array of tiles to check.
+     * @return true if all tiles share the same color or shape, false otherwise.
      */
-    private boolean validPosition(int row, int col, Direction d, Tile... line) {
-        if (row > 89 || row < 1 || col > 89 || col < 1) {
-            return false;      // Check if the initial position is outside the grid
+    private boolean validColorOrShape(Tile... line) {
+        long features = 0;
+        for (Tile tile : line) {
+            features |= features(tile);
         }
-
-        return switch (d) {
-            case LEFT -> col - line.length >= 0; // Check if the line fits within the grid on the left
-            case RIGHT -> col + line.length <= 90; // Check if the line fits within the grid on the right
-            case UP -> row - line.length >= 0; // Check if the line fits within the grid upwards
-            case DOWN -> row + line.length <= 90; // Check if the line fits within the grid downwards
-        };
+        return sharesColorOrShape(features);
     }
 
     /**
@@ -546,51 +1140,26 @@ public class Grid implements Serializable {
      * @return true if a tile already exists at the position, false otherwise.
      */
     private boolean existAlreadyTile(int row, int col, Direction d, Tile... line) {
-        boolean existAlreadyTile = false;
-        int i = 0;
-        while (i < line.length && !existAlreadyTile) {
-            if (this.line[row + d.getDeltaRow() * i][col + d.getDeltaCol() * i] != null) {
-                existAlreadyTile = true;
-            }
-            i++;
-        }
-        return existAlreadyTile;
+        return this.occupancy.any(row, col, d, line.length);
     }
 
     /**
      * Calculates the score based on the tiles added to the grid.
      *
-     * @param row  the row index of the position.
-     * @param col  the column index of the position.
-     * @param d    the direction of the line.
-     * @param line the tiles to add.
+     * @param row    the row index of the position.
+     * @param col    the column index of the position.
+     * @param d      the direction of the line.
+     * @param length the number of tiles added.
      * @return the calculated score.
      */
-    private int score(int row, int col, Direction d, Tile... line) {
-        int score = 0;
-        List<Tile> tilesFromTheLine = tilesFromTheLine(row, col, d, line);
+    private int score(int row, int col, Direction d, int length) {
+        int score = lineScore(lineLength(row, col, d, length));
 
-        if (tilesFromTheLine.size() > 1) {
-            score += tilesFromTheLine.size(); // If rules are respected
-        }
-        if (tilesFromTheLine.size() == 6) {
-            score += 6; // Qwirkle line
-        }
-
-        // List of all the tiles found on the opposite line of the tile passed as a parameter
-        for (int i = 0; i < line.length; i++) {
+        // Length of the line found on the opposite direction of each tile added
+        for (int i = 0; i < length; i++) {
             int tileColumn = col + i * d.getDeltaCol();
             int tileRow = row + i * d.getDeltaRow();
-            List<Tile> tilesFromOppositeLine = tilesFromTheLine(tileRow, tileColumn, d.diagonal(), line[i]); // Diagonal direction
-
-            if (tilesFromOppositeLine.size() > 1) {
-                score += tilesFromOppositeLine.size(); // If rules are respected
-            }
-            if (tilesFromOppositeLine.size() == 6) {
-                score += 6; // Qwirkle line
-            }
-
-            tilesFromOppositeLine.clear();
+            score += lineScore(lineLength(tileRow, tileColumn, d.diagonal(), 1)); // Diagonal direction
         }
 
         return score;
@@ -598,72 +1167,64 @@ public class Grid implements Serializable {
 
     /**
      * Calculates the score for adding tiles to the grid based on their positions.
+     * The tiles are already on the grid, on a single row or column.
      *
-     * @param line the tiles with their positions to add.
+     * @param length the number of tiles added.
+     * @param rows   the rows of the tiles.
+     * @param cols   the columns of the tiles.
      * @return the calculated score.
      */
-    private int scoreRulesAdd3(TileAtPosition... line) {
-        int score = 0;
-        List<Integer> tilesRow = new ArrayList<>();
-
-        for (TileAtPosition tileAtPosition : line) {
-            int newRow = tileAtPosition.row();
-            tilesRow.add(newRow);
-            int newCol = tileAtPosition.col();
-            Tile tile = tileAtPosition.tile();
-            score += score(newRow, newCol, Direction.RIGHT, tile); // It doesn't matter the direction here
+    private int scorePositions(int length, int[] rows, int[] cols) {
+        boolean sameRow = true;
+        for (int i = 0; i < length; i++) {
+            sameRow = sameRow && rows[i] == rows[0];
+        }
+        Direction d = sameRow ? Direction.RIGHT : Direction.DOWN; // The direction of the line
+        int score = lineScore(lineLength(rows[0], cols[0], d, 1));
+        for (int i = 0; i < length; i++) {
+            score += lineScore(lineLength(rows[i], cols[i], d.diagonal(), 1));
         }
-
-        // Removes from the score the number of tiles that are repeated on the same line
-        Direction d = sameRowOrCol(tilesRow) ? Direction.RIGHT : Direction.UP;
-        TileAtPosition tile = line[0];
-        List<Tile> tilesToRemove = tilesFromTheLine(tile.row(), tile.col(), d, tile.tile());
-        score -= (line.length - 1) * tilesToRemove.size();
-
         return score;
     }
 
     /**
-     * Checks if the given TileAtPosition is adjacent to the existing tiles in the grid.
+     * Counts the Qwirkles made by tiles just placed on the grid, on a single row or column:
+     * the lines of 6 tiles holding one of them.
      *
-     * @param tilesRow       the list of row positions of the existing tiles.
-     * @param tilesCol       the list of column positions of the existing tiles.
-     * @param tileAtPosition the TileAtPosition to check for adjacency.
-     * @return true if the tile is adjacent to the existing tiles, false otherwise.
+     * @param length the number of tiles placed.
+     * @param rows   the rows of the tiles.
+     * @param cols   the columns of the tiles.
+     * @return the number of lines of 6 tiles made.
      */
-    private boolean adjacentTileAtPosition(List<Integer> tilesRow, List<Integer> tilesCol, TileAtPosition tileAtPosition) {
-        boolean valid = true;
-        Direction d = sameRowOrCol(tilesRow) ? Direction.RIGHT : Direction.UP;
-        int min, max;
-
-        // Defines the min and max;
-        if (d == Direction.RIGHT) {
-            // We check the columns;
-            Collections.sort(tilesCol);
-            min = tilesCol.get(0);
-            max = tilesCol.get(tilesCol.size() - 1);
-            int j = min;
-            while (j < max && get(tileAtPosition.row(), j) != null) {
-                j++;
-            }
-
-            valid = j == max;
-
-        } else {
-            // We check the rows;
-            Collections.sort(tilesRow);
-            min = tilesRow.get(0);
-            max = tilesRow.get(tilesRow.size() - 1);
-            int i = min;
-            while (i < max && get(i, tileAtPosition.col()) != null) {
-                i++;
+    int qwirkles(int length, int[] rows, int[] cols) {
+        boolean sameRow = true;
+        for (int i = 0; i < length; i++) {
+            sameRow = sameRow && rows[i] == rows[0];
+        }
+        Direction d = sameRow ? Direction.RIGHT : Direction.DOWN; // The direction of the line
+        int qwirkles = lineLength(rows[0], cols[0], d, 1) == 6 ? 1 : 0;
+        for (int i = 0; i < length; i++) {
+            if (lineLength(rows[i], cols[i], d.diagonal(), 1) == 6) {
+                qwirkles++;
             }
-            valid = i == max;
-
         }
-        return valid;
+        return qwirkles;
     }
 
+    /**
+     * Gives the points brought by a line.
+     *
+     * @param length the number of tiles of the line.
+     * @return the length of the line, plus 6 for a Qwirkle, or 0 for a single tile.
+     */
+    static int lineScore(int length) {
+        int score = 0;
+        if (length > 1) {
+            score += length; // If rules are respected
+        }
+        if (length == 6) {
+            score += 6; // Qwirkle line
+        }
+        return score;
+    }
 }
-
-
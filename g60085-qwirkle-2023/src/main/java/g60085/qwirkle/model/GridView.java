@@ -27,6 +27,42 @@ public class GridView {
         return this.grid.get(row, col);
     }
 
+    /**
+     * Gives the smallest row holding a tile.
+     *
+     * @return the top row of the tiles.
+     */
+    public int getMinRow() {
+        return this.grid.getMinRow();
+    }
+
+    /**
+     * Gives the greatest row holding a tile.
+     *
+     * @return the bottom row of the tiles.
+     */
+    public int getMaxRow() {
+        return this.grid.getMaxRow();
+    }
+
+    /**
+     * Gives the smallest column holding a tile.
+     *
+     * @return the left column of the tiles.
+     */
+    public int getMinCol() {
+        return this.grid.getMinCol();
+    }
+
+    /**
+     * Gives the greatest column holding a tile.
+     *
+     * @return the right column of the tiles.
+     */
+    public int getMaxCol() {
+        return this.grid.getMaxCol();
+    }
+
     /**
      * Checks if the grid is empty.
      *
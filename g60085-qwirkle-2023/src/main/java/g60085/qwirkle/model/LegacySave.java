@@ -0,0 +1,169 @@
+package g60085.qwirkle.model;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InvalidClassException;
+import java.io.ObjectInputFilter;
+import java.io.ObjectInputStream;
+import java.io.ObjectStreamClass;
+import java.io.ObjectStreamField;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * LegacySave reads the save files written by Java serialization by the first versions of the game,
+ * whose grid was an array of 91x91 tiles and whose bag was not saved.
+ * The classes of these files no longer exist, so the descriptions of the saved classes are replaced
+ * by those of private classes holding the same fields, and the game is then rebuilt from these fields:
+ * the bag holds the tiles found neither on the grid nor in the hands, drawn from a new seed.
+ * Only the classes of the game may be read from these files.
+ */
+final class LegacySave {
+    private static final Map<String, Class<?>> CLASSES = Map.of(
+            "g60085.qwirkle.model.Game", LegacyGame.class,
+            "g60085.qwirkle.model.Grid", LegacyGrid.class,
+            "g60085.qwirkle.model.Player", LegacyPlayer.class,
+            "[Lg60085.qwirkle.model.Player;", LegacyPlayer[].class);
+    private static final ObjectInputFilter FILTER = ObjectInputFilter.Config.createFilter(
+            "maxbytes=65536;maxdepth=16;g60085.qwirkle.model.*;java.util.ArrayList;java.lang.Enum;java.lang.Object;!*");
+
+    /**
+     * Prevents the instantiation of this utility class.
+     */
+    private LegacySave() {
+    }
+
+    /**
+     * Reads a game written by Java serialization.
+     *
+     * @param buffer the bytes of the file.
+     * @return the game, with a new bag.
+     * @throws QwirkleException if the bytes do not hold a game of the first versions.
+     */
+    static Game read(ByteBuffer buffer) throws QwirkleException {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        try (ObjectInputStream in = new LegacyInputStream(bytes)) {
+            in.setObjectInputFilter(FILTER);
+            return toGame((LegacyGame) in.readObject());
+        } catch (IOException | ClassNotFoundException | ClassCastException e) {
+            throw new QwirkleException("An error occurred while reading the file: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Rebuilds a game from the fields of a game of the first versions.
+     *
+     * @param legacy the fields of the game.
+     * @return the game.
+     * @throws QwirkleException if the fields do not describe a valid game.
+     */
+    private static Game toGame(LegacyGame legacy) throws QwirkleException {
+        if (legacy.players == null || legacy.players.length < 2 || legacy.players.length > 4
+                || legacy.currentPlayer < 0 || legacy.currentPlayer >= legacy.players.length
+                || legacy.grid == null || legacy.grid.line == null) {
+            throw new QwirkleException("The save file is corrupted!");
+        }
+        Bag bag = new Bag(new SplittableRandom().nextLong());
+        try {
+            Grid grid = new Grid();
+            for (int row = 0; row < legacy.grid.line.length; row++) {
+                for (int col = 0; col < legacy.grid.line[row].length; col++) {
+                    Tile tile = legacy.grid.line[row][col];
+                    if (tile != null) {
+                        grid.load(row, col, Tile.of(tile.id()));
+                        bag.remove(tile.id());
+                    }
+                }
+            }
+            Player[] players = new Player[legacy.players.length];
+            for (int i = 0; i < players.length; i++) {
+                LegacyPlayer player = legacy.players[i];
+                players[i] = new Player(player.name, player.score);
+                for (int j = 0; j < player.tiles.size(); j++) {
+                    players[i].insert(j, Tile.of(player.tiles.get(j).id()));
+                    bag.remove(player.tiles.get(j).id());
+                }
+            }
+            return new Game(grid, bag, players, legacy.currentPlayer, 0);
+        } catch (NullPointerException | IndexOutOfBoundsException e) {
+            throw new QwirkleException("The save file is corrupted!");
+        }
+    }
+
+    /**
+     * LegacyInputStream reads a stream written by Java serialization,
+     * replacing the descriptions of the classes of the first versions by those of the legacy classes.
+     */
+    private static final class LegacyInputStream extends ObjectInputStream {
+
+        /**
+         * Initializes a stream reading bytes.
+         *
+         * @param bytes the bytes written by Java serialization.
+         * @throws IOException if the bytes do not start with the header of a serialization stream.
+         */
+        private LegacyInputStream(byte[] bytes) throws IOException {
+            super(new ByteArrayInputStream(bytes));
+        }
+
+        /**
+         * Reads the description of a class, replaced by the one of its legacy class if it has the same fields.
+         *
+         * @return the description of the class to read.
+         * @throws IOException            if the class of the stream does not match its legacy class.
+         * @throws ClassNotFoundException if the class of the description cannot be found.
+         */
+        @Override
+        protected ObjectStreamClass readClassDescriptor() throws IOException, ClassNotFoundException {
+            ObjectStreamClass saved = super.readClassDescriptor();
+            Class<?> legacy = CLASSES.get(saved.getName());
+            if (legacy == null) {
+                return saved;
+            }
+            ObjectStreamClass replacement = ObjectStreamClass.lookup(legacy);
+            ObjectStreamField[] fields = saved.getFields();
+            ObjectStreamField[] expected = replacement.getFields();
+            boolean same = fields.length == expected.length;
+            int i = 0;
+            while (same && i < fields.length) {
+                same = fields[i].getName().equals(expected[i].getName())
+                        && fields[i].getTypeCode() == expected[i].getTypeCode();
+                i++;
+            }
+            if (!same) {
+                throw new InvalidClassException(saved.getName(), "unknown version of the class");
+            }
+            return replacement;
+        }
+    }
+
+    /**
+     * LegacyGame holds the fields of a game of the first versions.
+     */
+    private static final class LegacyGame implements Serializable {
+        private LegacyGrid grid;
+        private LegacyPlayer[] players;
+        private int currentPlayer;
+    }
+
+    /**
+     * LegacyGrid holds the fields of a grid of the first versions: an array of 91x91 tiles.
+     */
+    private static final class LegacyGrid implements Serializable {
+        private Tile[][] line;
+        private boolean isEmpty;
+    }
+
+    /**
+     * LegacyPlayer holds the fields of a player of the first versions.
+     */
+    private static final class LegacyPlayer implements Serializable {
+        private String name;
+        private List<Tile> tiles;
+        private int score;
+    }
+}
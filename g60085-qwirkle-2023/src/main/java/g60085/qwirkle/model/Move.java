@@ -0,0 +1,79 @@
+package g60085.qwirkle.model;
+
+/**
+ * Move is a move of the current player, given to a {@link GameEngine}.
+ * Each kind of move is a record holding the same parameters as the matching method of {@link Game},
+ * the tiles being given by their indexes in the hand of the player.
+ */
+public sealed interface Move permits Move.First, Move.Single, Move.Line, Move.Positions, Move.Pass {
+
+    /**
+     * Gives a move generated in a buffer as a record: the first move of the game,
+     * or the positions of the tiles for any other move.
+     *
+     * @param moves the buffer holding the move.
+     * @param move  the index of the move in the buffer.
+     * @return the move.
+     */
+    static Move of(MoveBuffer moves, int move) {
+        int count = moves.count(move);
+        if (moves.kind(move) == MoveKind.FIRST) {
+            int[] indexes = new int[count];
+            for (int i = 0; i < count; i++) {
+                indexes[i] = moves.handIndex(move, i);
+            }
+            return new First(moves.direction(move), indexes);
+        }
+        int[] is = new int[count * 3];
+        for (int i = 0; i < count; i++) {
+            is[i * 3] = moves.row(move, i);
+            is[i * 3 + 1] = moves.col(move, i);
+            is[i * 3 + 2] = moves.handIndex(move, i);
+        }
+        return new Positions(is);
+    }
+
+    /**
+     * The first move of the game, see {@link Game#first(Direction, int...)}.
+     *
+     * @param direction the direction in which the tiles are placed.
+     * @param indexes   the indexes of the tiles in the hand.
+     */
+    record First(Direction direction, int... indexes) implements Move {
+    }
+
+    /**
+     * A single tile, see {@link Game#play(int, int, int)}.
+     *
+     * @param row   the row of the tile.
+     * @param col   the column of the tile.
+     * @param index the index of the tile in the hand.
+     */
+    record Single(int row, int col, int index) implements Move {
+    }
+
+    /**
+     * Tiles on consecutive cells, see {@link Game#play(int, int, Direction, int...)}.
+     *
+     * @param row       the row of the first tile.
+     * @param col       the column of the first tile.
+     * @param direction the direction in which the tiles are placed.
+     * @param indexes   the indexes of the tiles in the hand.
+     */
+    record Line(int row, int col, Direction direction, int... indexes) implements Move {
+    }
+
+    /**
+     * Tiles at given positions, see {@link Game#play(int...)}.
+     *
+     * @param is the row, the column and the index in the hand of each tile, one after the other.
+     */
+    record Positions(int... is) implements Move {
+    }
+
+    /**
+     * The current player passes their turn, see {@link Game#pass()}.
+     */
+    record Pass() implements Move {
+    }
+}
@@ -0,0 +1,169 @@
+package g60085.qwirkle.model;
+
+import java.util.Arrays;
+
+/**
+ * MoveBuffer is a reusable list of moves filled by the {@link MoveGenerator}.
+ * The moves are stored in parallel primitive arrays, with 6 slots of row, column and hand index per move,
+ * so that generating the moves of a position allocates nothing once the buffer has grown to its working size.
+ * The moves of a buffer are only valid until it is cleared or the game changes.
+ */
+public final class MoveBuffer {
+    private static final int INITIAL_CAPACITY = 256;
+    private static final MoveKind[] KINDS = MoveKind.values();
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    private byte[] kinds;
+    private byte[] directions;
+    private byte[] counts;
+    private int[] scores;
+    private int[] rows;
+    private int[] cols;
+    private byte[] handIndexes;
+    private int size;
+
+    /**
+     * Initializes an empty buffer.
+     */
+    public MoveBuffer() {
+        this.kinds = new byte[INITIAL_CAPACITY];
+        this.directions = new byte[INITIAL_CAPACITY];
+        this.counts = new byte[INITIAL_CAPACITY];
+        this.scores = new int[INITIAL_CAPACITY];
+        this.rows = new int[INITIAL_CAPACITY * 6];
+        this.cols = new int[INITIAL_CAPACITY * 6];
+        this.handIndexes = new byte[INITIAL_CAPACITY * 6];
+        this.size = 0;
+    }
+
+    /**
+     * Removes all the moves, keeping the arrays for the next generation.
+     */
+    public void clear() {
+        this.size = 0;
+    }
+
+    /**
+     * Gives the number of moves in the buffer.
+     *
+     * @return the number of moves.
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Gives the kind of a move.
+     *
+     * @param move the index of the move.
+     * @return the way the move is played on the grid.
+     */
+    public MoveKind kind(int move) {
+        return KINDS[this.kinds[move]];
+    }
+
+    /**
+     * Gives the direction of a move, from its first tile to its last tile.
+     *
+     * @param move the index of the move.
+     * @return RIGHT or DOWN.
+     */
+    public Direction direction(int move) {
+        return DIRECTIONS[this.directions[move]];
+    }
+
+    /**
+     * Gives the number of tiles of a move.
+     *
+     * @param move the index of the move.
+     * @return a number between 1 and 6.
+     */
+    public int count(int move) {
+        return this.counts[move];
+    }
+
+    /**
+     * Gives the score obtained by playing a move.
+     *
+     * @param move the index of the move.
+     * @return the score of the move.
+     */
+    public int score(int move) {
+        return this.scores[move];
+    }
+
+    /**
+     * Gives the row of a tile of a move.
+     *
+     * @param move the index of the move.
+     * @param tile the index of the tile in the move, between 0 and count(move) - 1.
+     * @return the row where the tile is placed.
+     */
+    public int row(int move, int tile) {
+        return this.rows[move * 6 + tile];
+    }
+
+    /**
+     * Gives the column of a tile of a move.
+     *
+     * @param move the index of the move.
+     * @param tile the index of the tile in the move, between 0 and count(move) - 1.
+     * @return the column where the tile is placed.
+     */
+    public int col(int move, int tile) {
+        return this.cols[move * 6 + tile];
+    }
+
+    /**
+     * Gives the index in the hand of a tile of a move.
+     *
+     * @param move the index of the move.
+     * @param tile the index of the tile in the move, between 0 and count(move) - 1.
+     * @return the index of the tile in the hand of the player.
+     */
+    public int handIndex(int move, int tile) {
+        return this.handIndexes[move * 6 + tile];
+    }
+
+    /**
+     * Appends a move whose tiles are given as parallel arrays.
+     *
+     * @param kind        the kind of the move.
+     * @param direction   the direction of the move.
+     * @param count       the number of tiles of the move.
+     * @param score       the score of the move.
+     * @param rows        the rows of the tiles.
+     * @param cols        the columns of the tiles.
+     * @param handIndexes the indexes of the tiles in the hand.
+     */
+    void add(MoveKind kind, Direction direction, int count, int score, int[] rows, int[] cols, int[] handIndexes) {
+        if (this.size == this.counts.length) {
+            grow();
+        }
+        int move = this.size;
+        this.kinds[move] = (byte) kind.ordinal();
+        this.directions[move] = (byte) direction.ordinal();
+        this.counts[move] = (byte) count;
+        this.scores[move] = score;
+        for (int i = 0; i < count; i++) {
+            this.rows[move * 6 + i] = rows[i];
+            this.cols[move * 6 + i] = cols[i];
+            this.handIndexes[move * 6 + i] = (byte) handIndexes[i];
+        }
+        this.size++;
+    }
+
+    /**
+     * Doubles the capacity of the arrays.
+     */
+    private void grow() {
+        int capacity = this.counts.length * 2;
+        this.kinds = Arrays.copyOf(this.kinds, capacity);
+        this.directions = Arrays.copyOf(this.directions, capacity);
+        this.counts = Arrays.copyOf(this.counts, capacity);
+        this.scores = Arrays.copyOf(this.scores, capacity);
+        this.rows = Arrays.copyOf(this.rows, capacity * 6);
+        this.cols = Arrays.copyOf(this.cols, capacity * 6);
+        this.handIndexes = Arrays.copyOf(this.handIndexes, capacity * 6);
+    }
+}
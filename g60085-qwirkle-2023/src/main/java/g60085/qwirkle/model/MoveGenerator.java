@@ -0,0 +1,219 @@
+package g60085.qwirkle.model;
+
+import java.util.List;
+
+/**
+ * MoveGenerator enumerates every legal move of a hand on a grid, with its score.
+ * A move is a set of tiles of the hand placed on a single row or column, forming a single valid line
+ * with the tiles of the grid between and around them, and touching at least one tile of the grid.
+ * Each move is generated once, from its first tile placed on the frontier of the grid:
+ * the tiles before it are on free cells with no neighbour, the tiles after it skip the tiles of the grid.
+ * The tiles that may go on a cell are pruned with the cached cross-check mask of the cell
+ * (see {@link Grid#cellMask(int, int)}) and with the mask of the tiles extending the line built so far,
+ * so that only legal placements are explored, and the moves are written into a reusable {@link MoveBuffer}.
+ * On an empty grid, the first moves are generated once per set of tiles, in the order of the hand, to the right.
+ */
+public final class MoveGenerator {
+    private static final Direction[] AXES = {Direction.RIGHT, Direction.DOWN};
+
+    private final int[] rows = new int[6];
+    private final int[] cols = new int[6];
+    private final int[] handIndexes = new int[6];
+    private final int[] kindToHand = new int[36];
+    private final Tile[] kinds = new Tile[36];
+    private Grid grid;
+    private MoveBuffer moves;
+    private long handMask;
+    private Direction d;
+    private int before;
+    private boolean gaps;
+
+    /**
+     * Fills the buffer with every legal move of a hand on a grid.
+     * The buffer is cleared first.
+     * When the hand holds two identical tiles, only the first one is used, so that each move is generated once.
+     *
+     * @param grid  the grid of the game.
+     * @param hand  the tiles of the player.
+     * @param moves the buffer receiving the moves.
+     */
+    public void generate(Grid grid, List<Tile> hand, MoveBuffer moves) {
+        moves.clear();
+        this.grid = grid;
+        this.moves = moves;
+        this.handMask = 0;
+        for (int i = 0; i < hand.size(); i++) {
+            long bit = Grid.typeMask(hand.get(i));
+            if ((this.handMask & bit) == 0) {
+                int kind = Long.numberOfTrailingZeros(bit);
+                this.kindToHand[kind] = i;
+                this.kinds[kind] = hand.get(i);
+                this.handMask |= bit;
+            }
+        }
+        if (this.handMask != 0) {
+            if (grid.isEmpty()) {
+                generateFirst(0, 0, 0);
+            } else {
+                for (int i = 0; i < grid.frontierSize(); i++) {
+                    generateFrom(grid.frontierCell(i), grid.frontierMask(i));
+                }
+            }
+        }
+        this.grid = null;
+        this.moves = null;
+    }
+
+    /**
+     * Generates the first moves of the game, adding the tiles of the hand one kind after the other.
+     *
+     * @param count the number of tiles already chosen.
+     * @param line  the features of the tiles already chosen, folded together.
+     * @param from  the first kind of tile that may still be chosen.
+     */
+    private void generateFirst(int count, long line, int from) {
+        long candidates = this.handMask & Grid.acceptedBy(line) & (-1L << from);
+        while (candidates != 0) {
+            int kind = Long.numberOfTrailingZeros(candidates);
+            candidates &= candidates - 1;
+            this.rows[count] = Grid.ORIGIN;
+            this.cols[count] = Grid.ORIGIN + count;
+            this.handIndexes[count] = this.kindToHand[kind];
+            int length = count + 1;
+            this.moves.add(MoveKind.FIRST, Direction.RIGHT, length, length == 6 ? 12 : length,
+                    this.rows, this.cols, this.handIndexes);
+            if (length < 6) {
+                generateFirst(length, line | Grid.features(this.kinds[kind]), kind + 1);
+            }
+        }
+    }
+
+    /**
+     * Generates the moves whose first tile placed on the frontier is on the given cell.
+     *
+     * @param cell the packed position of the cell of the frontier.
+     * @param mask the kinds of tiles accepted by the cell.
+     */
+    private void generateFrom(long cell, long mask) {
+        if ((mask & this.handMask) == 0) {
+            return; // No move goes through this cell;
+        }
+        int row = Grid.cellRow(cell);
+        int col = Grid.cellCol(cell);
+        for (Direction axis : AXES) {
+            this.d = axis;
+            // The moves may start on the free cells with no neighbour before the cell;
+            int dr = axis.getDeltaRow();
+            int dc = axis.getDeltaCol();
+            int startRow = row;
+            int startCol = col;
+            this.before = 0;
+            boolean extend = true;
+            while (extend) {
+                this.gaps = false;
+                long line = 0;
+                int count = 0;
+                if (this.before == 0) { // The tiles of the grid just before the cell are part of the line;
+                    int run = this.grid.run(row - dr, col - dc, axis.opposite());
+                    for (int i = 1; i <= run; i++) {
+                        line |= Grid.features(this.grid.get(row - i * dr, col - i * dc));
+                    }
+                    count = run;
+                }
+                if (count < 6) {
+                    place(0, startRow, startCol, line, count, 0);
+                }
+                int previousRow = startRow - dr;
+                int previousCol = startCol - dc;
+                extend = this.before < 5 && !this.grid.isTilePresent(previousRow, previousCol)
+                        && !this.grid.isFrontier(previousRow, previousCol);
+                startRow = previousRow;
+                startCol = previousCol;
+                this.before++;
+            }
+        }
+    }
+
+    /**
+     * Places the next tile of a move on a free cell and explores the moves that continue it.
+     *
+     * @param placed the number of tiles already placed.
+     * @param row    the row of the free cell.
+     * @param col    the column of the free cell.
+     * @param line   the features of the tiles of the line before the cell, folded together.
+     * @param count  the number of tiles of the line before the cell.
+     * @param cross  the points already brought by the lines crossing the placed tiles.
+     */
+    private void place(int placed, int row, int col, long line, int count, int cross) {
+        long candidates = this.handMask & Grid.acceptedBy(line);
+        int crossLength = 1;
+        // The cells before the first frontier cell have no neighbour;
+        if (placed >= this.before && this.grid.isFrontier(row, col)) {
+            Direction diagonal = this.d.diagonal();
+            candidates &= this.grid.cellMask(row, col);
+            crossLength += this.grid.run(row + diagonal.getDeltaRow(), col + diagonal.getDeltaCol(), diagonal)
+                    + this.grid.run(row - diagonal.getDeltaRow(), col - diagonal.getDeltaCol(), diagonal.opposite());
+        }
+        int crossScore = cross + Grid.lineScore(crossLength);
+
+        // The tiles of the grid just after the cell are part of the line;
+        int dr = this.d.getDeltaRow();
+        int dc = this.d.getDeltaCol();
+        int run = this.grid.run(row + dr, col + dc, this.d);
+        long after = 0;
+        for (int i = 1; i <= run; i++) {
+            after |= Grid.features(this.grid.get(row + i * dr, col + i * dc));
+        }
+        int total = count + 1 + run;
+        if (total > 6) {
+            return;
+        }
+
+        boolean gapsBefore = this.gaps;
+        while (candidates != 0) {
+            int kind = Long.numberOfTrailingZeros(candidates);
+            candidates &= candidates - 1;
+            long whole = line | Grid.features(this.kinds[kind]) | after;
+            if (isValidLine(whole, total)) {
+                this.rows[placed] = row;
+                this.cols[placed] = col;
+                this.handIndexes[placed] = this.kindToHand[kind];
+                // A single tile is generated once, as a row;
+                if (placed >= this.before && (placed > 0 || this.d == Direction.RIGHT)) {
+                    this.moves.add(kindOfMove(placed + 1), this.d, placed + 1, Grid.lineScore(total) + crossScore,
+                            this.rows, this.cols, this.handIndexes);
+                }
+                if (placed < 5 && total < 6) {
+                    this.gaps = gapsBefore || run > 0;
+                    place(placed + 1, row + (run + 1) * dr, col + (run + 1) * dc, whole, total, crossScore);
+                    this.gaps = gapsBefore;
+                }
+            }
+        }
+    }
+
+    /**
+     * Checks if the folded features of a line form a valid Qwirkle line.
+     *
+     * @param line  the features of the tiles of the line, folded together.
+     * @param count the number of tiles of the line.
+     * @return true if the line has no duplicate and a single color or a single shape, false otherwise.
+     */
+    private static boolean isValidLine(long line, int count) {
+        return Long.bitCount(line & Grid.SEEN_MASK) == count
+                && (Long.bitCount(line & Grid.COLOR_MASK) == 1 || Long.bitCount(line & Grid.SHAPE_MASK) == 1);
+    }
+
+    /**
+     * Gives the kind of a generated move.
+     *
+     * @param count the number of tiles of the move.
+     * @return SINGLE, LINE or POSITIONS.
+     */
+    private MoveKind kindOfMove(int count) {
+        if (count == 1) {
+            return MoveKind.SINGLE;
+        }
+        return this.gaps ? MoveKind.POSITIONS : MoveKind.LINE;
+    }
+}
@@ -0,0 +1,402 @@
+package g60085.qwirkle.model;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * MoveJournal records the turns of a game in an append-only file, so that a game survives a crash of the program.
+ * The file starts with the state of the game when the journal was created, in the format of {@link GameFile},
+ * then holds one record of {@link #RECORD_SIZE} bytes per turn, passes included:
+ * <pre>
+ * byte   kind of move: 0 pass, 1 first, 2 single, 3 line, 4 positions
+ * byte   index of the player, byte direction, byte number of tiles
+ * 6 x    short row, short column, byte index in the hand
+ * short  0
+ * int    CRC32 of the 36 bytes before
+ * </pre>
+ * A record is written as soon as its turn is played, and the journal forces the file to the disk
+ * every {@code syncEvery} records (group commit): a crash of the program loses no turn,
+ * and a crash of the system loses at most the turns since the last sync.
+ * The game is recovered by replaying the records on the saved state through a {@link GameEngine}:
+ * the bag draws the same tiles as during the game, and a record torn by a crash ends the replay.
+ * <p>
+ * The journal is a {@link GameListener} of the engine of the game.
+ */
+public final class MoveJournal implements GameListener, Closeable {
+    public static final int RECORD_SIZE = 40;
+    static final int MAGIC = 0x51574A4C; // "QWJL";
+    private static final short VERSION = 1;
+    private static final int HEADER_SIZE = 12;
+    private static final byte PASS = 0;
+    private static final byte FIRST = 1;
+    private static final byte SINGLE = 2;
+    private static final byte LINE = 3;
+    private static final byte POSITIONS = 4;
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    private final FileChannel channel;
+    private final GameEngine engine;
+    private final int syncEvery;
+    private final ByteBuffer record;
+    private final int[] slots;
+    private int records;
+    private int unsynced;
+
+    /**
+     * Initializes a journal appending to a file.
+     *
+     * @param channel   the channel of the file, positioned after the last record.
+     * @param engine    the engine of the game.
+     * @param syncEvery the number of records between two syncs of the file.
+     * @param records   the number of records already in the file.
+     */
+    private MoveJournal(FileChannel channel, GameEngine engine, int syncEvery, int records) {
+        this.channel = channel;
+        this.engine = engine;
+        this.syncEvery = syncEvery;
+        this.record = ByteBuffer.allocate(RECORD_SIZE);
+        this.slots = new int[18];
+        this.records = records;
+        engine.addListener(this);
+    }
+
+    /**
+     * Creates a journal for a game, replacing the file if it exists, and starts recording its turns.
+     *
+     * @param path      the path of the file.
+     * @param engine    the engine of the game.
+     * @param syncEvery the number of turns between two syncs of the file, 1 to sync each turn.
+     * @return the journal, listening to the engine.
+     * @throws QwirkleException if the file cannot be written or syncEvery is not positive.
+     */
+    public static MoveJournal create(Path path, GameEngine engine, int syncEvery) throws QwirkleException {
+        requirePositive(syncEvery);
+        ByteBuffer snapshot = GameFile.encode(engine.getGame());
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC).putShort(VERSION).putShort((short) 0).putInt(snapshot.remaining()).flip();
+        FileChannel channel = null;
+        try {
+            channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+            while (header.hasRemaining() || snapshot.hasRemaining()) {
+                channel.write(new ByteBuffer[]{header, snapshot});
+            }
+            channel.force(true);
+            return new MoveJournal(channel, engine, syncEvery, 0);
+        } catch (IOException e) {
+            closeQuietly(channel);
+            throw new QwirkleException("An error occurred while writing the journal: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Recovers the game of a journal and goes on recording its turns after the last whole record.
+     *
+     * @param path      the path of the file.
+     * @param syncEvery the number of turns between two syncs of the file, 1 to sync each turn.
+     * @return the journal, listening to the engine of the recovered game (see {@link #getEngine()}).
+     * @throws QwirkleException if the file cannot be read or does not hold a journal.
+     */
+    public static MoveJournal resume(Path path, int syncEvery) throws QwirkleException {
+        requirePositive(syncEvery);
+        FileChannel channel = null;
+        try {
+            channel = FileChannel.open(path, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            ByteBuffer buffer = readAll(channel);
+            GameEngine engine = replay(buffer);
+            // A record torn by a crash is overwritten by the next one;
+            channel.truncate(buffer.position());
+            channel.position(buffer.position());
+            return new MoveJournal(channel, engine, syncEvery, engine.getMoveCount());
+        } catch (IOException e) {
+            closeQuietly(channel);
+            throw new QwirkleException("An error occurred while reading the journal: " + e.getMessage());
+        } catch (QwirkleException e) {
+            closeQuietly(channel);
+            throw e;
+        }
+    }
+
+    /**
+     * Recovers the game of a journal without changing the file.
+     *
+     * @param path the path of the file.
+     * @return the engine of the recovered game, whose turns are those of the whole records of the journal.
+     * @throws QwirkleException if the file cannot be read or does not hold a journal.
+     */
+    public static GameEngine recover(Path path) throws QwirkleException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return replay(readAll(channel));
+        } catch (IOException e) {
+            throw new QwirkleException("An error occurred while reading the journal: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Replays the records of a journal on the state of the game it starts with.
+     *
+     * @param buffer the bytes of the journal, positioned after the last whole record when the replay ends.
+     * @return the engine of the recovered game.
+     * @throws QwirkleException if the bytes do not hold a journal or a record is not a legal move.
+     */
+    static GameEngine replay(ByteBuffer buffer) throws QwirkleException {
+        GameEngine engine;
+        try {
+            if (buffer.getInt() != MAGIC) {
+                throw new QwirkleException("The file is not a journal!");
+            }
+            if (buffer.getShort() > VERSION) {
+                throw new QwirkleException("The journal comes from a newer version of the game!");
+            }
+            buffer.getShort();
+            int length = buffer.getInt();
+            engine = new GameEngine(GameFile.decode(buffer.slice(buffer.position(), length)));
+            buffer.position(buffer.position() + length);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+            throw new QwirkleException("The journal is corrupted!");
+        }
+        CRC32 crc = new CRC32();
+        boolean whole = true;
+        while (whole && buffer.remaining() >= RECORD_SIZE) {
+            int start = buffer.position();
+            crc.reset();
+            crc.update(buffer.slice(start, RECORD_SIZE - 4));
+            whole = (int) crc.getValue() == buffer.getInt(start + RECORD_SIZE - 4);
+            if (whole) {
+                int player = buffer.get(start + 1);
+                if (player != engine.getGame().getCurrentPlayerIndex()
+                        || !engine.play(decode(buffer.slice(start, RECORD_SIZE))).isOk()) {
+                    throw new QwirkleException("The journal does not match its game!");
+                }
+                buffer.position(start + RECORD_SIZE);
+            }
+        }
+        return engine;
+    }
+
+    /**
+     * Reads a whole file.
+     *
+     * @param channel the channel of the file.
+     * @return the bytes of the file, ready to be read.
+     * @throws IOException if the file cannot be read.
+     */
+    private static ByteBuffer readAll(FileChannel channel) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(channel.size(), Integer.MAX_VALUE));
+        channel.position(0);
+        while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+            // Reads until the buffer is full;
+        }
+        return buffer.flip();
+    }
+
+    /**
+     * Gives the move of a record.
+     *
+     * @param record the bytes of the record.
+     * @return the move.
+     * @throws QwirkleException if the record does not hold a move.
+     */
+    private static Move decode(ByteBuffer record) throws QwirkleException {
+        int kind = record.get(0);
+        int count = record.get(3);
+        if (count < 0 || count > 6 || record.get(2) < 0 || record.get(2) >= DIRECTIONS.length) {
+            throw new QwirkleException("The journal is corrupted!");
+        }
+        Direction direction = DIRECTIONS[record.get(2)];
+        int[] indexes = new int[count];
+        int[] is = new int[count * 3];
+        for (int i = 0; i < count; i++) {
+            is[i * 3] = record.getShort(4 + i * 5);
+            is[i * 3 + 1] = record.getShort(6 + i * 5);
+            is[i * 3 + 2] = record.get(8 + i * 5);
+            indexes[i] = is[i * 3 + 2];
+        }
+        return switch (kind) {
+            case PASS -> new Move.Pass();
+            case FIRST -> new Move.First(direction, indexes);
+            case SINGLE -> new Move.Single(is[0], is[1], is[2]);
+            case LINE -> new Move.Line(is[0], is[1], direction, indexes);
+            case POSITIONS -> new Move.Positions(is);
+            default -> throw new QwirkleException("The journal is corrupted!");
+        };
+    }
+
+    /**
+     * Appends the record of a turn, and syncs the file if enough records have been appended since the last sync.
+     *
+     * @param player the index of the player.
+     * @param move   the move played.
+     * @throws QwirkleException if the record cannot be written.
+     */
+    @Override
+    public void onPlayed(int player, Move move) throws QwirkleException {
+        byte kind = PASS;
+        Direction direction = Direction.RIGHT;
+        int count = 0;
+        if (move instanceof Move.First first) {
+            kind = FIRST;
+            direction = first.direction();
+            count = first.indexes().length;
+            for (int i = 0; i < count; i++) {
+                setSlot(i, 0, 0, first.indexes()[i]);
+            }
+        } else if (move instanceof Move.Single single) {
+            kind = SINGLE;
+            count = 1;
+            setSlot(0, single.row(), single.col(), single.index());
+        } else if (move instanceof Move.Line line) {
+            kind = LINE;
+            direction = line.direction();
+            count = line.indexes().length;
+            for (int i = 0; i < count; i++) {
+                setSlot(i, i == 0 ? line.row() : 0, i == 0 ? line.col() : 0, line.indexes()[i]);
+            }
+        } else if (move instanceof Move.Positions positions) {
+            kind = POSITIONS;
+            count = positions.is().length / 3;
+            for (int i = 0; i < count; i++) {
+                setSlot(i, positions.is()[i * 3], positions.is()[i * 3 + 1], positions.is()[i * 3 + 2]);
+            }
+        }
+
+        this.record.clear();
+        this.record.put(kind).put((byte) player).put((byte) direction.ordinal()).put((byte) count);
+        for (int i = 0; i < 6; i++) {
+            boolean used = i < count;
+            this.record.putShort((short) (used ? this.slots[i * 3] : 0));
+            this.record.putShort((short) (used ? this.slots[i * 3 + 1] : 0));
+            this.record.put((byte) (used ? this.slots[i * 3 + 2] : 0));
+        }
+        this.record.putShort((short) 0);
+        CRC32 crc = new CRC32();
+        crc.update(this.record.array(), 0, RECORD_SIZE - 4);
+        this.record.putInt((int) crc.getValue());
+        this.record.flip();
+        try {
+            while (this.record.hasRemaining()) {
+                this.channel.write(this.record);
+            }
+            this.records++;
+            this.unsynced++;
+            if (this.unsynced >= this.syncEvery) {
+                sync();
+            }
+        } catch (IOException e) {
+            throw new QwirkleException("An error occurred while writing the journal: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Syncs the file once the game is over.
+     *
+     * @param winners the names of the winners.
+     * @throws QwirkleException if the file cannot be synced.
+     */
+    @Override
+    public void onGameOver(List<String> winners) throws QwirkleException {
+        sync();
+    }
+
+    /**
+     * Remembers a tile of the record being built.
+     *
+     * @param i     the index of the tile in the move.
+     * @param row   the row of the tile.
+     * @param col   the column of the tile.
+     * @param index the index of the tile in the hand.
+     */
+    private void setSlot(int i, int row, int col, int index) {
+        this.slots[i * 3] = row;
+        this.slots[i * 3 + 1] = col;
+        this.slots[i * 3 + 2] = index;
+    }
+
+    /**
+     * Forces the records appended since the last sync to the disk.
+     *
+     * @throws QwirkleException if the file cannot be synced.
+     */
+    public void sync() throws QwirkleException {
+        if (this.unsynced > 0) {
+            try {
+                this.channel.force(false);
+                this.unsynced = 0;
+            } catch (IOException e) {
+                throw new QwirkleException("An error occurred while writing the journal: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Gives the engine of the game recorded by the journal.
+     *
+     * @return the engine.
+     */
+    public GameEngine getEngine() {
+        return this.engine;
+    }
+
+    /**
+     * Gives the number of turns recorded in the file.
+     *
+     * @return the number of records.
+     */
+    public int getRecordCount() {
+        return this.records;
+    }
+
+    /**
+     * Syncs and closes the file. The turns played afterwards are no longer recorded.
+     *
+     * @throws QwirkleException if the file cannot be synced or closed.
+     */
+    @Override
+    public void close() throws QwirkleException {
+        try {
+            sync();
+        } finally {
+            this.engine.removeListener(this);
+            try {
+                this.channel.close();
+            } catch (IOException e) {
+                throw new QwirkleException("An error occurred while closing the journal: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Checks that the number of turns between two syncs is positive.
+     *
+     * @param syncEvery the number of turns between two syncs.
+     * @throws QwirkleException if the number is not positive.
+     */
+    private static void requirePositive(int syncEvery) throws QwirkleException {
+        if (syncEvery <= 0) {
+            throw new QwirkleException("The number of turns between two syncs must be positive!");
+        }
+    }
+
+    /**
+     * Closes a channel after a failure, ignoring a second failure.
+     *
+     * @param channel the channel, or null if it was not opened.
+     */
+    private static void closeQuietly(FileChannel channel) {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // The first failure is the one reported;
+            }
+        }
+    }
+}
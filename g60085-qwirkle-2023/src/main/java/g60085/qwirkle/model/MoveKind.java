@@ -0,0 +1,23 @@
+package g60085.qwirkle.model;
+
+/**
+ * MoveKind tells which of the ways of adding tiles to the grid a generated move corresponds to.
+ */
+public enum MoveKind {
+    /**
+     * The first move of the game, played with {@link Grid#firstAdd(Direction, Tile...)}.
+     */
+    FIRST,
+    /**
+     * A single tile, played with {@link Grid#add(int, int, Tile)}.
+     */
+    SINGLE,
+    /**
+     * Tiles on consecutive cells, played with {@link Grid#add(int, int, Direction, Tile...)}.
+     */
+    LINE,
+    /**
+     * Tiles on a single line with tiles of the grid between them, played with {@link Grid#add(TileAtPosition...)}.
+     */
+    POSITIONS
+}
@@ -0,0 +1,54 @@
+package g60085.qwirkle.model;
+
+/**
+ * MoveResult is the outcome of the validation of a move in the Qwirkle game.
+ * It is returned by the non-throwing {@link Grid} check methods and {@link Game} try methods,
+ * so that a rejected move costs neither an exception nor a stack trace.
+ * Each result other than OK carries the message of the {@link QwirkleException} thrown by the throwing methods.
+ */
+public enum MoveResult {
+    OK("The move is valid!"),
+    GRID_EMPTY("The grid game is empty! You must call the firstAdd method!"),
+    GRID_NOT_EMPTY("The grid is not empty!"),
+    INVALID_NUMBER_OF_TILES("Invalid number of tiles!"),
+    INVALID_DIRECTION("Invalid direction!"),
+    INVALID_INDEX("Invalid index of tile!"),
+    TILE_NOT_INITIALIZED("Some tiles are not initialized!"),
+    OCCUPIED("There is already a tile at this position!"),
+    NOT_SAME_LINE("Tiles are not on the same line!"),
+    SAME_POSITION("You cannot put two tiles at the same position!"),
+    NOT_ADJACENT("The tiles are not connected to another tile!"),
+    NO_COMMON_TRAIT("Tiles must share the same color or shape!"),
+    DUPLICATE("You cannot add the same tile!"),
+    BREAKS_RULES("Does not respect the rules of Qwirkle game!"),
+    GAME_OVER("The game is over!");
+
+    private final String message;
+
+    /**
+     * Initializes the result with the message explaining it.
+     *
+     * @param message the message explaining the result.
+     */
+    MoveResult(String message) {
+        this.message = message;
+    }
+
+    /**
+     * Gives access to the message explaining the result.
+     *
+     * @return the message of the result.
+     */
+    public String getMessage() {
+        return this.message;
+    }
+
+    /**
+     * Checks if the move is valid.
+     *
+     * @return true if the result is OK, false otherwise.
+     */
+    public boolean isOk() {
+        return this == OK;
+    }
+}
@@ -0,0 +1,259 @@
+package g60085.qwirkle.model;
+
+import java.io.Serializable;
+
+/**
+ * Occupancy is a bitboard telling which cells of the game grid hold a tile.
+ * Each row is a bit mask stored in an array of longs, and the masks are also kept transposed,
+ * one per column, so that a line can be explored in both directions with word-wide bit operations
+ * (an occupied run is found with {@link Long#numberOfTrailingZeros(long)} instead of cell by cell).
+ * The masks cover a square window around the origin which is doubled when a tile is placed outside of it,
+ * and a row or a column mask is only allocated when a tile is placed on it.
+ */
+final class Occupancy implements Serializable {
+    private static final int INITIAL_WORDS = 4;
+
+    private long[][] rows;
+    private long[][] cols;
+    private int base;
+    private int words;
+
+    /**
+     * Initializes an empty bitboard whose window is centered on the given coordinate.
+     *
+     * @param center the row and column at the center of the window.
+     */
+    Occupancy(int center) {
+        this.words = INITIAL_WORDS;
+        this.base = center - this.words * 32;
+        this.rows = new long[this.words * 64][];
+        this.cols = new long[this.words * 64][];
+    }
+
+    /**
+     * Checks if the cell holds a tile.
+     *
+     * @param row the row of the cell.
+     * @param col the column of the cell.
+     * @return true if the cell is occupied, false otherwise.
+     */
+    boolean isSet(int row, int col) {
+        int r = row - this.base;
+        int c = col - this.base;
+        if (!inWindow(r) || !inWindow(c) || this.rows[r] == null) {
+            return false;
+        }
+        return (this.rows[r][c >>> 6] & (1L << c)) != 0;
+    }
+
+    /**
+     * Marks the cell as occupied, growing the window if the cell is outside of it.
+     *
+     * @param row the row of the cell.
+     * @param col the column of the cell.
+     */
+    void set(int row, int col) {
+        while (!inWindow(row - this.base) || !inWindow(col - this.base)) {
+            grow();
+        }
+        int r = row - this.base;
+        int c = col - this.base;
+        if (this.rows[r] == null) {
+            this.rows[r] = new long[this.words];
+        }
+        if (this.cols[c] == null) {
+            this.cols[c] = new long[this.words];
+        }
+        this.rows[r][c >>> 6] |= 1L << c;
+        this.cols[c][r >>> 6] |= 1L << r;
+    }
+
+    /**
+     * Marks the cell as free.
+     *
+     * @param row the row of the cell.
+     * @param col the column of the cell.
+     */
+    void clear(int row, int col) {
+        int r = row - this.base;
+        int c = col - this.base;
+        if (inWindow(r) && inWindow(c) && this.rows[r] != null) {
+            this.rows[r][c >>> 6] &= ~(1L << c);
+            this.cols[c][r >>> 6] &= ~(1L << r);
+        }
+    }
+
+    /**
+     * Counts the occupied cells found one after the other from the given cell (included) in a direction.
+     *
+     * @param row the row of the first cell.
+     * @param col the column of the first cell.
+     * @param d   the direction to follow.
+     * @return the length of the occupied run, 0 if the first cell is free.
+     */
+    int run(int row, int col, Direction d) {
+        int r = row - this.base;
+        int c = col - this.base;
+        if (!inWindow(r) || !inWindow(c)) {
+            return 0;
+        }
+        return switch (d) {
+            case RIGHT -> runForward(this.rows[r], c);
+            case LEFT -> runBackward(this.rows[r], c);
+            case DOWN -> runForward(this.cols[c], r);
+            case UP -> runBackward(this.cols[c], r);
+        };
+    }
+
+    /**
+     * Checks if at least one cell of a segment is occupied.
+     *
+     * @param row    the row of the first cell of the segment.
+     * @param col    the column of the first cell of the segment.
+     * @param d      the direction of the segment.
+     * @param length the number of cells of the segment.
+     * @return true if a cell of the segment holds a tile, false if the whole segment is free.
+     */
+    boolean any(int row, int col, Direction d, int length) {
+        int first;
+        long[] line;
+        switch (d) {
+            case RIGHT, LEFT -> {
+                int r = row - this.base;
+                if (!inWindow(r)) {
+                    return false;
+                }
+                line = this.rows[r];
+                first = d == Direction.RIGHT ? col : col - length + 1;
+            }
+            default -> {
+                int c = col - this.base;
+                if (!inWindow(c)) {
+                    return false;
+                }
+                line = this.cols[c];
+                first = d == Direction.DOWN ? row : row - length + 1;
+            }
+        }
+        int from = Math.max(first - this.base, 0);
+        int to = Math.min(first - this.base + length, this.words * 64); // Exclusive;
+        return line != null && from < to && anyBetween(line, from, to);
+    }
+
+    /**
+     * Counts the set bits found one after the other from an index towards the higher indexes.
+     *
+     * @param line  the bit mask of a row or a column, or null if the line is empty.
+     * @param index the index of the first bit.
+     * @return the length of the run of set bits.
+     */
+    private static int runForward(long[] line, int index) {
+        int count = 0;
+        if (line != null) {
+            int w = index >>> 6;
+            int b = index & 63;
+            boolean end = false;
+            while (!end && w < line.length) {
+                int t = Math.min(Long.numberOfTrailingZeros(~line[w] >>> b), 64 - b);
+                count += t;
+                end = t < 64 - b;
+                w++;
+                b = 0;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Counts the set bits found one after the other from an index towards the lower indexes.
+     *
+     * @param line  the bit mask of a row or a column, or null if the line is empty.
+     * @param index the index of the first bit.
+     * @return the length of the run of set bits.
+     */
+    private static int runBackward(long[] line, int index) {
+        int count = 0;
+        if (line != null) {
+            int w = index >>> 6;
+            int b = index & 63;
+            boolean end = false;
+            while (!end && w >= 0) {
+                int t = Math.min(Long.numberOfLeadingZeros(~line[w] << (63 - b)), b + 1);
+                count += t;
+                end = t < b + 1;
+                w--;
+                b = 63;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Checks if a bit is set between two indexes.
+     *
+     * @param line the bit mask of a row or a column.
+     * @param from the first index (included).
+     * @param to   the last index (excluded).
+     * @return true if at least one bit is set, false otherwise.
+     */
+    private static boolean anyBetween(long[] line, int from, int to) {
+        int w = from >>> 6;
+        int last = (to - 1) >>> 6;
+        boolean found = false;
+        while (!found && w <= last) {
+            long mask = -1L;
+            if (w == from >>> 6) {
+                mask &= -1L << from;
+            }
+            if (w == last) {
+                mask &= -1L >>> (63 - ((to - 1) & 63));
+            }
+            found = (line[w] & mask) != 0;
+            w++;
+        }
+        return found;
+    }
+
+    /**
+     * Checks if an index relative to the window is inside the window.
+     *
+     * @param index the index to check.
+     * @return true if the index is inside the window, false otherwise.
+     */
+    private boolean inWindow(int index) {
+        return index >= 0 && index < this.words * 64;
+    }
+
+    /**
+     * Doubles the window on each side, keeping its center.
+     * The existing masks are shifted by a whole number of words.
+     */
+    private void grow() {
+        int shift = this.words / 2; // In words, i.e. words * 32 cells;
+        int newWords = this.words * 2;
+        this.rows = grow(this.rows, newWords, shift);
+        this.cols = grow(this.cols, newWords, shift);
+        this.base -= shift * 64;
+        this.words = newWords;
+    }
+
+    /**
+     * Copies the masks of the lines into the bigger window.
+     *
+     * @param lines    the masks of the rows or of the columns.
+     * @param newWords the number of words of each line in the new window.
+     * @param shift    the number of words added before the old window.
+     * @return the masks in the new window.
+     */
+    private static long[][] grow(long[][] lines, int newWords, int shift) {
+        long[][] grown = new long[newWords * 64][];
+        for (int i = 0; i < lines.length; i++) {
+            if (lines[i] != null) {
+                long[] line = new long[newWords];
+                System.arraycopy(lines[i], 0, line, shift, lines[i].length);
+                grown[i + shift * 64] = line;
+            }
+        }
+        return grown;
+    }
+}
@@ -1,17 +1,26 @@
 package g60085.qwirkle.model;
 
 import java.io.Serializable;
-import java.util.ArrayList;
-import java.util.Collections;
+import java.util.AbstractList;
 import java.util.List;
+import java.util.Objects;
+import java.util.RandomAccess;
 
 /**
  * Player represents a player in the Qwirkle game.
+ * The hand is kept as the ids of its tiles in 6 byte slots (see {@link Tile#id()}), with the number of tiles
+ * of each kind and the mask of the kinds held, updated on each change: checking whether a tile of the hand
+ * fits a cell is a single mask operation, and changing the hand allocates nothing.
  */
 public class Player implements Serializable {
     private String name;
-    private List<Tile> tiles;
+    private final byte[] slots;
+    private final byte[] counts;
+    private int size;
     private int score;
+    private long typeMask;
+    private long handHash;
+    private transient List<Tile> hand;
 
     /**
      * Initializes a player with the given name and a starting score of 6.
@@ -19,9 +28,22 @@ public class Player implements Serializable {
      * @param name the name or nickname of the player.
      */
     public Player(String name) {
+        this(name, 6);
+    }
+
+    /**
+     * Initializes a player read from a save, with their score and an empty hand,
+     * whose tiles are then put back with {@link #insert(int, Tile)}.
+     *
+     * @param name  the name or nickname of the player.
+     * @param score the score of the player.
+     */
+    Player(String name, int score) {
         this.name = name;
-        this.tiles = new ArrayList<>();
-        this.score = 6;
+        this.slots = new byte[6];
+        this.counts = new byte[Tile.KINDS];
+        this.size = 0;
+        this.score = score;
     }
 
     /**
@@ -45,31 +67,192 @@ public class Player implements Serializable {
 
     /**
      * Gets the hand of the player.
+     * The list is a view of the hand, created once: it follows the changes of the hand.
      *
      * @return an unmodifiable list of tiles representing the player's hand.
      */
     public List<Tile> getHand() {
-        return Collections.unmodifiableList(this.tiles);
+        if (this.hand == null) { // The view is not serialized;
+            this.hand = new HandView();
+        }
+        return this.hand;
+    }
+
+    /**
+     * Gives the number of tiles in the player's hand.
+     *
+     * @return a number between 0 and 6.
+     */
+    public int handSize() {
+        return this.size;
+    }
+
+    /**
+     * Gives the id of a tile of the player's hand.
+     *
+     * @param index the index of the tile in the hand.
+     * @return the id of the tile, between 0 and 35.
+     */
+    public int tileAt(int index) {
+        return this.slots[index];
+    }
+
+    /**
+     * Gives the number of tiles of a kind in the player's hand.
+     *
+     * @param type the id of the kind of tile, between 0 and 35.
+     * @return the number of tiles of this kind.
+     */
+    public int count(int type) {
+        return this.counts[type];
+    }
+
+    /**
+     * Gives the index of a tile in the player's hand.
+     *
+     * @param tile the tile.
+     * @return the index of the first tile of the same kind, or -1 if there is none.
+     */
+    public int indexOf(Tile tile) {
+        int id = tile.id();
+        int index = -1;
+        int i = 0;
+        while (index == -1 && i < this.size) {
+            if (this.slots[i] == id) {
+                index = i;
+            }
+            i++;
+        }
+        return index;
     }
 
     /**
      * Refills the player's hand by drawing tiles from the tile bag.
      * It fills the hand to have 6 tiles, if possible.
+     *
+     * @param bag the bag of the game.
+     */
+    public void refill(Bag bag) {
+        draw(bag, 6 - this.size);
+    }
+
+    /**
+     * Draws tiles from the tile bag into the player's hand.
+     *
+     * @param bag the bag of the game.
+     * @param n   the number of tiles to draw, at most the number of free slots of the hand.
      */
-    public void refill() {
-        Bag bag = Bag.getInstance();
-        Tile[] refill = bag.getRandomTiles(6 - this.tiles.size());
-        Collections.addAll(this.tiles, refill);
+    void draw(Bag bag, int n) {
+        // The bag may be empty at the end of the game;
+        int drawn = bag.drawInto(this.slots, this.size, n);
+        for (int i = 0; i < drawn; i++) {
+            count(this.slots[this.size], 1);
+            this.size++;
+        }
     }
 
     /**
      * Removes the specified tiles from the player's hand.
      *
      * @param tiles the tiles to remove from the hand.
+     * @throws QwirkleException if one of the tiles is not in the hand.
      */
-    public void remove(Tile... tiles) {
+    public void remove(Tile... tiles) throws QwirkleException {
         for (Tile t : tiles) {
-            this.tiles.remove(this.tiles.indexOf(t));
+            int index = indexOf(t);
+            if (index == -1) {
+                throw new QwirkleException("The tile is not in the hand!");
+            }
+            removeAt(index);
+        }
+    }
+
+    /**
+     * Gives the kinds of tiles of the player's hand.
+     *
+     * @return a mask whose bit i is set if the hand holds a tile of index i (see {@link Grid#typeMask(Tile)}).
+     */
+    public long getTypeMask() {
+        return this.typeMask;
+    }
+
+    /**
+     * Gives the hash of the player's hand: the sum of a key per tile, whatever the order of the tiles.
+     *
+     * @return the hash of the hand, 0 for an empty hand.
+     */
+    public long getHandHash() {
+        return this.handHash;
+    }
+
+    /**
+     * Updates the counts, the mask and the hash of the hand when a tile comes in or goes out.
+     *
+     * @param type  the id of the kind of tile.
+     * @param delta 1 if the tile comes in, -1 if it goes out.
+     */
+    private void count(int type, int delta) {
+        this.counts[type] += delta;
+        this.handHash += delta * Zobrist.handTile(type);
+        if (this.counts[type] == 0) {
+            this.typeMask &= ~(1L << type);
+        } else {
+            this.typeMask |= 1L << type;
+        }
+    }
+
+    /**
+     * Removes a tile of the player's hand given by its index.
+     *
+     * @param index the index of the tile in the hand.
+     * @return the removed tile.
+     */
+    Tile removeAt(int index) {
+        int type = this.slots[index];
+        System.arraycopy(this.slots, index + 1, this.slots, index, this.size - index - 1);
+        this.size--;
+        count(type, -1);
+        return Tile.of(type);
+    }
+
+    /**
+     * Inserts a tile in the player's hand at the given index.
+     *
+     * @param index the index of the tile in the hand.
+     * @param tile  the tile to insert.
+     */
+    void insert(int index, Tile tile) {
+        System.arraycopy(this.slots, index, this.slots, index + 1, this.size - index);
+        this.slots[index] = (byte) tile.id();
+        this.size++;
+        count(tile.id(), 1);
+    }
+
+    /**
+     * HandView is the read-only list of the tiles of the hand, reading the slots of the player.
+     */
+    private final class HandView extends AbstractList<Tile> implements RandomAccess {
+
+        /**
+         * Gives a tile of the hand.
+         *
+         * @param index the index of the tile in the hand.
+         * @return the interned tile.
+         */
+        @Override
+        public Tile get(int index) {
+            Objects.checkIndex(index, Player.this.size);
+            return Tile.of(Player.this.slots[index]);
+        }
+
+        /**
+         * Gives the number of tiles of the hand.
+         *
+         * @return the size of the hand.
+         */
+        @Override
+        public int size() {
+            return Player.this.size;
         }
     }
 
@@ -0,0 +1,295 @@
+package g60085.qwirkle.model;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * SaveIndex keeps the descriptions of the saves of a directory (see {@link SaveInfo}) in a single file,
+ * so that thousands of saves can be listed, filtered and sorted by reading this file only.
+ * The index is written in the directory as {@value #FILE_NAME}:
+ * <pre>
+ * int    magic "QWIX"
+ * short  version
+ * long   time of the last change of the directory, in nanoseconds, int number of files of the directory
+ * per save: int size of the entry, short length and UTF-8 bytes of the name of the file,
+ *           the header of the save (see {@link GameFile}), int CRC32 of the entry
+ * </pre>
+ * Each save appends an entry, which replaces the previous entries of the same file,
+ * and the index is compacted when it is listed and holds more replaced entries than saves.
+ * The index is only a summary of the directory: when it is missing or damaged, it is rebuilt
+ * from the headers of the save files. It is also rebuilt when the directory has changed since the index was written,
+ * so that a save whose entry was never appended, or a save deleted without the game, is not listed wrongly.
+ */
+public final class SaveIndex {
+    public static final String FILE_NAME = ".index";
+    private static final int MAGIC = 0x51574958; // "QWIX";
+    private static final short VERSION = 2;
+    private static final int STATE_OFFSET = 6;
+    private static final int STATE_SIZE = 12;
+    private static final int HEADER_SIZE = STATE_OFFSET + STATE_SIZE;
+
+    /**
+     * Prevents the instantiation of this utility class.
+     */
+    private SaveIndex() {
+    }
+
+    /**
+     * Gives the descriptions of the saves of a directory, read from its index.
+     *
+     * @param directory the directory of the saves.
+     * @return the descriptions of the saves, in no particular order, empty if the directory does not exist.
+     * @throws QwirkleException if the index must be rebuilt and cannot be written.
+     */
+    public static synchronized List<SaveInfo> list(Path directory) throws QwirkleException {
+        Path path = directory.resolve(FILE_NAME);
+        Map<String, SaveInfo> saves = new LinkedHashMap<>();
+        int entries;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(channel.size(), Integer.MAX_VALUE));
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                // Reads until the buffer is full;
+            }
+            entries = readEntries(buffer.flip(), saves);
+            if (!buffer.slice(STATE_OFFSET, STATE_SIZE).equals(state(directory))) {
+                return rebuild(directory); // The directory has changed without the index;
+            }
+        } catch (NoSuchFileException e) {
+            return Files.isDirectory(directory) ? rebuild(directory) : new ArrayList<>();
+        } catch (IOException | QwirkleException e) {
+            return rebuild(directory);
+        }
+        if (entries > 2 * saves.size() + 16) {
+            write(directory, saves.values());
+        }
+        return new ArrayList<>(saves.values());
+    }
+
+    /**
+     * Gives the descriptions of the saves of a directory where a player plays, sorted.
+     *
+     * @param directory the directory of the saves.
+     * @param player    the name of the player, ignoring the case, or null for all the saves.
+     * @param order     the order of the saves.
+     * @return the descriptions of the saves.
+     * @throws QwirkleException if the index must be rebuilt and cannot be written.
+     */
+    public static List<SaveInfo> find(Path directory, String player, Comparator<SaveInfo> order)
+            throws QwirkleException {
+        List<SaveInfo> saves = list(directory);
+        if (player != null) {
+            saves.removeIf(save -> !save.hasPlayer(player));
+        }
+        saves.sort(order);
+        return saves;
+    }
+
+    /**
+     * Adds a save to the index of its directory, replacing the previous description of the same file,
+     * then records the state of the directory, which holds the save now.
+     * The index is built from the whole directory if it does not exist yet.
+     *
+     * @param directory the directory of the save.
+     * @param info      the description of the save, already written.
+     * @throws QwirkleException if the index cannot be written.
+     */
+    static synchronized void add(Path directory, SaveInfo info) throws QwirkleException {
+        Path path = directory.resolve(FILE_NAME);
+        if (!Files.exists(path)) {
+            rebuild(directory);
+        } else {
+            ByteBuffer entry = entry(info);
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                while (entry.hasRemaining()) {
+                    channel.write(entry);
+                }
+                channel.force(false);
+            } catch (IOException e) {
+                throw new QwirkleException("An error occurred while writing the index of the saves: " + e.getMessage());
+            }
+            writeState(directory);
+        }
+    }
+
+    /**
+     * Builds the index of a directory again from the headers of its save files.
+     * The files which do not hold a game are left out, as well as the journals of the games being played.
+     *
+     * @param directory the directory of the saves.
+     * @return the descriptions of the saves.
+     * @throws QwirkleException if the directory cannot be listed or the index cannot be written.
+     */
+    public static synchronized List<SaveInfo> rebuild(Path directory) throws QwirkleException {
+        List<SaveInfo> saves = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            Iterator<Path> iterator = files.iterator();
+            while (iterator.hasNext()) {
+                Path file = iterator.next();
+                String name = file.getFileName().toString();
+                if (Files.isRegularFile(file) && !name.startsWith(FILE_NAME) && !name.endsWith(".tmp")) {
+                    try {
+                        saves.add(GameFile.readInfo(file));
+                    } catch (QwirkleException e) {
+                        // The file is not a save;
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new QwirkleException("An error occurred while listing the saves: " + e.getMessage());
+        }
+        write(directory, saves);
+        return saves;
+    }
+
+    /**
+     * Reads the entries of an index, the last entry of each file replacing the previous ones.
+     *
+     * @param buffer the bytes of the index.
+     * @param saves  the map receiving the descriptions of the saves by file.
+     * @return the number of entries read.
+     * @throws QwirkleException if the index is damaged.
+     */
+    private static int readEntries(ByteBuffer buffer, Map<String, SaveInfo> saves) throws QwirkleException {
+        int entries = 0;
+        CRC32 crc = new CRC32();
+        try {
+            if (buffer.getInt() != MAGIC || buffer.getShort() != VERSION) {
+                throw new QwirkleException("The index of the saves is corrupted!");
+            }
+            buffer.position(HEADER_SIZE);
+            while (buffer.hasRemaining()) {
+                int size = buffer.getInt();
+                int start = buffer.position();
+                crc.reset();
+                crc.update(buffer.slice(start, size));
+                if ((int) crc.getValue() != buffer.getInt(start + size)) {
+                    throw new QwirkleException("The index of the saves is corrupted!");
+                }
+                byte[] name = new byte[buffer.getShort()];
+                buffer.get(name);
+                SaveInfo info = GameFile.getInfo(buffer, new String(name, StandardCharsets.UTF_8));
+                if (buffer.position() != start + size) {
+                    throw new QwirkleException("The index of the saves is corrupted!");
+                }
+                buffer.getInt();
+                saves.put(info.file(), info);
+                entries++;
+            }
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | NegativeArraySizeException e) {
+            throw new QwirkleException("The index of the saves is corrupted!");
+        }
+        return entries;
+    }
+
+    /**
+     * Encodes the entry of a save.
+     *
+     * @param info the description of the save.
+     * @return a buffer holding the entry, ready to be read.
+     */
+    private static ByteBuffer entry(SaveInfo info) {
+        byte[] name = info.file().getBytes(StandardCharsets.UTF_8);
+        byte[] header = GameFile.encodeInfo(info);
+        int size = 2 + name.length + header.length;
+        ByteBuffer buffer = ByteBuffer.allocate(4 + size + 4);
+        buffer.putInt(size);
+        buffer.putShort((short) name.length);
+        buffer.put(name);
+        buffer.put(header);
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), 4, size);
+        buffer.putInt((int) crc.getValue());
+        return buffer.flip();
+    }
+
+    /**
+     * Gives the state of a directory: the time of its last change and its number of files,
+     * which change when a file is created, deleted or replaced.
+     *
+     * @param directory the directory of the saves.
+     * @return a buffer holding the state, ready to be read.
+     * @throws IOException if the directory cannot be read.
+     */
+    private static ByteBuffer state(Path directory) throws IOException {
+        long time = Files.getLastModifiedTime(directory).to(TimeUnit.NANOSECONDS);
+        int count;
+        try (Stream<Path> files = Files.list(directory)) {
+            count = (int) files.count();
+        }
+        return ByteBuffer.allocate(STATE_SIZE).putLong(time).putInt(count).flip();
+    }
+
+    /**
+     * Records the current state of a directory in the header of its index.
+     * Until it is recorded, the index does not match the directory and is rebuilt when it is listed.
+     *
+     * @param directory the directory of the saves.
+     * @throws QwirkleException if the index cannot be written.
+     */
+    private static void writeState(Path directory) throws QwirkleException {
+        try (FileChannel channel = FileChannel.open(directory.resolve(FILE_NAME), StandardOpenOption.WRITE)) {
+            ByteBuffer state = state(directory);
+            while (state.hasRemaining()) {
+                channel.write(state, STATE_OFFSET + state.position());
+            }
+            channel.force(false);
+        } catch (IOException e) {
+            throw new QwirkleException("An error occurred while writing the index of the saves: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Replaces the index of a directory atomically by one holding an entry per save.
+     *
+     * @param directory the directory of the saves.
+     * @param saves     the descriptions of the saves.
+     * @throws QwirkleException if the index cannot be written.
+     */
+    private static void write(Path directory, Iterable<SaveInfo> saves) throws QwirkleException {
+        Path path = directory.resolve(FILE_NAME);
+        Path temporary = directory.resolve(FILE_NAME + ".tmp");
+        // The state is left empty until the index is in place;
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC).putShort(VERSION).clear();
+        try {
+            try (FileChannel channel = FileChannel.open(temporary,
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                while (header.hasRemaining()) {
+                    channel.write(header);
+                }
+                for (SaveInfo save : saves) {
+                    ByteBuffer entry = entry(save);
+                    while (entry.hasRemaining()) {
+                        channel.write(entry);
+                    }
+                }
+                channel.force(false);
+            }
+            try {
+                Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            throw new QwirkleException("An error occurred while writing the index of the saves: " + e.getMessage());
+        }
+        writeState(directory);
+    }
+}
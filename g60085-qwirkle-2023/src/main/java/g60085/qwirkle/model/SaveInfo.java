@@ -0,0 +1,73 @@
+package g60085.qwirkle.model;
+
+import java.util.Comparator;
+
+/**
+ * SaveInfo describes a save file without its game: the name of the file, the time of the save,
+ * the number of turns played, the number of tiles left in the bag, and the names and scores of the players.
+ * It is written in the header of each save file and in the index of the saves of a directory (see {@link SaveIndex}),
+ * so that the saves can be listed, filtered and sorted without reading the games.
+ *
+ * @param file    the name of the save file.
+ * @param time    the time of the save, in milliseconds since the epoch.
+ * @param moves   the number of turns played, passes included.
+ * @param bagSize the number of tiles left in the bag.
+ * @param names   the names of the players.
+ * @param scores  the scores of the players.
+ */
+public record SaveInfo(String file, long time, int moves, int bagSize, String[] names, int[] scores) {
+    /**
+     * Sorts the saves from the most recent to the oldest.
+     */
+    public static final Comparator<SaveInfo> NEWEST_FIRST = Comparator.comparingLong(SaveInfo::time).reversed();
+    /**
+     * Sorts the saves by the name of their file.
+     */
+    public static final Comparator<SaveInfo> BY_FILE = Comparator.comparing(SaveInfo::file);
+    /**
+     * Sorts the saves from the highest best score to the lowest.
+     */
+    public static final Comparator<SaveInfo> BEST_SCORE_FIRST = Comparator.comparingInt(SaveInfo::bestScore).reversed();
+
+    /**
+     * Describes the save of a game.
+     *
+     * @param file the name of the save file.
+     * @param time the time of the save, in milliseconds since the epoch.
+     * @param game the game.
+     * @return the description of the save.
+     */
+    static SaveInfo of(String file, long time, Game game) {
+        return new SaveInfo(file, time, game.getMoveCount(), game.getBagSize(),
+                game.getPlayersName(), game.getPlayersScore());
+    }
+
+    /**
+     * Checks if a player of the game has a name, ignoring the case.
+     *
+     * @param name the name.
+     * @return true if one of the players has this name, false otherwise.
+     */
+    public boolean hasPlayer(String name) {
+        boolean found = false;
+        int i = 0;
+        while (!found && i < this.names.length) {
+            found = this.names[i].equalsIgnoreCase(name);
+            i++;
+        }
+        return found;
+    }
+
+    /**
+     * Gives the highest score of the players.
+     *
+     * @return the best score.
+     */
+    public int bestScore() {
+        int best = Integer.MIN_VALUE;
+        for (int score : this.scores) {
+            best = Math.max(best, score);
+        }
+        return best;
+    }
+}
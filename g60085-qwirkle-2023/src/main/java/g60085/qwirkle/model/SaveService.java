@@ -0,0 +1,194 @@
+package g60085.qwirkle.model;
+
+import java.io.Closeable;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * SaveService writes save files in the background, so that the thread playing a game never waits for the disk.
+ * A save is encoded at once by the thread asking for it, so that the game can go on while its snapshot
+ * waits to be written, and the files are written one after the other by a single thread,
+ * which can be shared by many games.
+ * The saves waiting for the writer are kept in their order, at most one per file: a new save of a file
+ * replaces the snapshot of the waiting one and shares its future. When too many files wait,
+ * the thread asking for a save waits for the writer.
+ */
+public final class SaveService implements Closeable {
+    private final int capacity;
+    private final Map<Path, Pending> pending;
+    private final Thread writer;
+    private boolean closed;
+
+    /**
+     * Initializes the service and starts its writer.
+     *
+     * @param capacity the number of files that can wait for the writer.
+     * @throws QwirkleException if the capacity is not positive.
+     */
+    public SaveService(int capacity) throws QwirkleException {
+        if (capacity <= 0) {
+            throw new QwirkleException("The number of waiting saves must be positive!");
+        }
+        this.capacity = capacity;
+        this.pending = new LinkedHashMap<>();
+        this.writer = new Thread(this::writeAll, "qwirkle-saves");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Asks for a game to be written to a file, replacing the file if it exists, as {@link GameFile#write(Game, Path)}.
+     * The game is encoded now and can be played on as soon as this method returns.
+     *
+     * @param game the game.
+     * @param path the path of the file.
+     * @return a future completed with the path once the file is written, or with the exception preventing it.
+     * @throws QwirkleException if the service is closed, the name of the file is the one of the index,
+     *                          or the thread is interrupted while too many files wait.
+     */
+    public CompletableFuture<Path> save(Game game, Path path) throws QwirkleException {
+        SaveInfo info = GameFile.describe(game, path);
+        ByteBuffer buffer = GameFile.encode(game, info);
+        Path file = path.toAbsolutePath().normalize();
+        synchronized (this.pending) {
+            Pending save = this.pending.get(file);
+            while (save == null && !this.closed && this.pending.size() >= this.capacity) {
+                try {
+                    this.pending.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new QwirkleException("The save was interrupted!");
+                }
+                save = this.pending.get(file);
+            }
+            if (this.closed) {
+                throw new QwirkleException("The saves are closed!");
+            }
+            if (save == null) { // The file does not wait yet;
+                save = new Pending(file, new CompletableFuture<>());
+                this.pending.put(file, save);
+                this.pending.notifyAll();
+            }
+            save.buffer = buffer;
+            save.info = info;
+            return save.future;
+        }
+    }
+
+    /**
+     * Gives the number of files waiting for the writer.
+     *
+     * @return the number of waiting saves.
+     */
+    public int getPendingCount() {
+        synchronized (this.pending) {
+            return this.pending.size();
+        }
+    }
+
+    /**
+     * Writes the waiting saves in their order, until the service is closed and no save waits.
+     * A failed save, even for lack of memory, only fails its own future, and if the writer stops anyway,
+     * the service is closed so that no thread waits for it.
+     */
+    private void writeAll() {
+        try {
+            Pending save = take();
+            while (save != null) {
+                try {
+                    GameFile.write(save.path, save.buffer, save.info);
+                    save.future.complete(save.path);
+                } catch (Throwable e) { // The only writer must survive the failure of a save;
+                    save.future.completeExceptionally(e);
+                }
+                save = take();
+            }
+        } finally {
+            abandon();
+        }
+    }
+
+    /**
+     * Closes the service once its writer has stopped, failing the saves still waiting
+     * and waking up the threads waiting for room.
+     */
+    private void abandon() {
+        synchronized (this.pending) {
+            this.closed = true;
+            for (Pending save : this.pending.values()) {
+                save.future.completeExceptionally(new QwirkleException("The saves are closed!"));
+            }
+            this.pending.clear();
+            this.pending.notifyAll();
+        }
+    }
+
+    /**
+     * Waits for the oldest waiting save and takes it, so that a new save of its file waits again.
+     *
+     * @return the save, or null if the service is closed and no save waits.
+     */
+    private Pending take() {
+        synchronized (this.pending) {
+            while (this.pending.isEmpty() && !this.closed) {
+                try {
+                    this.pending.wait();
+                } catch (InterruptedException e) {
+                    // The writer only stops once the service is closed;
+                }
+            }
+            Pending save = null;
+            Iterator<Pending> saves = this.pending.values().iterator();
+            if (saves.hasNext()) {
+                save = saves.next();
+                saves.remove();
+                this.pending.notifyAll();
+            }
+            return save;
+        }
+    }
+
+    /**
+     * Refuses the new saves and waits until the waiting ones are written.
+     *
+     * @throws QwirkleException if the thread is interrupted while waiting.
+     */
+    @Override
+    public void close() throws QwirkleException {
+        synchronized (this.pending) {
+            this.closed = true;
+            this.pending.notifyAll();
+        }
+        try {
+            this.writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new QwirkleException("The saves were interrupted!");
+        }
+    }
+
+    /**
+     * Pending is a save waiting for the writer. Its snapshot is only changed while it waits.
+     */
+    private static final class Pending {
+        private final Path path;
+        private final CompletableFuture<Path> future;
+        private ByteBuffer buffer;
+        private SaveInfo info;
+
+        /**
+         * Initializes a save of a file.
+         *
+         * @param path   the path of the file.
+         * @param future the future completed once the file is written.
+         */
+        private Pending(Path path, CompletableFuture<Path> future) {
+            this.path = path;
+            this.future = future;
+        }
+    }
+}
@@ -7,6 +7,62 @@ import java.io.Serializable;
  *  Each tile has a specific color and shape.
  *  The Tile class is a record, providing automatic generation of getters, equals(), hashCode(), and toString().
  *  This class is serializable, allowing tiles to be saved, loaded, and transmitted between different components of the game.
+ *  The 36 kinds of tiles are interned: {@link #of(Color, Shape)} and {@link #of(int)} always give the same instance
+ *  for the same kind, and each kind has a stable id between 0 and 35, {@code color.ordinal() * 6 + shape.ordinal()},
+ *  so that the game can store tiles as bytes and compare them by identity.
  */
 public record Tile(Color color, Shape shape) implements Serializable {
+    /**
+     * The number of kinds of tiles.
+     */
+    public static final int KINDS = 36;
+
+    private static final Tile[] TILES = new Tile[KINDS];
+
+    static {
+        for (Color color : Color.values()) {
+            for (Shape shape : Shape.values()) {
+                TILES[color.ordinal() * 6 + shape.ordinal()] = new Tile(color, shape);
+            }
+        }
+    }
+
+    /**
+     * Gives the interned tile of a color and a shape.
+     *
+     * @param color the color of the tile.
+     * @param shape the shape of the tile.
+     * @return the canonical instance of this kind of tile.
+     */
+    public static Tile of(Color color, Shape shape) {
+        return TILES[color.ordinal() * 6 + shape.ordinal()];
+    }
+
+    /**
+     * Gives the interned tile of an id.
+     *
+     * @param id the id of the kind of tile, between 0 and 35.
+     * @return the canonical instance of this kind of tile.
+     */
+    public static Tile of(int id) {
+        return TILES[id];
+    }
+
+    /**
+     * Gives the id of the kind of the tile.
+     *
+     * @return an id between 0 and 35.
+     */
+    public int id() {
+        return this.color.ordinal() * 6 + this.shape.ordinal();
+    }
+
+    /**
+     * Gives the canonical instance of a tile read from a stream.
+     *
+     * @return the interned tile of the same kind.
+     */
+    private Object readResolve() {
+        return of(this.color, this.shape);
+    }
 }
@@ -0,0 +1,207 @@
+package g60085.qwirkle.model;
+
+import java.io.Serializable;
+
+/**
+ * TileMap is a sparse storage for the tiles placed on the game grid.
+ * It is an open-addressing hash map with linear probing whose keys are positions packed into a long
+ * (row in the high 32 bits, column in the low 32 bits) and whose values are the tiles.
+ * A game can never hold more than 108 tiles, so the map stays a few kilobytes large
+ * whatever the coordinates used, and there is no limit on the rows and columns.
+ */
+final class TileMap implements Serializable {
+    private static final int INITIAL_CAPACITY = 32;
+
+    private long[] keys;
+    private Tile[] values;
+    private int size;
+
+    /**
+     * Initializes an empty map.
+     */
+    TileMap() {
+        this.keys = new long[INITIAL_CAPACITY];
+        this.values = new Tile[INITIAL_CAPACITY];
+        this.size = 0;
+    }
+
+    /**
+     * Packs a position into a single long key.
+     *
+     * @param row the row of the position.
+     * @param col the column of the position.
+     * @return the packed key.
+     */
+    static long key(int row, int col) {
+        return ((long) row << 32) | (col & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Extracts the row of a packed key.
+     *
+     * @param key the packed key.
+     * @return the row of the position.
+     */
+    static int row(long key) {
+        return (int) (key >> 32);
+    }
+
+    /**
+     * Extracts the column of a packed key.
+     *
+     * @param key the packed key.
+     * @return the column of the position.
+     */
+    static int col(long key) {
+        return (int) key;
+    }
+
+    /**
+     * Gives access to the tile stored at the given position.
+     *
+     * @param key the packed position.
+     * @return the tile at this position, or null if there is none.
+     */
+    Tile get(long key) {
+        int mask = this.keys.length - 1;
+        int i = slot(key, mask);
+        while (this.values[i] != null) {
+            if (this.keys[i] == key) {
+                return this.values[i];
+            }
+            i = (i + 1) & mask;
+        }
+        return null;
+    }
+
+    /**
+     * Stores a tile at the given position, replacing the previous one if any.
+     *
+     * @param key  the packed position.
+     * @param tile the tile to store, must not be null.
+     */
+    void put(long key, Tile tile) {
+        if ((this.size + 1) * 2 > this.keys.length) {
+            resize(this.keys.length * 2);
+        }
+        int mask = this.keys.length - 1;
+        int i = slot(key, mask);
+        while (this.values[i] != null) {
+            if (this.keys[i] == key) {
+                this.values[i] = tile;
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+        this.keys[i] = key;
+        this.values[i] = tile;
+        this.size++;
+    }
+
+    /**
+     * Removes the tile stored at the given position.
+     * The following entries of the probe sequence are shifted back so that no tombstone is needed.
+     *
+     * @param key the packed position.
+     * @return the removed tile, or null if there was none.
+     */
+    Tile remove(long key) {
+        int mask = this.keys.length - 1;
+        int i = slot(key, mask);
+        while (this.values[i] != null && this.keys[i] != key) {
+            i = (i + 1) & mask;
+        }
+        Tile removed = this.values[i];
+        if (removed == null) {
+            return null;
+        }
+        // Backward shift deletion;
+        int hole = i;
+        int j = (i + 1) & mask;
+        while (this.values[j] != null) {
+            int home = slot(this.keys[j], mask);
+            if (((j - home) & mask) >= ((j - hole) & mask)) {
+                this.keys[hole] = this.keys[j];
+                this.values[hole] = this.values[j];
+                hole = j;
+            }
+            j = (j + 1) & mask;
+        }
+        this.values[hole] = null;
+        this.size--;
+        return removed;
+    }
+
+    /**
+     * Gives the number of tiles stored in the map.
+     *
+     * @return the number of tiles.
+     */
+    int size() {
+        return this.size;
+    }
+
+    /**
+     * Gives the number of slots of the map, used to iterate over its entries.
+     *
+     * @return the capacity of the map.
+     */
+    int capacity() {
+        return this.keys.length;
+    }
+
+    /**
+     * Gives the key stored in a slot.
+     *
+     * @param slot the index of the slot.
+     * @return the packed position stored in this slot, meaningless if the slot is free.
+     */
+    long keyAt(int slot) {
+        return this.keys[slot];
+    }
+
+    /**
+     * Gives the tile stored in a slot.
+     *
+     * @param slot the index of the slot.
+     * @return the tile stored in this slot, or null if the slot is free.
+     */
+    Tile valueAt(int slot) {
+        return this.values[slot];
+    }
+
+    /**
+     * Computes the home slot of a key.
+     *
+     * @param key  the packed position.
+     * @param mask the capacity minus one.
+     * @return the index of the home slot.
+     */
+    private static int slot(long key, int mask) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    /**
+     * Rehashes every entry into bigger arrays.
+     *
+     * @param capacity the new capacity, a power of two.
+     */
+    private void resize(int capacity) {
+        long[] oldKeys = this.keys;
+        Tile[] oldValues = this.values;
+        this.keys = new long[capacity];
+        this.values = new Tile[capacity];
+        int mask = capacity - 1;
+        for (int j = 0; j < oldKeys.length; j++) {
+            if (oldValues[j] != null) {
+                int i = slot(oldKeys[j], mask);
+                while (this.values[i] != null) {
+                    i = (i + 1) & mask;
+                }
+                this.keys[i] = oldKeys[j];
+                this.values[i] = oldValues[j];
+            }
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package g60085.qwirkle.model;
+
+/**
+ * Zobrist gives the pseudo-random 64-bit keys combined into the hashes of the grid and of the game.
+ * The grid is unbounded, so the keys are not read from a table but computed by mixing the position
+ * and the kind of tile with the finalizer of SplitMix64: the same inputs always give the same key.
+ * The key of a placed tile is xored into the hash of the grid, so that placing or taking back a tile costs O(1).
+ * The tiles of a hand or of the bag are summed instead, so that identical tiles do not cancel each other.
+ */
+final class Zobrist {
+    private static final long CELL_SALT = 0x2545F4914F6CDD1DL;
+    private static final long HAND_SALT = 0x9E3779B97F4A7C15L;
+    private static final long BAG_SALT = 0xD1B54A32D192ED03L;
+    private static final long PLAYER_SALT = 0x8CB92BA72F3D8DD7L;
+    private static final long TURN_SALT = 0xABC98388FB8FAC03L;
+
+    /**
+     * Prevents the instantiation of this utility class.
+     */
+    private Zobrist() {
+    }
+
+    /**
+     * Scrambles the bits of a value, so that close values give unrelated results.
+     *
+     * @param z the value.
+     * @return the scrambled value.
+     */
+    static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Gives the key of a kind of tile placed on a cell of the grid.
+     *
+     * @param cell the packed position of the cell.
+     * @param type the index of the kind of tile, between 0 and 35.
+     * @return the key to xor into the hash of the grid.
+     */
+    static long cell(long cell, int type) {
+        return mix(mix(cell ^ CELL_SALT) + type);
+    }
+
+    /**
+     * Gives the key of a kind of tile held in a hand.
+     *
+     * @param type the index of the kind of tile, between 0 and 35.
+     * @return the key to add to the hash of the hand.
+     */
+    static long handTile(int type) {
+        return mix(HAND_SALT + type);
+    }
+
+    /**
+     * Gives the key of a kind of tile left in the bag.
+     *
+     * @param type the index of the kind of tile, between 0 and 35.
+     * @return the key to add to the hash of the bag.
+     */
+    static long bagTile(int type) {
+        return mix(BAG_SALT + type);
+    }
+
+    /**
+     * Gives the key of a player with a given hand and score.
+     *
+     * @param index    the index of the player in the game.
+     * @param handHash the hash of the hand of the player.
+     * @param score    the score of the player.
+     * @return the key to xor into the hash of the game.
+     */
+    static long player(int index, long handHash, int score) {
+        return mix(mix(handHash + index * PLAYER_SALT) + score);
+    }
+
+    /**
+     * Gives the key of the player whose turn it is.
+     *
+     * @param index the index of the current player.
+     * @return the key to xor into the hash of the game.
+     */
+    static long currentPlayer(int index) {
+        return mix(TURN_SALT + index);
+    }
+}
@@ -0,0 +1,236 @@
+package g60085.qwirkle.simulation;
+
+import g60085.qwirkle.model.GameArchive;
+import g60085.qwirkle.model.GameSummary;
+import g60085.qwirkle.model.QwirkleException;
+
+import java.nio.file.Path;
+import java.util.Locale;
+
+/**
+ * ArchiveStats gathers the figures of the games of a {@link GameArchive}: the distribution of the final scores,
+ * the frequency of the Qwirkles, the advantage of the first player, the number of turns per game and the rate of passes.
+ * The games are played again by a parallel stream over the archive (see {@link GameArchive#summaries()}),
+ * each thread filling its own statistics, merged at the end.
+ * <p>
+ * Usage: {@code ArchiveStats FILE}, or {@code mvn -P analyze compile exec:exec -Danalyze.args="FILE"}.
+ */
+public final class ArchiveStats {
+    private static final int MIN_SCORE = -64;
+    private static final int MAX_SCORE = 511;
+
+    private long games;
+    private long players;
+    private long turns;
+    private long passes;
+    private long qwirkles;
+    private long tiles;
+    private long scoreSum;
+    private double firstPlayerWins;
+    private double expectedFirstPlayerWins;
+    private final long[] scoreCounts;
+
+    /**
+     * Initializes empty statistics.
+     */
+    public ArchiveStats() {
+        this.scoreCounts = new long[MAX_SCORE - MIN_SCORE + 1];
+    }
+
+    /**
+     * Gives the statistics of all the games of an archive, computed on all the cores.
+     *
+     * @param archive the archive.
+     * @return the statistics.
+     */
+    public static ArchiveStats of(GameArchive archive) {
+        return archive.summaries().collect(ArchiveStats::new, ArchiveStats::add, ArchiveStats::merge);
+    }
+
+    /**
+     * The entry point of the analysis of an archive.
+     *
+     * @param args the path of the archive.
+     */
+    public static void main(String[] args) {
+        if (args.length != 1) {
+            System.err.println("Usage: ArchiveStats FILE");
+            System.exit(1);
+        }
+        try {
+            long start = System.nanoTime();
+            GameArchive archive = GameArchive.open(Path.of(args[0]));
+            ArchiveStats stats = of(archive);
+            System.out.print(stats.report(System.nanoTime() - start));
+        } catch (QwirkleException e) {
+            System.err.println(e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Counts a game.
+     *
+     * @param game the summary of the game.
+     */
+    public void add(GameSummary game) {
+        this.games++;
+        this.players += game.players();
+        this.turns += game.turns();
+        this.passes += game.passes();
+        this.qwirkles += game.qwirkles();
+        this.tiles += game.tiles();
+        for (int score : game.scores()) {
+            this.scoreSum += score;
+            // The passes cost a point each, so that a score can be negative;
+            this.scoreCounts[Math.max(MIN_SCORE, Math.min(MAX_SCORE, score)) - MIN_SCORE]++;
+        }
+        if (game.isWinner(game.firstPlayer())) {
+            this.firstPlayerWins += 1.0 / game.winnerCount();
+        }
+        this.expectedFirstPlayerWins += 1.0 / game.players();
+    }
+
+    /**
+     * Adds the figures of other statistics to these ones.
+     *
+     * @param other the statistics of another thread.
+     */
+    public void merge(ArchiveStats other) {
+        this.games += other.games;
+        this.players += other.players;
+        this.turns += other.turns;
+        this.passes += other.passes;
+        this.qwirkles += other.qwirkles;
+        this.tiles += other.tiles;
+        this.scoreSum += other.scoreSum;
+        this.firstPlayerWins += other.firstPlayerWins;
+        this.expectedFirstPlayerWins += other.expectedFirstPlayerWins;
+        for (int i = 0; i < this.scoreCounts.length; i++) {
+            this.scoreCounts[i] += other.scoreCounts[i];
+        }
+    }
+
+    /**
+     * Gives the number of games counted.
+     *
+     * @return the number of games.
+     */
+    public long getGames() {
+        return this.games;
+    }
+
+    /**
+     * Gives the number of turns counted, passes included.
+     *
+     * @return the number of turns.
+     */
+    public long getTurns() {
+        return this.turns;
+    }
+
+    /**
+     * Gives the mean number of turns per game, passes included.
+     *
+     * @return the mean number of turns.
+     */
+    public double getMeanTurns() {
+        return this.games == 0 ? 0 : (double) this.turns / this.games;
+    }
+
+    /**
+     * Gives the share of the turns where the player has passed.
+     *
+     * @return a rate between 0 and 1.
+     */
+    public double getPassRate() {
+        return this.turns == 0 ? 0 : (double) this.passes / this.turns;
+    }
+
+    /**
+     * Gives the mean number of Qwirkles per game.
+     *
+     * @return the mean number of Qwirkles.
+     */
+    public double getQwirklesPerGame() {
+        return this.games == 0 ? 0 : (double) this.qwirkles / this.games;
+    }
+
+    /**
+     * Gives the mean number of Qwirkles per turn where tiles were placed.
+     *
+     * @return the mean number of Qwirkles per move.
+     */
+    public double getQwirklesPerMove() {
+        long moves = this.turns - this.passes;
+        return moves == 0 ? 0 : (double) this.qwirkles / moves;
+    }
+
+    /**
+     * Gives the share of the games won by the first player, a tie counting as a shared win.
+     *
+     * @return a rate between 0 and 1.
+     */
+    public double getFirstPlayerWinRate() {
+        return this.games == 0 ? 0 : this.firstPlayerWins / this.games;
+    }
+
+    /**
+     * Gives the advantage of the first player: their win rate minus the one they would have
+     * if every player had the same chances.
+     *
+     * @return the difference of the rates, positive if the first player wins more often.
+     */
+    public double getFirstPlayerAdvantage() {
+        return this.games == 0 ? 0 : (this.firstPlayerWins - this.expectedFirstPlayerWins) / this.games;
+    }
+
+    /**
+     * Gives the mean final score of the players.
+     *
+     * @return the mean score.
+     */
+    public double getMeanScore() {
+        return this.players == 0 ? 0 : (double) this.scoreSum / this.players;
+    }
+
+    /**
+     * Gives a percentile of the final scores of all the players.
+     *
+     * @param percent the percentile, between 0 and 100.
+     * @return the lowest score such that percent % of the scores are at most this one.
+     */
+    public int getScorePercentile(double percent) {
+        long rank = (long) Math.ceil(this.players * percent / 100);
+        long seen = 0;
+        int bucket = 0;
+        while (bucket < this.scoreCounts.length - 1 && seen + this.scoreCounts[bucket] < Math.max(rank, 1)) {
+            seen += this.scoreCounts[bucket];
+            bucket++;
+        }
+        return bucket + MIN_SCORE;
+    }
+
+    /**
+     * Builds the report of the analysis.
+     *
+     * @param elapsedNanos the wall-clock time of the analysis.
+     * @return the report, one figure per line.
+     */
+    public String report(long elapsedNanos) {
+        double seconds = elapsedNanos / 1e9;
+        StringBuilder report = new StringBuilder();
+        report.append(String.format(Locale.ROOT, "games: %d in %.2f s (%.1f games/s)%n",
+                this.games, seconds, this.games / seconds));
+        report.append(String.format(Locale.ROOT, "turns: %.1f per game, %.1f %% passes, %.1f tiles placed per game%n",
+                getMeanTurns(), 100 * getPassRate(), (double) this.tiles / Math.max(1, this.games)));
+        report.append(String.format(Locale.ROOT, "qwirkles: %.2f per game, %.2f %% of the moves%n",
+                getQwirklesPerGame(), 100 * getQwirklesPerMove()));
+        report.append(String.format(Locale.ROOT, "scores: mean %.1f, p10 %d, p25 %d, median %d, p75 %d, p90 %d, p99 %d%n",
+                getMeanScore(), getScorePercentile(10), getScorePercentile(25), getScorePercentile(50),
+                getScorePercentile(75), getScorePercentile(90), getScorePercentile(99)));
+        report.append(String.format(Locale.ROOT, "first player: wins %.1f %%, advantage %+.1f points of %%%n",
+                100 * getFirstPlayerWinRate(), 100 * getFirstPlayerAdvantage()));
+        return report.toString();
+    }
+}
@@ -0,0 +1,186 @@
+package g60085.qwirkle.simulation;
+
+import java.util.Locale;
+
+/**
+ * SimulationStats gathers the figures of the games played by a thread of the {@link Simulator}.
+ * Each thread fills its own statistics without any synchronization, and they are merged at the end.
+ * The final scores are counted in a histogram, one count per score, so that merging and reporting
+ * the distribution costs nothing per game.
+ */
+public final class SimulationStats {
+    private static final int MAX_SCORE = 511;
+
+    private final int seats;
+    private long games;
+    private long moves;
+    private long passes;
+    private long moveNanos;
+    private long playouts;
+    private long searchNanos;
+    private final long[] scoreCounts;
+    private final long[] seatScores;
+    private final double[] seatWins;
+
+    /**
+     * Initializes empty statistics.
+     *
+     * @param seats the number of players of each game.
+     */
+    public SimulationStats(int seats) {
+        this.seats = seats;
+        this.scoreCounts = new long[MAX_SCORE + 1];
+        this.seatScores = new long[seats];
+        this.seatWins = new double[seats];
+    }
+
+    /**
+     * Counts a move.
+     *
+     * @param nanos the time taken to choose and play the move.
+     * @param pass  true if the player has passed their turn.
+     */
+    public void recordMove(long nanos, boolean pass) {
+        this.moves++;
+        this.moveNanos += nanos;
+        if (pass) {
+            this.passes++;
+        }
+    }
+
+    /**
+     * Counts the playouts of the searches of a bot.
+     *
+     * @param playouts the number of playouts.
+     * @param nanos    the time spent searching.
+     */
+    public void recordSearch(long playouts, long nanos) {
+        this.playouts += playouts;
+        this.searchNanos += nanos;
+    }
+
+    /**
+     * Counts a finished game.
+     *
+     * @param scores  the final scores of the players, by seat.
+     * @param winners the seats of the winners, sharing the win.
+     */
+    public void recordGame(int[] scores, int[] winners) {
+        this.games++;
+        for (int seat = 0; seat < scores.length; seat++) {
+            this.scoreCounts[Math.max(0, Math.min(MAX_SCORE, scores[seat]))]++;
+            this.seatScores[seat] += scores[seat];
+        }
+        for (int winner : winners) {
+            this.seatWins[winner] += 1.0 / winners.length;
+        }
+    }
+
+    /**
+     * Adds the figures of other statistics to these ones.
+     *
+     * @param other the statistics of another thread.
+     */
+    public void merge(SimulationStats other) {
+        this.games += other.games;
+        this.moves += other.moves;
+        this.passes += other.passes;
+        this.moveNanos += other.moveNanos;
+        this.playouts += other.playouts;
+        this.searchNanos += other.searchNanos;
+        for (int i = 0; i < this.scoreCounts.length; i++) {
+            this.scoreCounts[i] += other.scoreCounts[i];
+        }
+        for (int seat = 0; seat < this.seats; seat++) {
+            this.seatScores[seat] += other.seatScores[seat];
+            this.seatWins[seat] += other.seatWins[seat];
+        }
+    }
+
+    /**
+     * Gives the number of games counted.
+     *
+     * @return the number of games.
+     */
+    public long getGames() {
+        return this.games;
+    }
+
+    /**
+     * Gives the number of moves counted, passes included.
+     *
+     * @return the number of moves.
+     */
+    public long getMoves() {
+        return this.moves;
+    }
+
+    /**
+     * Gives the mean score of the players of a seat.
+     *
+     * @param seat the index of the seat.
+     * @return the mean final score.
+     */
+    public double getMeanScore(int seat) {
+        return this.games == 0 ? 0 : (double) this.seatScores[seat] / this.games;
+    }
+
+    /**
+     * Gives the share of the games won by the players of a seat, a tie counting as a shared win.
+     *
+     * @param seat the index of the seat.
+     * @return a rate between 0 and 1.
+     */
+    public double getWinRate(int seat) {
+        return this.games == 0 ? 0 : this.seatWins[seat] / this.games;
+    }
+
+    /**
+     * Gives a percentile of the final scores of all the players.
+     *
+     * @param percent the percentile, between 0 and 100.
+     * @return the lowest score such that percent % of the scores are at most this one.
+     */
+    public int getScorePercentile(double percent) {
+        long total = this.games * this.seats;
+        long rank = (long) Math.ceil(total * percent / 100);
+        long seen = 0;
+        int score = 0;
+        while (score < MAX_SCORE && seen + this.scoreCounts[score] < Math.max(rank, 1)) {
+            seen += this.scoreCounts[score];
+            score++;
+        }
+        return score;
+    }
+
+    /**
+     * Builds the report of the simulation.
+     *
+     * @param names        the names of the bots, by seat.
+     * @param elapsedNanos the wall-clock time of the simulation.
+     * @return the report, one figure per line.
+     */
+    public String report(String[] names, long elapsedNanos) {
+        double seconds = elapsedNanos / 1e9;
+        StringBuilder report = new StringBuilder();
+        report.append(String.format(Locale.ROOT, "games: %d in %.2f s (%.1f games/s)%n",
+                this.games, seconds, this.games / seconds));
+        report.append(String.format(Locale.ROOT, "moves: %d (%.1f moves/s, %.1f per game, %.1f %% passes)%n",
+                this.moves, this.moves / seconds, (double) this.moves / Math.max(1, this.games),
+                100.0 * this.passes / Math.max(1, this.moves)));
+        report.append(String.format(Locale.ROOT, "mean move latency: %.2f us%n",
+                this.moveNanos / 1e3 / Math.max(1, this.moves)));
+        if (this.playouts > 0) {
+            report.append(String.format(Locale.ROOT, "playouts: %d (%.1f playouts/s of search per thread)%n",
+                    this.playouts, this.playouts * 1e9 / this.searchNanos));
+        }
+        report.append(String.format(Locale.ROOT, "scores: p10 %d, p25 %d, median %d, p75 %d, p90 %d, p99 %d%n",
+                getScorePercentile(10), getScorePercentile(25), getScorePercentile(50),
+                getScorePercentile(75), getScorePercentile(90), getScorePercentile(99)));
+        for (int seat = 0; seat < this.seats; seat++) {
+            report.append(String.format(Locale.ROOT, "seat %d (%s): mean score %.1f, wins %.1f %%%n",
+                    seat + 1, names[seat], getMeanScore(seat), 100 * getWinRate(seat)));
+        }
+        return report.toString();
+    }
+}
@@ -0,0 +1,230 @@
+package g60085.qwirkle.simulation;
+
+import g60085.qwirkle.bot.Bot;
+import g60085.qwirkle.bot.MctsBot;
+import g60085.qwirkle.model.ArchiveWriter;
+import g60085.qwirkle.model.Game;
+import g60085.qwirkle.model.GameEngine;
+import g60085.qwirkle.model.Move;
+import g60085.qwirkle.model.MoveBuffer;
+import g60085.qwirkle.model.QwirkleException;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Simulator plays many games between bots, spread over a pool of threads, and reports the throughput and the scores.
+ * Each thread takes the next game to play from a shared counter and keeps its own bots, move buffer and statistics,
+ * so that the threads share nothing else and the throughput grows with the number of cores.
+ * Each game has its own engine and its own bag, seeded from the seed of the simulation and the number of the game,
+ * so that the games are dealt the same tiles whatever the number of threads.
+ * The Monte Carlo bots of a thread search on its share of the cores, unless their names give their number of threads,
+ * and are closed once the thread has played its games.
+ * <p>
+ * The games can be kept in a {@link g60085.qwirkle.model.GameArchive}.
+ * <p>
+ * Usage: {@code Simulator [--games N] [--threads T] [--seed S] [--bots random,random] [--archive FILE]},
+ * or {@code mvn -P simulate compile exec:exec -Dsimulator.args="--games 10000"}.
+ */
+public final class Simulator {
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+    private static final Move PASS = new Move.Pass();
+
+    private final int games;
+    private final int threads;
+    private final long seed;
+    private final String[] bots;
+
+    /**
+     * Initializes a simulation.
+     *
+     * @param games   the number of games to play.
+     * @param threads the number of threads playing the games.
+     * @param seed    the seed of the simulation.
+     * @param bots    the names of the bots, one per player, between 2 and 4.
+     * @throws QwirkleException if the numbers are not positive or the number of bots is not between 2 and 4.
+     */
+    public Simulator(int games, int threads, long seed, String... bots) throws QwirkleException {
+        if (games <= 0 || threads <= 0) {
+            throw new QwirkleException("The numbers of games and threads must be positive!");
+        }
+        if (bots.length < 2 || bots.length > 4) {
+            throw new QwirkleException("A game is played by 2 to 4 bots!");
+        }
+        this.games = games;
+        this.threads = threads;
+        this.seed = seed;
+        this.bots = bots.clone();
+        for (String bot : bots) {
+            Bot.of(bot, seed).close(); // Checks the names before starting;
+        }
+    }
+
+    /**
+     * The entry point of the simulator.
+     *
+     * @param args the options of the simulation.
+     */
+    public static void main(String[] args) {
+        int games = 1000;
+        int threads = Runtime.getRuntime().availableProcessors();
+        long seed = 1;
+        String[] bots = {"random", "random"};
+        Path archive = null;
+        try {
+            for (int i = 0; i + 1 < args.length; i += 2) {
+                switch (args[i]) {
+                    case "--games" -> games = Integer.parseInt(args[i + 1]);
+                    case "--threads" -> threads = Integer.parseInt(args[i + 1]);
+                    case "--seed" -> seed = Long.parseLong(args[i + 1]);
+                    case "--bots" -> bots = args[i + 1].split(",");
+                    case "--archive" -> archive = Path.of(args[i + 1]);
+                    default -> throw new QwirkleException("Unknown option: " + args[i]);
+                }
+            }
+            Simulator simulator = new Simulator(games, threads, seed, bots);
+            System.out.printf("Playing %d games of %s on %d threads...%n", games, String.join(" vs ", bots), threads);
+            long start = System.nanoTime();
+            SimulationStats stats;
+            if (archive == null) {
+                stats = simulator.run();
+            } else {
+                try (ArchiveWriter writer = ArchiveWriter.open(archive)) {
+                    stats = simulator.run(writer);
+                    System.out.printf("The archive %s holds %d games.%n", archive, writer.size());
+                }
+            }
+            System.out.print(stats.report(bots, System.nanoTime() - start));
+        } catch (NumberFormatException | QwirkleException e) {
+            System.err.println(e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Plays all the games of the simulation.
+     *
+     * @return the statistics of the games.
+     * @throws QwirkleException if a thread fails.
+     */
+    public SimulationStats run() throws QwirkleException {
+        return run(null);
+    }
+
+    /**
+     * Plays all the games of the simulation and appends them to an archive.
+     *
+     * @param archive the writer of the archive, or null to keep no game.
+     * @return the statistics of the games.
+     * @throws QwirkleException if a thread fails.
+     */
+    public SimulationStats run(ArchiveWriter archive) throws QwirkleException {
+        AtomicInteger next = new AtomicInteger();
+        ForkJoinPool pool = new ForkJoinPool(this.threads);
+        try {
+            List<Future<SimulationStats>> workers = new ArrayList<>();
+            for (int t = 0; t < this.threads; t++) {
+                int worker = t;
+                workers.add(pool.submit(() -> playGames(next, worker, archive)));
+            }
+            SimulationStats stats = new SimulationStats(this.bots.length);
+            for (Future<SimulationStats> worker : workers) {
+                stats.merge(worker.get());
+            }
+            return stats;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new QwirkleException("The simulation was interrupted!");
+        } catch (ExecutionException e) {
+            throw new QwirkleException("A game of the simulation failed: " + e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Plays games until all of them are taken by the threads.
+     *
+     * @param next    the counter of the next game to play, shared by the threads.
+     * @param worker  the index of the thread.
+     * @param archive the writer of the archive, or null to keep no game.
+     * @return the statistics of the games played by the thread.
+     */
+    private SimulationStats playGames(AtomicInteger next, int worker, ArchiveWriter archive) {
+        // The cores are shared by the threads, so that their searches do not outnumber them;
+        int searchThreads = Math.max(1, Runtime.getRuntime().availableProcessors() / this.threads);
+        Bot[] players = new Bot[this.bots.length];
+        for (int i = 0; i < players.length; i++) {
+            players[i] = Bot.of(this.bots[i], this.seed + (worker * 4L + i + 1) * GOLDEN_GAMMA, searchThreads);
+        }
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < players.length; i++) {
+            names.add(this.bots[i] + "#" + (i + 1));
+        }
+        MoveBuffer moves = new MoveBuffer();
+        SimulationStats stats = new SimulationStats(players.length);
+        try {
+            int game = next.getAndIncrement();
+            while (game < this.games) {
+                playGame(game, names, players, moves, stats, archive);
+                game = next.getAndIncrement();
+            }
+            for (Bot player : players) {
+                if (player instanceof MctsBot mcts) {
+                    stats.recordSearch(mcts.getPlayouts(), mcts.getSearchNanos());
+                }
+            }
+        } finally {
+            for (Bot player : players) {
+                player.close();
+            }
+        }
+        return stats;
+    }
+
+    /**
+     * Plays a game between bots.
+     *
+     * @param number  the number of the game, giving the seed of its bag and its first player.
+     * @param names   the names of the players.
+     * @param players the bots, one per player.
+     * @param moves   the buffer receiving the legal moves.
+     * @param stats   the statistics receiving the figures of the game.
+     * @param archive the writer of the archive, or null to keep no game.
+     */
+    private void playGame(int number, List<String> names, Bot[] players, MoveBuffer moves, SimulationStats stats,
+                          ArchiveWriter archive) {
+        GameEngine engine = new GameEngine(names, this.seed ^ (number * GOLDEN_GAMMA), number % players.length);
+        if (archive != null) {
+            archive.record(engine);
+        }
+        Game game = engine.getGame();
+        while (!engine.isOver()) {
+            long start = System.nanoTime();
+            engine.generateMoves(moves);
+            int move = players[game.getCurrentPlayerIndex()].choose(game, moves);
+            if (move == -1) {
+                engine.play(PASS);
+            } else if (!engine.play(moves, move).isOk()) {
+                throw new QwirkleException("A bot chose an illegal move!");
+            }
+            stats.recordMove(System.nanoTime() - start, move == -1);
+        }
+        stats.recordGame(game.getPlayersScore(), engine.getWinnerIndexes());
+    }
+
+    /**
+     * Gives the names of the bots of the simulation.
+     *
+     * @return the names of the bots, one per player.
+     */
+    public String[] getBots() {
+        return Arrays.copyOf(this.bots, this.bots.length);
+    }
+}
@@ -1,9 +1,15 @@
 package g60085.qwirkle.view;
 
 import g60085.qwirkle.model.GridView;
+import g60085.qwirkle.model.QwirkleException;
+import g60085.qwirkle.model.SaveIndex;
+import g60085.qwirkle.model.SaveInfo;
 import g60085.qwirkle.model.Tile;
 
-import java.io.File;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
 import java.util.List;
 
 /**
@@ -73,43 +79,11 @@ public class View {
      */
     public static void displayGridView(GridView grid) {
         System.out.println();
-        int colLeft = 45;
-        int colRight = 45;
-
-        // Find the leftmost and rightmost columns with tiles
-        for (int i = 3; i < 87; i++) { // Row
-            for (int j = 0; j < 45; j++) { // Left column
-                if (grid.get(i, j) != null && j < colLeft) {
-                    colLeft = j;
-                    break;
-                }
-            }
-            for (int j = 86; j > 45; j--) { // Right column
-                if (grid.get(i, j) != null && j > colRight) {
-                    colRight = j;
-                    break;
-                }
-            }
-        }
-
-        int rowUp = 45;
-        int rowDown = 45;
-
-        // Find the topmost and bottommost rows with tiles
-        for (int j = colLeft; j <= colRight; j++) { // Column
-            for (int i = 0; i < 45; i++) { // Top row
-                if (grid.get(i, j) != null && i < rowUp) {
-                    rowUp = i;
-                    break;
-                }
-            }
-            for (int i = 86; i > 45; i--) { // Bottom row
-                if (grid.get(i, j) != null && i > rowDown) {
-                    rowDown = i;
-                    break;
-                }
-            }
-        }
+        // The bounding box of the tiles is tracked by the grid
+        int colLeft = grid.getMinCol();
+        int colRight = grid.getMaxCol();
+        int rowUp = grid.getMinRow();
+        int rowDown = grid.getMaxRow();
 
         // Display the central rectangular part of the grid
         for (int i = rowUp - 3; i < rowDown + 4; i++) { // Row
@@ -161,6 +135,7 @@ public class View {
                 + "- play line: l <row> <col> <direction> <i1> [<i2>]\n"
                 + "- play plic-ploc : m <row1> <col1> <i1> [<row2> <col2> <i2> ...]\n"
                 + "- pass : p\n"
+                + "- save and go on : s <file>\n"
                 + "- quit : q\n"
                 + "    i : index in list of tiles\n"
                 + "    d : direction in l (left), r (right), u (up), d (down)\n" + ANSI_RESET);
@@ -219,30 +194,47 @@ public class View {
     }
 
     /**
-     * Displays the serialized files in the specified directory if it contains any.
+     * Displays the saves of the directory game.ser if it contains any, from the most recent one,
+     * as they are described by the index of the directory.
      *
-     * @return True if the directory is not empty, false otherwise.
+     * @return True if the directory holds saves, false otherwise.
      */
     public static boolean displaySerializedFiles() {
-        boolean hasSerializedFiles = false;
         String directoryPath = "game.ser/";
-        File directory = new File(directoryPath);
-        File[] files = directory.listFiles();
+        List<SaveInfo> saves;
+        try {
+            saves = SaveIndex.find(Path.of(directoryPath), null, SaveInfo.NEWEST_FIRST);
+        } catch (QwirkleException e) {
+            saves = List.of();
+        }
 
-        if (files != null && files.length > 0) {
-            System.out.println(ANSI_GREEN + "Serialized files in the directory \"" + directoryPath + "\":");
-            for (File file : files) {
-                if (file.isFile()) {
-                    System.out.println("- " + file.getName());
-                    hasSerializedFiles = true;
-                }
-            }
+        if (!saves.isEmpty()) {
+            System.out.println(ANSI_GREEN + "Saves in the directory \"" + directoryPath + "\":");
+            displaySaves(saves);
             System.out.println(ANSI_RESET);
         } else {
             System.out.println(ANSI_ORANGE + "Invalid or empty directory: " + directoryPath + ANSI_RESET);
             System.out.println();
         }
-        return hasSerializedFiles;
+        return !saves.isEmpty();
+    }
+
+    /**
+     * Displays a line per save: the name of the file, the date of the save, the players with their scores,
+     * the number of turns played and the number of tiles left in the bag.
+     *
+     * @param saves the descriptions of the saves.
+     */
+    public static void displaySaves(List<SaveInfo> saves) {
+        DateTimeFormatter format = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm").withZone(ZoneId.systemDefault());
+        for (SaveInfo save : saves) {
+            StringBuilder players = new StringBuilder();
+            for (int i = 0; i < save.names().length; i++) {
+                players.append(i == 0 ? "" : ", ").append(save.names()[i]).append(" ").append(save.scores()[i]);
+            }
+            System.out.println("- " + save.file() + " (" + format.format(Instant.ofEpochMilli(save.time())) + "): "
+                    + players + " - " + save.moves() + " turns, " + save.bagSize() + " tiles in the bag");
+        }
     }
 
     /**
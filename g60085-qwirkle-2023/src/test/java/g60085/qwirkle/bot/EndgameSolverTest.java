@@ -0,0 +1,87 @@
+package g60085.qwirkle.bot;
+
+import g60085.qwirkle.model.Game;
+import g60085.qwirkle.model.GameEngine;
+import g60085.qwirkle.model.MoveBuffer;
+import g60085.qwirkle.model.QwirkleException;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static g60085.qwirkle.model.QwirkleTestUtil.playGreedily;
+import static org.junit.jupiter.api.Assertions.*;
+
+class EndgameSolverTest {
+
+    /**
+     * Plays a game greedily until the bag is empty and the hands hold at most a given number of tiles.
+     */
+    private static GameEngine endgame(long seed, int tiles) {
+        GameEngine engine = new GameEngine(List.of("Arina", "Olivia"), seed, 0);
+        Game game = engine.getGame();
+        while (!engine.isOver() && (game.getBagSize() > 0
+                || game.getPlayers()[0].handSize() + game.getPlayers()[1].handSize() > tiles)) {
+            playGreedily(engine, 1, 0);
+        }
+        return engine;
+    }
+
+    /**
+     * Searches the whole tree without pruning: the lead of the root player at the end of the game.
+     */
+    private static int minimax(Game game, int root) {
+        if (game.isFinished()) {
+            return game.getFinalScore(root) - game.getFinalScore(1 - root);
+        }
+        MoveBuffer moves = new MoveBuffer();
+        game.generateMoves(moves);
+        if (moves.size() == 0) {
+            int token = game.applyPass();
+            int value = minimax(game, root);
+            game.undo(token);
+            return value;
+        }
+        boolean maximizing = game.getCurrentPlayerIndex() == root;
+        int best = maximizing ? Integer.MIN_VALUE : Integer.MAX_VALUE;
+        for (int m = 0; m < moves.size(); m++) {
+            int token = game.apply(moves, m);
+            int value = minimax(game, root);
+            game.undo(token);
+            best = maximizing ? Math.max(best, value) : Math.min(best, value);
+        }
+        return best;
+    }
+
+    @Test
+    void finds_the_value_of_a_full_search() {
+        int solved = 0;
+        for (long seed = 1; seed <= 4; seed++) {
+            GameEngine engine = endgame(seed, 6);
+            Game game = engine.getGame();
+            MoveBuffer moves = new MoveBuffer();
+            game.generateMoves(moves);
+            if (!engine.isOver() && moves.size() > 0) {
+                long hash = game.hash();
+                EndgameSolver.Solution solution = new EndgameSolver(2).solve(game, moves, 60_000);
+                assertEquals(hash, game.hash());
+                assertTrue(solution.exact());
+                assertEquals(minimax(game, game.getCurrentPlayerIndex()), solution.value());
+                int token = game.apply(moves, solution.move());
+                assertEquals(solution.value(), minimax(game, 1 - game.getCurrentPlayerIndex()));
+                game.undo(token);
+                solved++;
+            }
+        }
+        assertTrue(solved > 0);
+    }
+
+    @Test
+    void only_solves_once_the_bag_is_empty() {
+        GameEngine engine = new GameEngine(List.of("Arina", "Olivia"), 1, 0);
+        MoveBuffer moves = new MoveBuffer();
+        engine.generateMoves(moves);
+        EndgameSolver solver = new EndgameSolver(1);
+        assertThrows(QwirkleException.class, () -> solver.solve(engine.getGame(), moves, 100));
+        assertThrows(QwirkleException.class, () -> new EndgameSolver(0));
+    }
+}
@@ -0,0 +1,42 @@
+package g60085.qwirkle.bot;
+
+import g60085.qwirkle.model.Game;
+import g60085.qwirkle.model.GameEngine;
+import g60085.qwirkle.model.MoveBuffer;
+import g60085.qwirkle.simulation.SimulationStats;
+import g60085.qwirkle.simulation.Simulator;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GreedyBotTest {
+
+    @Test
+    void plays_a_move_with_the_highest_score() {
+        GameEngine engine = new GameEngine(List.of("Arina", "Olivia"), 21, 0);
+        Game game = engine.getGame();
+        MoveBuffer moves = new MoveBuffer();
+        Bot bot = Bot.of("greedy", 0);
+        for (int turn = 0; turn < 10 && !engine.isOver(); turn++) {
+            engine.generateMoves(moves);
+            int best = bot.choose(game, moves);
+            if (moves.size() == 0) {
+                assertEquals(-1, best);
+            } else {
+                for (int m = 0; m < moves.size(); m++) {
+                    assertTrue(moves.score(m) <= moves.score(best));
+                }
+                assertTrue(engine.play(moves, best).isOk());
+            }
+        }
+    }
+
+    @Test
+    void beats_the_random_bot() {
+        SimulationStats stats = new Simulator(20, 1, 3, "greedy", "random").run();
+        assertTrue(stats.getWinRate(0) > 0.8);
+        assertTrue(stats.getMeanScore(0) > stats.getMeanScore(1));
+    }
+}
@@ -0,0 +1,69 @@
+package g60085.qwirkle.bot;
+
+import g60085.qwirkle.model.Game;
+import g60085.qwirkle.model.GameEngine;
+import g60085.qwirkle.model.MoveBuffer;
+import g60085.qwirkle.model.Player;
+import g60085.qwirkle.model.QwirkleException;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MctsBotTest {
+
+    @Test
+    void plays_legal_moves_and_leaves_the_game_as_it_was() {
+        GameEngine engine = new GameEngine(List.of("Arina", "Olivia"), 21, 0);
+        Game game = engine.getGame();
+        MoveBuffer moves = new MoveBuffer();
+        MctsBot bot = new MctsBot(5, 20, 2);
+        for (int turn = 0; turn < 6 && !engine.isOver(); turn++) {
+            engine.generateMoves(moves);
+            int[] scores = game.getPlayersScore();
+            int bagSize = game.getBagSize();
+            List<?> hand = List.copyOf(game.getPlayers()[game.getCurrentPlayerIndex()].getHand());
+            int move = bot.choose(game, moves);
+            assertArrayEquals(scores, game.getPlayersScore());
+            assertEquals(bagSize, game.getBagSize());
+            assertEquals(hand, game.getPlayers()[game.getCurrentPlayerIndex()].getHand());
+            if (moves.size() == 0) {
+                assertEquals(-1, move);
+            } else {
+                assertTrue(engine.play(moves, move).isOk());
+            }
+        }
+        assertTrue(bot.getPlayouts() > 0);
+        assertTrue(bot.getPlayoutsPerSecond() > 0);
+    }
+
+    @Test
+    void redeal_keeps_the_hand_of_the_current_player_and_the_hidden_tiles() {
+        Game game = new GameEngine(List.of("Arina", "Olivia", "Lina"), 8, 1).getGame();
+        Player current = game.getPlayers()[game.getCurrentPlayerIndex()];
+        List<?> hand = List.copyOf(current.getHand());
+        int hidden = game.getBagSize();
+        for (Player player : game.getPlayers()) {
+            if (player != current) {
+                hidden += player.handSize();
+            }
+        }
+        game.redeal(99);
+        assertEquals(hand, current.getHand());
+        int after = game.getBagSize();
+        for (Player player : game.getPlayers()) {
+            if (player != current) {
+                after += player.handSize();
+                assertEquals(6, player.handSize());
+            }
+        }
+        assertEquals(hidden, after);
+    }
+
+    @Test
+    void invalid_options() {
+        assertThrows(QwirkleException.class, () -> Bot.of("mcts:fast", 0));
+        assertThrows(QwirkleException.class, () -> new MctsBot(0, 0, 1));
+    }
+}
@@ -2,21 +2,45 @@ package g60085.qwirkle.model;
 
 import org.junit.jupiter.api.Test;
 
-import static org.junit.jupiter.api.Assertions.assertEquals;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
 
 class BagTest {
 
+    /**
+     * Draws tiles from a bag, at most 6 at a time.
+     *
+     * @param bag   the bag.
+     * @param count the number of tiles to draw.
+     */
+    private static void draw(Bag bag, int count) {
+        while (count > 0) {
+            count -= bag.getRandomTiles(Math.min(count, 6)).length;
+        }
+    }
+
     @Test
-    void getInstance() {
-        Bag bag = Bag.getInstance();
-        Bag bag1 = Bag.getInstance();
-        assertEquals(bag1, bag);
+    void newBag() {
+        Bag bag = new Bag(42);
         assertEquals(bag.size(), 108);
+        assertEquals(42, bag.getSeed());
+    }
+
+    @Test
+    void sameSeed_sameTiles() {
+        Bag bag = new Bag(42);
+        Bag bag1 = new Bag(42);
+        Bag other = new Bag(43);
+        Tile[] tiles = bag.getRandomTiles(6);
+        assertArrayEquals(tiles, bag1.getRandomTiles(6));
+        assertFalse(Arrays.equals(tiles, other.getRandomTiles(6)));
+        assertEquals(bag.hash(), bag1.hash());
     }
 
     @Test
     void getRandomTiles() {
-        Bag bag = Bag.getInstance();
+        Bag bag = new Bag(42);
         Tile[] randomTiles = bag.getRandomTiles(3);
         assertEquals(randomTiles.length, 3);
         assertEquals(bag.size(), 105);
@@ -24,19 +48,74 @@ class BagTest {
 
     @Test
     void getRandomTiles_Null() {
-        Bag bag = Bag.getInstance();
-        Tile[] randomTiles1 = bag.getRandomTiles(108);
+        Bag bag = new Bag(42);
+        draw(bag, 108);
         Tile[] randomTiles2 = bag.getRandomTiles(4);
-        assertEquals(randomTiles2.length, 0);
+        assertNull(randomTiles2);
         assertEquals(bag.size(), 0);
+        assertEquals(0, bag.hash());
     }
 
     @Test
     void getRandomTiles_RemainingTiles() {
-        Bag bag = Bag.getInstance();
-        Tile[] randomTiles1 = bag.getRandomTiles(107);
+        Bag bag = new Bag(42);
+        draw(bag, 107);
         Tile[] randomTiles2 = bag.getRandomTiles(4);
         assertEquals(randomTiles2.length, 1);
         assertEquals(bag.size(), 0);
     }
-}
\ No newline at end of file
+
+    @Test
+    void getRandomTiles_Invalid() {
+        Bag bag = new Bag(42);
+        assertThrows(QwirkleException.class, () -> bag.getRandomTiles(7));
+        assertThrows(QwirkleException.class, () -> bag.getRandomTiles(0));
+    }
+
+    @Test
+    void drawInto() {
+        Bag bag = new Bag(42);
+        byte[] buffer = new byte[110];
+        assertEquals(108, bag.drawInto(buffer, 2, 110));
+        assertEquals(0, bag.size());
+        int[] counts = new int[36];
+        for (int i = 2; i < 110; i++) {
+            counts[buffer[i]]++;
+        }
+        for (int count : counts) {
+            assertEquals(3, count);
+        }
+        assertEquals(0, bag.drawInto(buffer, 0, 6));
+    }
+
+    @Test
+    void copy_isIndependent() {
+        Bag bag = new Bag(42);
+        bag.getRandomTiles(6);
+        Bag copy = bag.copy(7);
+        assertEquals(bag.size(), copy.size());
+        assertEquals(bag.hash(), copy.hash());
+        copy.drawInto(new byte[6], 0, 6);
+        assertEquals(102, bag.size());
+        assertEquals(96, copy.size());
+        for (int type = 0; type < 36; type++) {
+            assertTrue(copy.count(type) <= bag.count(type));
+        }
+    }
+
+    @Test
+    void remove() {
+        Bag bag = new Bag(42);
+        for (int i = 0; i < 3; i++) {
+            bag.remove(5);
+        }
+        assertEquals(0, bag.count(5));
+        assertEquals(105, bag.size());
+        assertThrows(QwirkleException.class, () -> bag.remove(5));
+        byte[] buffer = new byte[105];
+        bag.drawInto(buffer, 0, 105);
+        for (byte type : buffer) {
+            assertNotEquals(5, type);
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package g60085.qwirkle.model;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static g60085.qwirkle.model.QwirkleTestUtil.playOut;
+import static org.junit.jupiter.api.Assertions.*;
+
+class GameArchiveTest {
+
+    /**
+     * Plays and archives a number of games, from a seed.
+     */
+    private static List<Game> archive(Path path, long seed, int games) {
+        List<Game> played = new ArrayList<>();
+        try (ArchiveWriter writer = ArchiveWriter.open(path)) {
+            for (int i = 0; i < games; i++) {
+                List<String> names = i % 2 == 0 ? List.of("Arina", "Olivia") : List.of("Arina", "Olivia", "Élodie");
+                GameEngine engine = new GameEngine(names, seed + i, i % names.size());
+                writer.record(engine);
+                played.add(playOut(engine, 5));
+            }
+        }
+        return played;
+    }
+
+    @Test
+    void archived_games_are_played_again(@TempDir Path directory) {
+        Path path = directory.resolve("games");
+        List<Game> played = archive(path, 1, 6);
+        played.addAll(archive(path, 100, 3));
+        for (GameArchive archive : List.of(GameArchive.open(path), GameArchive.open(path, 1024))) {
+            assertEquals(9, archive.size());
+            for (int i = 0; i < archive.size(); i++) {
+                Game game = archive.load(i);
+                assertEquals(played.get(i).hash(), game.hash());
+                assertArrayEquals(played.get(i).getPlayersScore(), game.getPlayersScore());
+                assertArrayEquals(played.get(i).getPlayersName(), archive.names(i));
+                assertEquals(played.get(i).getMoveCount(), game.getMoveCount());
+            }
+        }
+        assertThrows(QwirkleException.class, () -> GameArchive.open(path).load(9));
+    }
+
+    @Test
+    void summaries_score_the_games_as_they_were_played(@TempDir Path directory) {
+        Path path = directory.resolve("games");
+        List<Game> played = archive(path, 7, 40);
+        GameArchive archive = GameArchive.open(path);
+        List<GameSummary> summaries = archive.summaries().toList();
+        assertEquals(40, summaries.size());
+        for (int i = 0; i < summaries.size(); i++) {
+            GameSummary summary = summaries.get(i);
+            Game game = played.get(i);
+            assertEquals(i, summary.game());
+            assertEquals(i % game.getPlayersName().length, summary.firstPlayer());
+            assertArrayEquals(game.getPlayersScore(), summary.scores());
+            assertEquals(game.getMoveCount(), summary.turns());
+            assertEquals(game.getModelGrid().placedCount(), summary.tiles());
+            assertTrue(summary.passes() <= summary.turns());
+        }
+        assertEquals(40, archive.summaries().sequential().count());
+    }
+
+    @Test
+    void a_torn_game_is_left_out_then_overwritten(@TempDir Path directory) throws IOException {
+        Path path = directory.resolve("games");
+        List<Game> played = archive(path, 1, 3);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 10);
+        }
+        assertEquals(2, GameArchive.open(path).size());
+
+        played.addAll(archive(path, 50, 2));
+        GameArchive archive = GameArchive.open(path);
+        assertEquals(4, archive.size());
+        assertEquals(played.get(1).hash(), archive.load(1).hash());
+        assertEquals(played.get(3).hash(), archive.load(2).hash());
+        assertEquals(played.get(4).hash(), archive.load(3).hash());
+    }
+
+    @Test
+    void packed_tiles_keep_their_position(@TempDir Path directory) {
+        int packed = GameArchive.pack(Grid.ORIGIN - 60, Grid.ORIGIN + 70, 35, true);
+        assertEquals(Grid.ORIGIN - 60, GameArchive.row(packed));
+        assertEquals(Grid.ORIGIN + 70, GameArchive.col(packed));
+        assertEquals(35, GameArchive.tileId(packed));
+        assertTrue(GameArchive.isLastOfTurn(packed));
+        assertFalse(GameArchive.isLastOfTurn(GameArchive.PASS));
+
+        GameEngine engine = new GameEngine(List.of("Arina", "Olivia"), 1, 0);
+        engine.play(new Move.Pass());
+        try (ArchiveWriter writer = ArchiveWriter.open(directory.resolve("games"))) {
+            assertThrows(QwirkleException.class, () -> writer.record(engine));
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package g60085.qwirkle.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static g60085.qwirkle.model.QwirkleTestUtil.playOut;
+import static org.junit.jupiter.api.Assertions.*;
+
+class GameEngineTest {
+
+    @Test
+    void a_game_is_played_to_the_end_without_input() {
+        GameEngine engine = new GameEngine(List.of("Arina", "Olivia"), 11, 1);
+        List<String> events = new ArrayList<>();
+        engine.addListener(new GameListener() {
+            @Override
+            public void onMove(int player, int score) {
+                assertTrue(score > 0);
+                events.add("move");
+            }
+
+            @Override
+            public void onPass(int player) {
+                events.add("pass");
+            }
+
+            @Override
+            public void onBagEmpty() {
+                events.add("empty");
+            }
+
+            @Override
+            public void onGameOver(List<String> winners) {
+                events.add("over " + winners);
+            }
+        });
+        playOut(engine, 0);
+
+        assertTrue(engine.isOver());
+        assertTrue(engine.getMoveCount() > 0);
+        assertEquals(MoveResult.GAME_OVER, engine.play(new Move.Pass()));
+        assertEquals("over " + engine.getWinners(), events.get(events.size() - 1));
+        assertEquals(1, events.stream().filter(event -> event.startsWith("over")).count());
+        assertEquals(engine.getMoveCount() + 2, events.size());
+    }
+
+    @Test
+    void same_seed_same_game() {
+        GameEngine engine = new GameEngine(List.of("Arina", "Olivia", "Lucas"), 5, 0);
+        GameEngine same = new GameEngine(List.of("Arina", "Olivia", "Lucas"), 5, 0);
+        playOut(engine, 0);
+        playOut(same, 0);
+        assertArrayEquals(engine.getGame().getPlayersScore(), same.getGame().getPlayersScore());
+        assertEquals(engine.getGame().hash(), same.getGame().hash());
+    }
+
+    @Test
+    void rejected_moves_leave_the_game_unchanged() {
+        GameEngine engine = new GameEngine(List.of("Arina", "Olivia"), 3, 0);
+        long hash = engine.getGame().hash();
+        assertEquals(MoveResult.GRID_EMPTY, engine.play(new Move.Single(45, 45, 0)));
+        assertEquals(MoveResult.INVALID_INDEX, engine.play(new Move.First(Direction.RIGHT, 6)));
+        assertEquals(hash, engine.getGame().hash());
+        assertEquals(0, engine.getMoveCount());
+        assertEquals(MoveResult.OK, engine.play(new Move.First(Direction.RIGHT, 0)));
+        assertEquals(1, engine.getGame().getCurrentPlayerIndex());
+    }
+
+    @Test
+    void winners_have_the_highest_positive_score() {
+        GameEngine engine = new GameEngine(List.of("Arina", "Olivia", "Lucas"), 3, 0);
+        Player[] players = engine.getGame().getPlayers();
+        players[0].setScore(12);
+        players[1].setScore(4);
+        players[2].setScore(12);
+        assertEquals(List.of("Arina", "Lucas"), engine.getWinners());
+        assertArrayEquals(new int[]{0, 2}, engine.getWinnerIndexes());
+        for (Player player : players) {
+            player.setScore(0);
+        }
+        assertEquals(List.of(), engine.getWinners());
+    }
+}
@@ -0,0 +1,72 @@
+package g60085.qwirkle.model;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.List;
+
+import static g60085.qwirkle.model.QwirkleTestUtil.playGreedily;
+import static org.junit.jupiter.api.Assertions.*;
+
+class GameFileTest {
+
+    @Test
+    void a_decoded_game_goes_on_as_the_saved_one() {
+        Game game = new GameEngine(List.of("Arina", "Olivia", "Élodie"), 5, 2).getGame();
+        playGreedily(new GameEngine(game), 12, 0);
+        ByteBuffer bytes = GameFile.encode(game);
+        assertTrue(bytes.remaining() < 512);
+        Game loaded = GameFile.decode(bytes);
+        assertEquals(game.hash(), loaded.hash());
+        assertArrayEquals(game.getPlayersName(), loaded.getPlayersName());
+        assertEquals(game.getCurrentPlayerIndex(), loaded.getCurrentPlayerIndex());
+        assertEquals(game.getSeed(), loaded.getSeed());
+        playGreedily(new GameEngine(game), 10, 0);
+        playGreedily(new GameEngine(loaded), 10, 0);
+        assertEquals(game.hash(), loaded.hash());
+    }
+
+    @Test
+    void write_and_read(@TempDir Path directory) {
+        GameEngine engine = new GameEngine(List.of("Arina", "Olivia"), 8, 0);
+        Game game = engine.getGame();
+        playGreedily(engine, 5, 0);
+        Path path = directory.resolve("save");
+        GameFile.write(game, path);
+        GameFile.write(game, path);
+        Game loaded = GameFile.read(path);
+        assertEquals(game.hash(), loaded.hash());
+        assertEquals(5, loaded.getMoveCount());
+        SaveInfo info = GameFile.readInfo(path);
+        assertEquals("save", info.file());
+        assertEquals(5, info.moves());
+        assertEquals(game.getBagSize(), info.bagSize());
+        assertArrayEquals(game.getPlayersName(), info.names());
+        assertArrayEquals(game.getPlayersScore(), info.scores());
+    }
+
+    @Test
+    void reads_the_saves_of_the_first_versions() {
+        Game game = Game.getFromFile("hello");
+        assertArrayEquals(new String[]{"o", "l"}, game.getPlayersName());
+        assertArrayEquals(new int[]{19, 17}, game.getPlayersScore());
+        assertEquals(1, game.getCurrentPlayerIndex());
+        assertEquals(6, game.getCurrentPlayerHand().size());
+        assertEquals(108 - 12 - 11, game.getBagSize());
+        assertFalse(game.getGrid().isEmpty());
+        MoveBuffer moves = new MoveBuffer();
+        game.generateMoves(moves);
+        assertTrue(moves.size() > 0);
+    }
+
+    @Test
+    void corrupted_saves_are_rejected() {
+        Game game = new GameEngine(List.of("Arina", "Olivia"), 8, 0).getGame();
+        ByteBuffer bytes = GameFile.encode(game);
+        bytes.put(20, (byte) (bytes.get(20) ^ 1));
+        assertThrows(QwirkleException.class, () -> GameFile.decode(bytes));
+        assertThrows(QwirkleException.class, () -> GameFile.decode(ByteBuffer.wrap(new byte[]{1, 2, 3})));
+    }
+}
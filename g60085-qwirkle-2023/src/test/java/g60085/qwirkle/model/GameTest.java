@@ -0,0 +1,156 @@
+package g60085.qwirkle.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static g60085.qwirkle.model.Direction.RIGHT;
+import static org.junit.jupiter.api.Assertions.*;
+
+class GameTest {
+
+    /**
+     * Builds a game whose bag is empty, on a grid holding a single red round, from the hands of two players.
+     */
+    private static Game endOfGame(Tile[] first, Tile[] second) {
+        Bag bag = new Bag(1);
+        for (int type = 0; type < Tile.KINDS; type++) {
+            while (bag.count(type) > 0) {
+                bag.remove(type);
+            }
+        }
+        Grid grid = new Grid();
+        grid.firstAdd(RIGHT, Tile.of(Color.RED, Shape.ROUND));
+        Player[] players = {new Player("Arina"), new Player("Olivia")};
+        Tile[][] hands = {first, second};
+        for (int i = 0; i < players.length; i++) {
+            players[i].setScore(10);
+            for (int j = 0; j < hands[i].length; j++) {
+                players[i].insert(j, hands[i][j]);
+            }
+        }
+        return new Game(grid, bag, players, 0, 1);
+    }
+
+    @Test
+    void the_game_goes_on_while_a_player_who_is_not_current_can_play() {
+        Tile blueSquare = Tile.of(Color.BLUE, Shape.SQUARE);
+        Tile redSquare = Tile.of(Color.RED, Shape.SQUARE);
+        Game game = endOfGame(new Tile[]{blueSquare}, new Tile[]{redSquare});
+        assertEquals("Arina", game.getCurrentPlayerName());
+        assertFalse(game.isOver());
+        assertArrayEquals(new int[]{10, 10}, game.getPlayersScore());
+
+        assertTrue(endOfGame(new Tile[]{blueSquare}, new Tile[]{blueSquare}).isOver());
+    }
+
+    @Test
+    void a_hand_is_refilled_from_an_empty_bag_after_a_move() {
+        Tile redSquare = Tile.of(Color.RED, Shape.SQUARE);
+        Tile blueSquare = Tile.of(Color.BLUE, Shape.SQUARE);
+        Game game = endOfGame(new Tile[]{redSquare, blueSquare}, new Tile[]{blueSquare});
+        assertEquals(MoveResult.OK, game.tryPlay(45, 46, 0));
+        assertEquals(1, game.getPlayers()[0].handSize());
+        assertEquals(0, game.getBagSize());
+        assertEquals("Olivia", game.getCurrentPlayerName());
+        assertFalse(game.isOver());
+    }
+
+    @Test
+    void undo_restores_hands_scores_bag_and_current_player() {
+        Game game = new Game(List.of("Arina", "Olivia"));
+        game.initPlayerHand();
+        MoveBuffer moves = new MoveBuffer();
+        game.generateMoves(moves);
+        game.apply(moves, 0);
+
+        List<Tile> arina = new ArrayList<>(game.getPlayers()[0].getHand());
+        List<Tile> olivia = new ArrayList<>(game.getPlayers()[1].getHand());
+        int[] scores = game.getPlayersScore();
+        int bagSize = game.getBagSize();
+
+        int token = game.applyPass();
+        game.generateMoves(moves);
+        if (moves.size() > 0) {
+            game.apply(moves, moves.size() - 1);
+        }
+        List<Tile> afterMove = new ArrayList<>(game.getPlayers()[0].getHand());
+        game.undo(token);
+
+        assertEquals("Olivia", game.getCurrentPlayerName());
+        assertEquals(arina, game.getPlayers()[0].getHand());
+        assertEquals(olivia, game.getPlayers()[1].getHand());
+        assertArrayEquals(scores, game.getPlayersScore());
+        assertEquals(bagSize, game.getBagSize());
+        // The same moves draw the same tiles again;
+        game.applyPass();
+        game.generateMoves(moves);
+        if (moves.size() > 0) {
+            game.apply(moves, moves.size() - 1);
+        }
+        assertEquals(afterMove, game.getPlayers()[0].getHand());
+    }
+
+    @Test
+    void hash_follows_the_turns_and_their_undo() {
+        Game game = new Game(List.of("Arina", "Olivia"));
+        game.initPlayerHand();
+        long start = game.hash();
+        int token = game.applyPass();
+        long passed = game.hash();
+        assertNotEquals(start, passed);
+        MoveBuffer moves = new MoveBuffer();
+        game.generateMoves(moves);
+        game.apply(moves, 0);
+        assertNotEquals(passed, game.hash());
+        game.undo(token);
+        assertEquals(start, game.hash());
+    }
+
+    @Test
+    void games_with_the_same_seed_draw_the_same_tiles() {
+        Game game = new Game(List.of("Arina", "Olivia"), 7);
+        Game same = new Game(List.of("Arina", "Olivia"), 7);
+        game.initPlayerHand();
+        same.initPlayerHand();
+        assertEquals(game.getPlayers()[1].getHand(), same.getPlayers()[1].getHand());
+        assertEquals(game.hash(), same.hash());
+        assertEquals(96, game.getBagSize());
+        assertEquals(7, game.getSeed());
+    }
+
+    @Test
+    void plays_a_generated_move() {
+        Game game = new Game(List.of("Arina", "Olivia"));
+        game.initPlayerHand();
+        MoveBuffer moves = new MoveBuffer();
+        game.generateMoves(moves);
+        assertTrue(moves.size() > 0);
+        int best = 0;
+        for (int m = 1; m < moves.size(); m++) {
+            if (moves.score(m) > moves.score(best)) {
+                best = m;
+            }
+        }
+        int score = moves.score(best);
+        assertEquals(MoveResult.OK, game.tryPlay(moves, best));
+        assertEquals(6 + score, game.getPlayersScore()[0]);
+        assertEquals("Olivia", game.getCurrentPlayerName());
+    }
+
+    @Test
+    void tryPlay_returns_the_reason_instead_of_throwing() {
+        Game game = new Game(List.of("Arina", "Olivia"));
+        game.initPlayerHand();
+        assertEquals(MoveResult.INVALID_INDEX, game.tryFirst(RIGHT, 6));
+        assertEquals(MoveResult.GRID_EMPTY, game.tryPlay(45, 45, 0));
+        assertEquals(MoveResult.INVALID_NUMBER_OF_TILES, game.tryPlay(45, 45));
+        assertEquals(MoveResult.OK, game.tryFirst(RIGHT, 0));
+        assertEquals("Olivia", game.getCurrentPlayerName());
+        assertEquals(MoveResult.OCCUPIED, game.tryPlay(45, 45, 0));
+        assertEquals("Olivia", game.getCurrentPlayerName());
+        QwirkleException e = assertThrows(QwirkleException.class, () -> game.play(45, 45, 0));
+        assertEquals(MoveResult.OCCUPIED.getMessage(), e.getMessage());
+    }
+}
@@ -135,6 +135,180 @@ class GridTest {
         assertThrows(QwirkleException.class, () -> grid.add(30, 90, tile));
     }
 
+    @Test
+    void add_tiles_beyond_the_former_91x91_limits() {
+        // A staircase of red crosses and red squares going down and right from the origin;
+        grid.firstAdd(RIGHT, new Tile(RED, CROSS));
+        int row = 45;
+        int col = 45;
+        for (int i = 0; i < 60; i++) {
+            col++;
+            grid.add(row, col, new Tile(RED, SQUARE));
+            row++;
+            grid.add(row, col, new Tile(RED, CROSS));
+        }
+        assertEquals(new Tile(RED, CROSS), grid.get(105, 105));
+        assertEquals(121, grid.size());
+        assertEquals(45, grid.getMinRow());
+        assertEquals(105, grid.getMaxRow());
+        assertEquals(45, grid.getMinCol());
+        assertEquals(105, grid.getMaxCol());
+    }
+
+    @Test
+    void add_tiles_after_the_bitboard_window_grows() {
+        grid.firstAdd(RIGHT, new Tile(RED, CROSS));
+        int row = 45;
+        int col = 45;
+        for (int i = 0; i < 150; i++) {
+            col++;
+            grid.add(row, col, new Tile(RED, SQUARE));
+            row++;
+            grid.add(row, col, new Tile(RED, CROSS));
+        }
+        // The two ends of the staircase are still checked word by word;
+        assertThrows(QwirkleException.class, () -> grid.add(195, 195, new Tile(RED, SQUARE)));
+        assertThrows(QwirkleException.class, () -> grid.add(195, 194, new Tile(RED, CROSS)));
+        assertEquals(5, grid.add(195, 196, RIGHT, new Tile(RED, SQUARE), new Tile(RED, PLUS),
+                new Tile(RED, STAR), new Tile(RED, ROUND)));
+        assertThrows(QwirkleException.class, () -> grid.add(44, 44, DOWN, new Tile(RED, SQUARE)));
+        assertEquals(2, grid.add(44, 45, new Tile(RED, SQUARE)));
+    }
+
+    @Test
+    void frontier_holds_the_empty_cells_next_to_a_tile() {
+        grid.firstAdd(DOWN, new Tile(RED, CROSS), new Tile(RED, PLUS));
+        assertEquals(6, grid.frontierSize());
+        grid.add(45, 46, new Tile(BLUE, CROSS));
+        assertEquals(7, grid.frontierSize());
+        int row = 45;
+        int col = 46;
+        for (int i = 0; i < 20; i++) {
+            row--;
+            grid.add(row, col, new Tile(BLUE, SQUARE));
+            col++;
+            grid.add(row, col, new Tile(BLUE, CROSS));
+        }
+        // Same cells as a scan of the whole bounding box;
+        List<Long> expected = new ArrayList<>();
+        for (int r = grid.getMinRow() - 1; r <= grid.getMaxRow() + 1; r++) {
+            for (int c = grid.getMinCol() - 1; c <= grid.getMaxCol() + 1; c++) {
+                if (grid.get(r, c) == null && (grid.get(r - 1, c) != null || grid.get(r + 1, c) != null
+                        || grid.get(r, c - 1) != null || grid.get(r, c + 1) != null)) {
+                    expected.add(((long) r << 32) | (c & 0xFFFFFFFFL));
+                }
+            }
+        }
+        List<Long> actual = new ArrayList<>();
+        grid.frontier().forEachRemaining((long cell) -> {
+            assertNull(grid.get(Grid.cellRow(cell), Grid.cellCol(cell)));
+            actual.add(cell);
+        });
+        assertEquals(expected.size(), grid.frontierSize());
+        assertTrue(actual.containsAll(expected) && expected.containsAll(actual));
+    }
+
+    @Test
+    void cellMask_matches_the_rules_on_every_frontier_cell() {
+        grid = midGameGrid();
+
+        grid.frontier().forEachRemaining((long cell) -> {
+            int row = Grid.cellRow(cell);
+            int col = Grid.cellCol(cell);
+            for (Color color : Color.values()) {
+                for (Shape shape : Shape.values()) {
+                    Tile tile = new Tile(color, shape);
+                    boolean accepted = (grid.cellMask(row, col) & Grid.typeMask(tile)) != 0;
+                    assertEquals(grid.validRulesAdd(row, col, RIGHT, tile), accepted, row + " " + col + " " + tile);
+                }
+            }
+        });
+        assertEquals(0, grid.cellMask(40, 40));
+        // The kinds playable somewhere are the union of the masks of the cells;
+        long playable = 0;
+        for (var it = grid.frontier(); it.hasNext(); ) {
+            long cell = it.nextLong();
+            playable |= grid.cellMask(Grid.cellRow(cell), Grid.cellCol(cell));
+        }
+        assertEquals(playable, grid.playableTypes());
+        assertNotEquals(0, playable);
+    }
+
+    @Test
+    void check_gives_the_reason_without_changing_the_grid() {
+        assertEquals(MoveResult.GRID_EMPTY, grid.check(45, 45, new Tile(RED, CROSS)));
+        grid.firstAdd(RIGHT, new Tile(RED, CROSS), new Tile(RED, PLUS));
+        assertEquals(MoveResult.GRID_NOT_EMPTY, grid.checkFirst(RIGHT, new Tile(BLUE, CROSS)));
+        assertEquals(MoveResult.OCCUPIED, grid.check(45, 45, new Tile(BLUE, CROSS)));
+        assertEquals(MoveResult.NOT_ADJACENT, grid.check(50, 50, new Tile(BLUE, CROSS)));
+        assertEquals(MoveResult.BREAKS_RULES, grid.check(45, 47, new Tile(BLUE, STAR)));
+        assertEquals(MoveResult.BREAKS_RULES, grid.check(46, 45, DOWN, new Tile(BLUE, CROSS), new Tile(GREEN, STAR)));
+        assertEquals(MoveResult.NO_COMMON_TRAIT, grid.check(new TileAtPosition(46, 45, new Tile(BLUE, CROSS)),
+                new TileAtPosition(47, 45, new Tile(GREEN, STAR))));
+        assertEquals(MoveResult.NOT_SAME_LINE, grid.check(new TileAtPosition(46, 45, new Tile(BLUE, CROSS)),
+                new TileAtPosition(47, 46, new Tile(GREEN, CROSS))));
+        assertEquals(MoveResult.SAME_POSITION, grid.check(new TileAtPosition(46, 45, new Tile(BLUE, CROSS)),
+                new TileAtPosition(46, 45, new Tile(GREEN, CROSS))));
+        assertEquals(MoveResult.OK, grid.check(45, 47, new Tile(RED, STAR)));
+        assertNull(grid.get(45, 47));
+        assertEquals(2, grid.size());
+    }
+
+    @Test
+    void undo_restores_the_grid_as_it_was_at_the_mark() {
+        playMidGame(grid, 0, 2);
+        int mark = grid.mark();
+        long playable = grid.playableTypes();
+        int frontierSize = grid.frontierSize();
+        playMidGame(grid, 2, 6);
+
+        grid.undo(mark);
+        assertEquals(6, grid.size());
+        assertNull(grid.get(45, 46));
+        assertNull(grid.get(42, 44));
+        assertEquals(43, grid.getMinRow());
+        assertEquals(46, grid.getMaxRow());
+        assertEquals(45, grid.getMinCol());
+        assertEquals(47, grid.getMaxCol());
+        assertEquals(frontierSize, grid.frontierSize());
+        assertEquals(playable, grid.playableTypes());
+        Grid fresh = new Grid();
+        playMidGame(fresh, 0, 2);
+        fresh.frontier().forEachRemaining((long cell) -> {
+            int row = Grid.cellRow(cell);
+            int col = Grid.cellCol(cell);
+            assertEquals(fresh.cellMask(row, col), grid.cellMask(row, col), row + " " + col);
+        });
+        // The grid can be played again from the mark, even back to the empty grid;
+        assertEquals(4, grid.add(45, 46, new Tile(BLUE, ROUND)));
+        grid.undo(0);
+        assertTrue(grid.isEmpty());
+        assertEquals(0, grid.frontierSize());
+        assertEquals(0, grid.playableTypes());
+        assertThrows(QwirkleException.class, () -> grid.undo(1));
+        assertEquals(1, grid.firstAdd(RIGHT, new Tile(BLUE, ROUND)));
+    }
+
+    @Test
+    void hash_depends_on_the_tiles_not_on_the_order_of_the_moves() {
+        Grid other = new Grid();
+        assertEquals(0, grid.hash());
+        grid.firstAdd(RIGHT, new Tile(RED, CROSS), new Tile(RED, PLUS));
+        grid.add(46, 45, new Tile(BLUE, CROSS));
+        grid.add(44, 46, new Tile(RED, STAR));
+        other.firstAdd(RIGHT, new Tile(RED, CROSS), new Tile(RED, PLUS));
+        other.add(44, 46, new Tile(RED, STAR));
+        assertNotEquals(grid.hash(), other.hash());
+        int mark = other.mark();
+        long partial = other.hash();
+        other.add(46, 45, new Tile(BLUE, CROSS));
+        assertEquals(grid.hash(), other.hash());
+        other.undo(mark);
+        assertEquals(partial, other.hash());
+        other.add(46, 45, new Tile(GREEN, CROSS));
+        assertNotEquals(grid.hash(), other.hash());
+    }
+
     @Test
     void add_a_tile_to_a_position_already_taken() {
         grid.firstAdd(RIGHT, new Tile(BLUE, CROSS));
@@ -1037,7 +1211,6 @@ class GridTest {
         assertAtCorrectPosition(g, round_left);
     }
 
-
     @Test
     void canNotCompleteALine_leaving_a_hole() {
         var g = new Grid();
@@ -1135,5 +1308,4 @@ class GridTest {
 
         assertTrue(result);
     }
-
-}
\ No newline at end of file
+}
@@ -0,0 +1,51 @@
+package g60085.qwirkle.model;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static g60085.qwirkle.model.Color.*;
+import static g60085.qwirkle.model.Shape.*;
+
+/**
+ * Measures the generation of every legal move of a hand on the mid-game grid of the score scenario of the tests.
+ * The hand holds three tiles of the same color, which gives lines of several tiles to explore.
+ * Run with: mvn -P benchmark test-compile exec:exec -Dbenchmark=MoveGeneratorBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MoveGeneratorBenchmark {
+    private Grid grid;
+    private List<Tile> hand;
+    private MoveGenerator generator;
+    private MoveBuffer moves;
+
+    /**
+     * Builds the grid of the score scenario of the tests and the hand to play.
+     */
+    @Setup
+    public void setUp() {
+        grid = QwirkleTestUtil.midGameGrid();
+
+        hand = List.of(new Tile(BLUE, STAR), new Tile(BLUE, PLUS), new Tile(BLUE, DIAMOND),
+                new Tile(YELLOW, CROSS), new Tile(GREEN, SQUARE), new Tile(PURPLE, ROUND));
+        generator = new MoveGenerator();
+        moves = new MoveBuffer();
+    }
+
+    /**
+     * Generates every legal move of the hand.
+     *
+     * @return the number of moves, so that the generation is not optimized away.
+     */
+    @Benchmark
+    public int generate() {
+        generator.generate(grid, hand, moves);
+        return moves.size();
+    }
+}
@@ -0,0 +1,139 @@
+package g60085.qwirkle.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static g60085.qwirkle.model.Color.*;
+import static g60085.qwirkle.model.Direction.*;
+import static g60085.qwirkle.model.QwirkleTestUtil.midGameGrid;
+import static g60085.qwirkle.model.Shape.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class MoveGeneratorTest {
+    private static final List<Tile> HAND = List.of(new Tile(RED, CROSS), new Tile(YELLOW, SQUARE),
+            new Tile(ORANGE, ROUND), new Tile(BLUE, DIAMOND), new Tile(RED, CROSS), new Tile(GREEN, SQUARE));
+
+    private final MoveGenerator generator = new MoveGenerator();
+    private final MoveBuffer moves = new MoveBuffer();
+
+    /**
+     * Gives the tiles of a generated move placed at their positions.
+     *
+     * @param move the index of the move.
+     * @return the tiles of the move.
+     */
+    private TileAtPosition[] tilesOf(int move) {
+        TileAtPosition[] tiles = new TileAtPosition[moves.count(move)];
+        for (int i = 0; i < tiles.length; i++) {
+            tiles[i] = new TileAtPosition(moves.row(move, i), moves.col(move, i), HAND.get(moves.handIndex(move, i)));
+        }
+        return tiles;
+    }
+
+    /**
+     * Gives a key identifying a move whatever the order of its tiles.
+     *
+     * @param tiles the tiles of the move.
+     * @return the key of the move.
+     */
+    private static String keyOf(TileAtPosition... tiles) {
+        String[] parts = new String[tiles.length];
+        for (int i = 0; i < tiles.length; i++) {
+            parts[i] = tiles[i].row() + "," + tiles[i].col() + "," + tiles[i].tile();
+        }
+        Arrays.sort(parts);
+        return String.join(" ", parts);
+    }
+
+    @Test
+    void generated_moves_are_legal_and_scored_like_the_grid() {
+        Grid grid = midGameGrid();
+        generator.generate(grid, HAND, moves);
+        assertTrue(moves.size() > 0);
+        Set<String> keys = new HashSet<>();
+        for (int m = 0; m < moves.size(); m++) {
+            TileAtPosition[] tiles = tilesOf(m);
+            assertTrue(keys.add(keyOf(tiles)), "generated twice: " + keyOf(tiles));
+            Grid copy = midGameGrid();
+            assertEquals(MoveResult.OK, copy.check(tiles), keyOf(tiles));
+            assertEquals(copy.add(tiles), moves.score(m), keyOf(tiles));
+            if (moves.kind(m) == MoveKind.LINE) {
+                Tile[] line = new Tile[tiles.length];
+                for (int i = 0; i < line.length; i++) {
+                    line[i] = tiles[i].tile();
+                }
+                assertEquals(MoveResult.OK, midGameGrid().check(tiles[0].row(), tiles[0].col(), moves.direction(m), line));
+            }
+        }
+    }
+
+    @Test
+    void every_move_of_one_or_two_tiles_is_generated() {
+        Grid grid = midGameGrid();
+        generator.generate(grid, HAND, moves);
+        Set<String> generated = new HashSet<>();
+        for (int m = 0; m < moves.size(); m++) {
+            if (moves.count(m) <= 2) {
+                generated.add(keyOf(tilesOf(m)));
+            }
+        }
+
+        Set<String> expected = new HashSet<>();
+        for (int row = grid.getMinRow() - 2; row <= grid.getMaxRow() + 2; row++) {
+            for (int col = grid.getMinCol() - 2; col <= grid.getMaxCol() + 2; col++) {
+                for (Tile first : HAND) {
+                    TileAtPosition single = new TileAtPosition(row, col, first);
+                    if (grid.check(single) == MoveResult.OK) {
+                        expected.add(keyOf(single));
+                    }
+                    for (int distance = 1; distance < 6; distance++) {
+                        for (Tile second : HAND) {
+                            TileAtPosition right = new TileAtPosition(row, col + distance, second);
+                            TileAtPosition down = new TileAtPosition(row + distance, col, second);
+                            if (grid.check(single, right) == MoveResult.OK) {
+                                expected.add(keyOf(single, right));
+                            }
+                            if (grid.check(single, down) == MoveResult.OK) {
+                                expected.add(keyOf(single, down));
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        assertEquals(expected, generated);
+    }
+
+    @Test
+    void first_moves_use_each_set_of_tiles_sharing_a_trait_once() {
+        generator.generate(new Grid(), HAND, moves);
+        List<String> first = new ArrayList<>();
+        for (int m = 0; m < moves.size(); m++) {
+            assertEquals(MoveKind.FIRST, moves.kind(m));
+            assertEquals(MoveResult.OK, new Grid().checkFirst(RIGHT, lineOf(m)));
+            first.add(keyOf(tilesOf(m)));
+        }
+        // The five kinds of tiles alone, and the two squares together;
+        assertEquals(6, first.size());
+        assertEquals(6, new HashSet<>(first).size());
+    }
+
+    /**
+     * Gives the tiles of a generated move in order.
+     *
+     * @param move the index of the move.
+     * @return the tiles of the move.
+     */
+    private Tile[] lineOf(int move) {
+        Tile[] line = new Tile[moves.count(move)];
+        for (int i = 0; i < line.length; i++) {
+            line[i] = HAND.get(moves.handIndex(move, i));
+        }
+        return line;
+    }
+}
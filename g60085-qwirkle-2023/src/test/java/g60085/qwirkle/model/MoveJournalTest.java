@@ -0,0 +1,58 @@
+package g60085.qwirkle.model;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import static g60085.qwirkle.model.QwirkleTestUtil.playGreedily;
+import static org.junit.jupiter.api.Assertions.*;
+
+class MoveJournalTest {
+
+    @Test
+    void a_recovered_game_is_the_recorded_one(@TempDir Path directory) {
+        Path path = directory.resolve("autosave");
+        GameEngine engine = new GameEngine(List.of("Arina", "Olivia", "Élodie"), 5, 1);
+        try (MoveJournal journal = MoveJournal.create(path, engine, 4)) {
+            playGreedily(engine, 30, 5);
+            assertEquals(engine.getMoveCount(), journal.getRecordCount());
+        }
+        GameEngine recovered = MoveJournal.recover(path);
+        assertEquals(engine.getGame().hash(), recovered.getGame().hash());
+        assertEquals(engine.getMoveCount(), recovered.getMoveCount());
+        assertEquals(engine.getGame().hash(), GameFile.read(path).hash());
+    }
+
+    @Test
+    void a_resumed_journal_goes_on_after_a_torn_record(@TempDir Path directory) throws IOException {
+        Path path = directory.resolve("autosave");
+        GameEngine engine = new GameEngine(List.of("Arina", "Olivia"), 8, 0);
+        MoveJournal journal = MoveJournal.create(path, engine, 1);
+        playGreedily(engine, 10, 5);
+        long hash = engine.getGame().hash();
+        playGreedily(engine, 1, 5);
+        journal.close();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - MoveJournal.RECORD_SIZE / 2);
+        }
+
+        MoveJournal resumed = MoveJournal.resume(path, 1);
+        assertEquals(hash, resumed.getEngine().getGame().hash());
+        assertEquals(10, resumed.getRecordCount());
+        playGreedily(resumed.getEngine(), 6, 5);
+        resumed.close();
+        assertEquals(resumed.getEngine().getGame().hash(), MoveJournal.recover(path).getGame().hash());
+        assertEquals(16, MoveJournal.recover(path).getMoveCount());
+    }
+
+    @Test
+    void the_sync_period_must_be_positive(@TempDir Path directory) {
+        GameEngine engine = new GameEngine(List.of("Arina", "Olivia"), 8, 0);
+        assertThrows(QwirkleException.class, () -> MoveJournal.create(directory.resolve("autosave"), engine, 0));
+    }
+}
@@ -0,0 +1,35 @@
+package g60085.qwirkle.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PlayerTest {
+
+    @Test
+    void hand_keeps_counts_and_mask() {
+        Player player = new Player("Arina");
+        List<Tile> hand = player.getHand();
+        player.refill(new Bag(3));
+        assertSame(hand, player.getHand());
+        assertEquals(6, hand.size());
+        long mask = 0;
+        for (int i = 0; i < hand.size(); i++) {
+            assertEquals(hand.get(i).id(), player.tileAt(i));
+            mask |= Grid.typeMask(hand.get(i));
+        }
+        assertEquals(mask, player.getTypeMask());
+
+        Tile first = hand.get(0);
+        int count = player.count(first.id());
+        player.remove(first);
+        assertEquals(5, player.handSize());
+        assertEquals(count - 1, player.count(first.id()));
+        assertEquals(count > 1, (player.getTypeMask() & Grid.typeMask(first)) != 0);
+        assertThrows(UnsupportedOperationException.class, () -> hand.add(first));
+        assertThrows(IndexOutOfBoundsException.class, () -> hand.get(5));
+        assertThrows(QwirkleException.class, () -> new Player("Olivia").remove(first));
+    }
+}
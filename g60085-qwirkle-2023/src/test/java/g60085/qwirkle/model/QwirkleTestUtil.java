@@ -1,7 +1,15 @@
 package g60085.qwirkle.model;
 
+import g60085.qwirkle.bot.Bot;
+import g60085.qwirkle.bot.GreedyBot;
+
+import java.util.List;
+import java.util.function.Consumer;
+
 import static g60085.qwirkle.model.Color.*;
+import static g60085.qwirkle.model.Direction.*;
 import static g60085.qwirkle.model.Shape.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 
 
 public class QwirkleTestUtil {
@@ -23,5 +31,79 @@ public class QwirkleTestUtil {
     public static final Tile TILE_GREEN_CROSS = new Tile(GREEN, CROSS);
     public static final Tile TILE_GREEN_DIAMOND = new Tile(GREEN, DIAMOND);
     public static final Tile TILE_GREEN_PLUS = new Tile(GREEN, PLUS);
-}
 
+    /**
+     * The turns of a game played on a grid: three lines crossing in the middle, then tiles around them.
+     */
+    private static final List<Consumer<Grid>> MID_GAME = List.of(
+            grid -> grid.firstAdd(UP, new Tile(RED, ROUND), new Tile(RED, DIAMOND), new Tile(RED, PLUS)),
+            grid -> grid.add(46, 45, RIGHT, new Tile(RED, SQUARE), new Tile(BLUE, SQUARE), new Tile(PURPLE, SQUARE)),
+            grid -> grid.add(45, 46, new Tile(BLUE, ROUND)),
+            grid -> grid.add(43, 44, DOWN, new Tile(GREEN, PLUS), new Tile(GREEN, DIAMOND)),
+            grid -> grid.add(new TileAtPosition(42, 44, new Tile(GREEN, STAR)),
+                    new TileAtPosition(45, 44, new Tile(GREEN, ROUND))),
+            grid -> grid.add(47, 48, UP, new Tile(RED, SQUARE), new Tile(ORANGE, SQUARE)),
+            grid -> grid.add(42, 43, LEFT, new Tile(YELLOW, STAR), new Tile(ORANGE, STAR)),
+            grid -> grid.add(43, 42, DOWN, new Tile(ORANGE, CROSS), new Tile(ORANGE, DIAMOND)),
+            grid -> grid.add(44, 43, DOWN, new Tile(YELLOW, DIAMOND), new Tile(YELLOW, ROUND)),
+            grid -> grid.add(42, 45, new Tile(RED, STAR)),
+            grid -> grid.add(47, 44, RIGHT, new Tile(ORANGE, CROSS), new Tile(RED, CROSS), new Tile(BLUE, CROSS)),
+            grid -> grid.add(46, 49, DOWN, new Tile(YELLOW, SQUARE), new Tile(BLUE, SQUARE)));
+
+    /**
+     * Builds the grid of a game in progress, after all the turns of {@link #playMidGame(Grid, int, int)}.
+     *
+     * @return the grid.
+     */
+    public static Grid midGameGrid() {
+        Grid grid = new Grid();
+        playMidGame(grid, 0, MID_GAME.size());
+        return grid;
+    }
+
+    /**
+     * Plays some turns of the game of {@link #midGameGrid()} on a grid holding the turns before them.
+     *
+     * @param grid the grid.
+     * @param from the index of the first turn to play, from 0.
+     * @param to   the index after the last turn to play, at most 12.
+     */
+    public static void playMidGame(Grid grid, int from, int to) {
+        for (int turn = from; turn < to; turn++) {
+            MID_GAME.get(turn).accept(grid);
+        }
+    }
+
+    /**
+     * Plays turns of a game through its engine with the moves of a {@link GreedyBot}, checking that each one is legal.
+     *
+     * @param engine    the engine of the game.
+     * @param turns     the number of turns to play at most, before the game is over.
+     * @param passEvery the player passes every passEvery turns, or only when they have no legal move if 0.
+     */
+    public static void playGreedily(GameEngine engine, int turns, int passEvery) {
+        Bot bot = new GreedyBot();
+        MoveBuffer moves = new MoveBuffer();
+        for (int turn = 0; turn < turns && !engine.isOver(); turn++) {
+            engine.generateMoves(moves);
+            int move = bot.choose(engine.getGame(), moves);
+            if (move == -1 || passEvery > 0 && turn % passEvery == passEvery - 1) {
+                assertEquals(MoveResult.OK, engine.play(new Move.Pass()));
+            } else {
+                assertEquals(MoveResult.OK, engine.play(moves, move));
+            }
+        }
+    }
+
+    /**
+     * Plays a game to its end through its engine with the moves of a {@link GreedyBot}.
+     *
+     * @param engine    the engine of the game.
+     * @param passEvery the player passes every passEvery turns, or only when they have no legal move if 0.
+     * @return the game.
+     */
+    public static Game playOut(GameEngine engine, int passEvery) {
+        playGreedily(engine, Integer.MAX_VALUE, passEvery);
+        return engine.getGame();
+    }
+}
@@ -0,0 +1,104 @@
+package g60085.qwirkle.model;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static g60085.qwirkle.model.QwirkleTestUtil.playGreedily;
+import static org.junit.jupiter.api.Assertions.*;
+
+class SaveIndexTest {
+
+    /**
+     * Saves a new game of two players in a directory after a number of turns.
+     */
+    private static Game save(Path directory, String file, String opponent, int turns) {
+        GameEngine engine = new GameEngine(List.of("Arina", opponent), turns, 0);
+        playGreedily(engine, turns, 0);
+        GameFile.write(engine.getGame(), directory.resolve(file));
+        return engine.getGame();
+    }
+
+    @Test
+    void lists_filters_and_sorts_the_saves(@TempDir Path directory) {
+        save(directory, "a", "Olivia", 2);
+        save(directory, "b", "Élodie", 6);
+        Game game = save(directory, "c", "Olivia", 4);
+        save(directory, "b", "Élodie", 1);
+
+        List<SaveInfo> saves = SaveIndex.find(directory, null, SaveInfo.BY_FILE);
+        assertEquals(List.of("a", "b", "c"), saves.stream().map(SaveInfo::file).toList());
+        assertEquals(1, saves.get(1).moves());
+        assertArrayEquals(game.getPlayersScore(), saves.get(2).scores());
+
+        List<SaveInfo> olivia = SaveIndex.find(directory, "olivia", SaveInfo.BEST_SCORE_FIRST);
+        assertEquals(2, olivia.size());
+        assertTrue(olivia.get(0).bestScore() >= olivia.get(1).bestScore());
+        assertTrue(SaveIndex.find(directory, "Nobody", SaveInfo.NEWEST_FIRST).isEmpty());
+    }
+
+    @Test
+    void a_damaged_index_is_rebuilt_from_the_headers(@TempDir Path directory) throws IOException {
+        save(directory, "a", "Olivia", 2);
+        save(directory, "b", "Élodie", 3);
+        Files.write(directory.resolve("notes"), new byte[]{1, 2, 3});
+        Path index = directory.resolve(SaveIndex.FILE_NAME);
+        byte[] bytes = Files.readAllBytes(index);
+        Files.write(index, java.util.Arrays.copyOf(bytes, bytes.length - 3));
+
+        List<SaveInfo> saves = SaveIndex.find(directory, null, SaveInfo.BY_FILE);
+        assertEquals(List.of("a", "b"), saves.stream().map(SaveInfo::file).toList());
+        assertEquals(3, saves.get(1).moves());
+        assertEquals(bytes.length, Files.size(index));
+    }
+
+    @Test
+    void a_save_missing_from_the_index_is_found_again(@TempDir Path directory) throws IOException {
+        save(directory, "a", "Olivia", 2);
+        assertEquals(1, SaveIndex.list(directory).size());
+        // A save moved into place by a program stopped before appending its entry;
+        Path other = directory.resolve("other");
+        Files.createDirectory(other);
+        save(other, "b", "Élodie", 3);
+        Files.move(other.resolve("b"), directory.resolve("b"));
+
+        List<SaveInfo> saves = SaveIndex.find(directory, null, SaveInfo.BY_FILE);
+        assertEquals(List.of("a", "b"), saves.stream().map(SaveInfo::file).toList());
+        assertEquals(3, saves.get(1).moves());
+
+        Files.delete(directory.resolve("a"));
+        assertEquals(List.of("b"), SaveIndex.list(directory).stream().map(SaveInfo::file).toList());
+    }
+
+    @Test
+    void a_journal_is_not_listed_as_a_save(@TempDir Path directory) {
+        save(directory, "a", "Olivia", 2);
+        GameEngine engine = new GameEngine(List.of("Arina", "Olivia"), 3, 0);
+        MoveJournal.create(directory.resolve("autosave"), engine, 1).close();
+
+        assertThrows(QwirkleException.class, () -> GameFile.readInfo(directory.resolve("autosave")));
+        assertEquals(List.of("a"), SaveIndex.rebuild(directory).stream().map(SaveInfo::file).toList());
+        assertEquals(engine.getGame().hash(), GameFile.read(directory.resolve("autosave")).hash());
+    }
+
+    @Test
+    void the_replaced_entries_are_compacted(@TempDir Path directory) throws IOException {
+        for (int i = 0; i < 20; i++) {
+            save(directory, "a", "Olivia", 1);
+        }
+        long size = Files.size(directory.resolve(SaveIndex.FILE_NAME));
+        assertEquals(1, SaveIndex.list(directory).size());
+        assertTrue(Files.size(directory.resolve(SaveIndex.FILE_NAME)) < size / 10);
+    }
+
+    @Test
+    void the_name_of_the_index_is_reserved(@TempDir Path directory) {
+        Game game = new GameEngine(List.of("Arina", "Olivia"), 1, 0).getGame();
+        assertThrows(QwirkleException.class, () -> GameFile.write(game, directory.resolve(SaveIndex.FILE_NAME)));
+        assertTrue(SaveIndex.list(directory.resolve("missing")).isEmpty());
+    }
+}
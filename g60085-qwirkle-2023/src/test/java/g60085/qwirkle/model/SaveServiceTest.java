@@ -0,0 +1,49 @@
+package g60085.qwirkle.model;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SaveServiceTest {
+
+    @Test
+    void the_last_save_of_a_file_is_written(@TempDir Path directory) {
+        GameEngine engine = new GameEngine(List.of("Arina", "Olivia"), 3, 0);
+        GameEngine other = new GameEngine(List.of("Élodie", "Olivia"), 4, 1);
+        MoveBuffer moves = new MoveBuffer();
+        List<CompletableFuture<Path>> saves = new ArrayList<>();
+        SaveService service = new SaveService(1);
+        for (int turn = 0; turn < 20 && !engine.isOver(); turn++) {
+            engine.generateMoves(moves);
+            engine.play(moves, 0);
+            saves.add(service.save(engine.getGame(), directory.resolve("game")));
+            saves.add(service.save(other.getGame(), directory.resolve("other")));
+        }
+        service.close();
+        assertEquals(0, service.getPendingCount());
+        for (CompletableFuture<Path> save : saves) {
+            assertTrue(save.isDone() && !save.isCompletedExceptionally());
+        }
+        assertEquals(engine.getGame().hash(), GameFile.read(directory.resolve("game")).hash());
+        assertEquals(other.getGame().hash(), GameFile.read(directory.resolve("other")).hash());
+        assertEquals(2, SaveIndex.list(directory).size());
+    }
+
+    @Test
+    void failed_saves_complete_their_future(@TempDir Path directory) {
+        Game game = new GameEngine(List.of("Arina", "Olivia"), 3, 0).getGame();
+        SaveService service = new SaveService(4);
+        CompletableFuture<Path> save = service.save(game, directory.resolve("missing").resolve("game"));
+        assertThrows(QwirkleException.class, () -> service.save(game, directory.resolve(SaveIndex.FILE_NAME)));
+        service.close();
+        assertTrue(save.isCompletedExceptionally());
+        assertThrows(QwirkleException.class, () -> service.save(game, directory.resolve("game")));
+        assertThrows(QwirkleException.class, () -> new SaveService(0));
+    }
+}
@@ -0,0 +1,36 @@
+package g60085.qwirkle.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+import static g60085.qwirkle.model.Color.*;
+import static g60085.qwirkle.model.Shape.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class TileTest {
+
+    @Test
+    void are_interned_by_id() throws Exception {
+        for (int id = 0; id < Tile.KINDS; id++) {
+            Tile tile = Tile.of(id);
+            assertEquals(id, tile.id());
+            assertSame(tile, Tile.of(tile.color(), tile.shape()));
+        }
+        assertEquals(6 + 4, Tile.of(RED, PLUS).id());
+        // The tiles of the bag are the interned ones;
+        Tile drawn = new Bag(1).getRandomTiles(1)[0];
+        assertSame(Tile.of(drawn.id()), drawn);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(new Tile(RED, ROUND));
+        }
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            assertSame(Tile.of(RED, ROUND), in.readObject());
+        }
+    }
+}
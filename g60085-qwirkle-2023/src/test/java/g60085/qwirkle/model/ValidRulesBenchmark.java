@@ -0,0 +1,170 @@
+package g60085.qwirkle.model;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static g60085.qwirkle.model.Color.*;
+import static g60085.qwirkle.model.Shape.*;
+
+/**
+ * Compares the bit mask validation of {@link Grid#validRulesAdd(int, int, Direction, Tile...)}
+ * with the former implementation, which collected every line in a list before checking it.
+ * Both validate the same probes (every kind of tile, on every free cell around the tiles of a mid-game grid).
+ * Run with: mvn -P benchmark test-compile exec:exec -Dbenchmark=ValidRulesBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ValidRulesBenchmark {
+    private Grid grid;
+    private int[] probeRows;
+    private int[] probeCols;
+    private Tile[] probeTiles;
+
+    /**
+     * Builds the grid of the score scenario of the tests and the probes around its tiles.
+     */
+    @Setup
+    public void setUp() {
+        grid = QwirkleTestUtil.midGameGrid();
+
+        List<int[]> cells = new ArrayList<>();
+        for (int row = grid.getMinRow() - 1; row <= grid.getMaxRow() + 1; row++) {
+            for (int col = grid.getMinCol() - 1; col <= grid.getMaxCol() + 1; col++) {
+                boolean free = grid.get(row, col) == null;
+                boolean touching = grid.get(row - 1, col) != null || grid.get(row + 1, col) != null
+                        || grid.get(row, col - 1) != null || grid.get(row, col + 1) != null;
+                if (free && touching) {
+                    cells.add(new int[]{row, col});
+                }
+            }
+        }
+        int size = cells.size() * 36;
+        probeRows = new int[size];
+        probeCols = new int[size];
+        probeTiles = new Tile[size];
+        int i = 0;
+        for (int[] cell : cells) {
+            for (Color color : Color.values()) {
+                for (Shape shape : Shape.values()) {
+                    probeRows[i] = cell[0];
+                    probeCols[i] = cell[1];
+                    probeTiles[i] = new Tile(color, shape);
+                    i++;
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public void bitMasks(Blackhole blackhole) {
+        int valid = 0;
+        for (int i = 0; i < probeTiles.length; i++) {
+            if (grid.validRulesAdd(probeRows[i], probeCols[i], Direction.RIGHT, probeTiles[i])) {
+                valid++;
+            }
+        }
+        blackhole.consume(valid);
+    }
+
+    @Benchmark
+    public void lists(Blackhole blackhole) {
+        int valid = 0;
+        for (int i = 0; i < probeTiles.length; i++) {
+            if (listValidRulesAdd(grid, probeRows[i], probeCols[i], Direction.RIGHT, probeTiles[i])) {
+                valid++;
+            }
+        }
+        blackhole.consume(valid);
+    }
+
+    // The former implementation, reading the grid through get;
+
+    private static boolean listValidRulesAdd(Grid grid, int row, int col, Direction d, Tile... line) {
+        boolean validRules = true;
+
+        List<Tile> tilesFromTheLine = tilesFromTheLine(grid, row, col, d, line);
+        Tile[] tilesLineTab = tilesFromTheLine.toArray(Tile[]::new);
+        if (tilesLineTab.length > 6 || !validColorOrShape(tilesLineTab) || hasDuplicateTiles(tilesLineTab)) {
+            validRules = false;
+        }
+
+        int indexLine = 0;
+        while (indexLine < line.length && validRules) {
+            int tileColumn = col + indexLine * d.getDeltaCol();
+            int tileRow = row + indexLine * d.getDeltaRow();
+            List<Tile> tilesFromOppLine = tilesFromTheLine(grid, tileRow, tileColumn, d.diagonal(), line[indexLine]);
+            Tile[] tilesOppLineTab = tilesFromOppLine.toArray(Tile[]::new);
+            if (tilesOppLineTab.length > 6 || !validColorOrShape(tilesOppLineTab) || hasDuplicateTiles(tilesOppLineTab)) {
+                validRules = false;
+            }
+            tilesFromOppLine.clear();
+            indexLine++;
+        }
+        return validRules;
+    }
+
+    private static List<Tile> tilesFromTheLine(Grid grid, int row, int col, Direction d, Tile... line) {
+        List<Tile> directionTiles = new ArrayList<>(Arrays.asList(line));
+        int colDirection = col + line.length * d.getDeltaCol();
+        int rowDirection = row + line.length * d.getDeltaRow();
+        while (grid.get(rowDirection, colDirection) != null) {
+            directionTiles.add(grid.get(rowDirection, colDirection));
+            colDirection += d.getDeltaCol();
+            rowDirection += d.getDeltaRow();
+        }
+        int oppCol = col + d.opposite().getDeltaCol();
+        int oppRow = row + d.opposite().getDeltaRow();
+        while (grid.get(oppRow, oppCol) != null) {
+            directionTiles.add(grid.get(oppRow, oppCol));
+            oppCol += d.opposite().getDeltaCol();
+            oppRow += d.opposite().getDeltaRow();
+        }
+        return directionTiles;
+    }
+
+    private static boolean hasDuplicateTiles(Tile[] tiles) {
+        boolean sameTile = false;
+        int indexTile = 0;
+        while (indexTile < tiles.length && !sameTile) {
+            int i = indexTile + 1;
+            while (i < tiles.length && !sameTile) {
+                if (tiles[indexTile].equals(tiles[i])) {
+                    sameTile = true;
+                }
+                i++;
+            }
+            indexTile++;
+        }
+        return sameTile;
+    }
+
+    private static boolean validColorOrShape(Tile... line) {
+        boolean validColorOrShape = false;
+        int i = 1;
+        while (i < line.length && line[0].color() == line[i].color()) {
+            i++;
+        }
+        if (i >= line.length) {
+            validColorOrShape = true;
+        }
+        if (!validColorOrShape) {
+            int j = 1;
+            while (j < line.length && line[0].shape() == line[j].shape()) {
+                j++;
+            }
+            if (j >= line.length) {
+                validColorOrShape = true;
+            }
+        }
+        return validColorOrShape;
+    }
+}
@@ -0,0 +1,45 @@
+package g60085.qwirkle.simulation;
+
+import g60085.qwirkle.model.GameSummary;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ArchiveStatsTest {
+
+    @Test
+    void merged_statistics_give_the_exact_figures_of_the_games() {
+        ArchiveStats first = new ArchiveStats();
+        first.add(new GameSummary(0, 0, new int[]{20, 10}, 10, 2, 1, 30));
+        first.add(new GameSummary(1, 1, new int[]{15, 15, -3}, 12, 4, 0, 20));
+        ArchiveStats second = new ArchiveStats();
+        second.add(new GameSummary(2, 0, new int[]{5, 30}, 8, 0, 2, 25));
+        first.merge(second);
+
+        assertEquals(3, first.getGames());
+        assertEquals(30, first.getTurns());
+        assertEquals(10, first.getMeanTurns(), 1e-9);
+        assertEquals(0.2, first.getPassRate(), 1e-9);
+        assertEquals(1, first.getQwirklesPerGame(), 1e-9);
+        assertEquals(3.0 / 24, first.getQwirklesPerMove(), 1e-9);
+        // The first players win once, share a win and lose once, against 1/2, 1/3 and 1/2 by chance;
+        assertEquals(0.5, first.getFirstPlayerWinRate(), 1e-9);
+        assertEquals((1.5 - 4.0 / 3) / 3, first.getFirstPlayerAdvantage(), 1e-9);
+        assertEquals(92.0 / 7, first.getMeanScore(), 1e-9);
+        // The scores are -3, 5, 10, 15, 15, 20 and 30;
+        assertEquals(-3, first.getScorePercentile(10));
+        assertEquals(10, first.getScorePercentile(30));
+        assertEquals(15, first.getScorePercentile(50));
+        assertEquals(30, first.getScorePercentile(100));
+    }
+
+    @Test
+    void empty_statistics_give_zeros() {
+        ArchiveStats stats = new ArchiveStats();
+        stats.merge(new ArchiveStats());
+        assertEquals(0, stats.getGames());
+        assertEquals(0, stats.getPassRate());
+        assertEquals(0, stats.getQwirklesPerGame());
+        assertEquals(0, stats.getFirstPlayerAdvantage());
+    }
+}
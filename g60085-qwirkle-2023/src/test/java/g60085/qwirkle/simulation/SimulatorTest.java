@@ -0,0 +1,58 @@
+package g60085.qwirkle.simulation;
+
+import g60085.qwirkle.model.ArchiveWriter;
+import g60085.qwirkle.model.GameArchive;
+import g60085.qwirkle.model.QwirkleException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SimulatorTest {
+
+    @Test
+    void every_game_is_played_once_whatever_the_threads() {
+        SimulationStats stats = new Simulator(12, 3, 7, "random", "random", "random").run();
+        assertEquals(12, stats.getGames());
+        assertTrue(stats.getMoves() >= 12 * 3);
+        double wins = 0;
+        for (int seat = 0; seat < 3; seat++) {
+            assertTrue(stats.getMeanScore(seat) > 0);
+            wins += stats.getWinRate(seat);
+        }
+        assertTrue(wins <= 1 + 1e-9);
+        assertTrue(stats.getScorePercentile(10) <= stats.getScorePercentile(90));
+        assertTrue(stats.report(new String[]{"random", "random", "random"}, 1_000_000).contains("games: 12"));
+    }
+
+    @Test
+    void the_games_can_be_archived(@TempDir Path directory) {
+        SimulationStats stats;
+        try (ArchiveWriter writer = ArchiveWriter.open(directory.resolve("games"))) {
+            stats = new Simulator(5, 2, 3, "random", "greedy").run(writer);
+        }
+        GameArchive archive = GameArchive.open(directory.resolve("games"));
+        assertEquals(5, archive.size());
+        int moves = 0;
+        for (int i = 0; i < archive.size(); i++) {
+            moves += archive.load(i).getMoveCount();
+        }
+        assertEquals(stats.getMoves(), moves);
+
+        ArchiveStats archived = ArchiveStats.of(archive);
+        assertEquals(5, archived.getGames());
+        assertEquals(stats.getMoves(), archived.getTurns());
+        assertTrue(archived.getPassRate() >= 0 && archived.getPassRate() <= 1);
+        assertTrue(archived.getScorePercentile(10) <= archived.getScorePercentile(90));
+        assertTrue(archived.report(1_000_000).contains("games: 5"));
+    }
+
+    @Test
+    void invalid_simulations_are_rejected() {
+        assertThrows(QwirkleException.class, () -> new Simulator(10, 1, 0, "random"));
+        assertThrows(QwirkleException.class, () -> new Simulator(0, 1, 0, "random", "random"));
+        assertThrows(QwirkleException.class, () -> new Simulator(10, 1, 0, "random", "nobody"));
+    }
+}